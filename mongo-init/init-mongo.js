@@ -53,11 +53,19 @@ db.createCollection('usuarios', {
     }
 });
 
-// Crear índices para optimizar las consultas
-db.usuarios.createIndex({ email: 1 }, { unique: true });
-db.usuarios.createIndex({ nombre: 1 });
-db.usuarios.createIndex({ activo: 1 });
-db.usuarios.createIndex({ fechaCreacion: 1 });
+// Índices que necesitan las consultas (los mismos que UsuarioRepository.INDICES; la aplicación
+// los verifica al arrancar y crea o corrige los que no coincidan)
+// Email único sólo entre los usuarios activos: el de un usuario eliminado se puede reutilizar
+db.usuarios.createIndex({ email: 1 }, { unique: true, partialFilterExpression: { activo: true } });
+// Listado paginado por _id y conteo de activos
+db.usuarios.createIndex({ activo: 1, _id: 1 });
+// Búsqueda por nombre: prefijo sobre el nombre normalizado y n-gramas (índice multiclave)
+db.usuarios.createIndex({ nombreNormalizado: 1 });
+db.usuarios.createIndex({ nombreNgramas: 1 });
+// Exportación incremental: orden y cursor de reanudación por fechaActualizacion y _id
+db.usuarios.createIndex({ fechaActualizacion: 1, _id: 1 });
+// Archivo de usuarios desactivados hace tiempo
+db.usuarios.createIndex({ activo: 1, fechaActualizacion: 1 });
 
 // Insertar algunos datos de ejemplo
 db.usuarios.insertMany([
@@ -89,5 +97,5 @@ db.usuarios.insertMany([
 
 print('Base de datos inicializada correctamente con datos de ejemplo');
 print('Colección: usuarios');
-print('Índices creados: email (único), nombre, activo, fechaCreacion');
+print('Índices creados: email (único entre activos), activo+_id, nombreNormalizado, nombreNgramas, fechaActualizacion+_id, activo+fechaActualizacion');
 print('Documentos insertados: 3 usuarios de ejemplo');
\ No newline at end of file
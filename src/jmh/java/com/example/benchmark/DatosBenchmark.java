@@ -0,0 +1,78 @@
+package com.example.benchmark;
+
+import com.example.model.Usuario;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import io.quarkus.mongodb.panache.common.jackson.ObjectIdDeserializer;
+import io.quarkus.mongodb.panache.common.jackson.ObjectIdSerializer;
+import org.bson.types.ObjectId;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Datos y configuración compartidos por los benchmarks. El ObjectMapper replica el que produce
+ * Quarkus para RESTEasy Reactive: módulos de java.time, fechas ISO y el (de)serializador de
+ * ObjectId que registra Panache.
+ */
+public final class DatosBenchmark {
+
+    private static final String[] NOMBRES = {"María", "José", "Lucía", "Álvaro", "Sofía", "Andrés", "Núria", "Iñigo"};
+    private static final String[] APELLIDOS = {"García", "Fernández", "López", "Martínez", "Sánchez", "Pérez", "Gómez", "Muñoz"};
+
+    // Referencia fuerte: JUL sólo conserva débilmente los loggers y perdería el nivel configurado
+    private static final Logger LOG_APLICACION = Logger.getLogger("com.example");
+
+    private DatosBenchmark() {
+    }
+
+    static ObjectMapper objectMapper() {
+        SimpleModule objectId = new SimpleModule("ObjectIdModule")
+                .addSerializer(ObjectId.class, new ObjectIdSerializer())
+                .addDeserializer(ObjectId.class, new ObjectIdDeserializer());
+
+        return new ObjectMapper()
+                .findAndRegisterModules()
+                .registerModule(objectId)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    public static Usuario usuario(int i) {
+        String nombre = NOMBRES[i % NOMBRES.length] + " " + APELLIDOS[(i / NOMBRES.length) % APELLIDOS.length];
+        Usuario usuario = new Usuario(nombre, "usuario" + i + "@example.com", String.format("6%09d", i));
+        usuario.id = new ObjectId();
+        usuario.indexarNombre();
+        return usuario;
+    }
+
+    public static List<Usuario> usuarios(int cantidad) {
+        List<Usuario> usuarios = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            usuarios.add(usuario(i));
+        }
+        return usuarios;
+    }
+
+    // El servicio registra cada operación a INFO: sin esto se mediría el logging
+    public static void silenciarLogs() {
+        LOG_APLICACION.setLevel(Level.WARNING);
+    }
+
+    // Sin Expression Language: basta con interpolar los parámetros de los mensajes
+    static Validator validator() {
+        return Validation.byDefaultProvider()
+                .configure()
+                .messageInterpolator(new ParameterMessageInterpolator())
+                .buildValidatorFactory()
+                .getValidator();
+    }
+}
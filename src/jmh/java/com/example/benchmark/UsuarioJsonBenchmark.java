@@ -0,0 +1,90 @@
+package com.example.benchmark;
+
+import com.example.model.Usuario;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización y deserialización JSON de Usuario tal como las hace RESTEasy Reactive: un usuario
+ * suelto (GET/POST /api/usuarios/{id}) y una página de 100 (GET /api/usuarios).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsuarioJsonBenchmark {
+
+    private ObjectWriter writerUsuario;
+    private ObjectWriter writerPagina;
+    private ObjectReader readerUsuario;
+    private ObjectReader readerPagina;
+
+    private Usuario usuario;
+    private List<Usuario> pagina;
+    private byte[] jsonUsuario;
+    private byte[] jsonPagina;
+
+    // Cuerpo típico de un POST: sin id ni fechas
+    private byte[] jsonAlta;
+
+    @Setup
+    public void preparar() throws Exception {
+        ObjectMapper objectMapper = DatosBenchmark.objectMapper();
+        CollectionType tipoPagina = objectMapper.getTypeFactory().constructCollectionType(List.class, Usuario.class);
+
+        writerUsuario = objectMapper.writerFor(Usuario.class);
+        writerPagina = objectMapper.writerFor(tipoPagina);
+        readerUsuario = objectMapper.readerFor(Usuario.class);
+        readerPagina = objectMapper.readerFor(tipoPagina);
+
+        usuario = DatosBenchmark.usuario(1);
+        pagina = DatosBenchmark.usuarios(100);
+        jsonUsuario = writerUsuario.writeValueAsBytes(usuario);
+        jsonPagina = writerPagina.writeValueAsBytes(pagina);
+        jsonAlta = "{\"nombre\":\"Juan Pérez\",\"email\":\"juan.perez@example.com\",\"telefono\":\"1234567890\"}"
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] serializarUsuario() throws Exception {
+        return writerUsuario.writeValueAsBytes(usuario);
+    }
+
+    @Benchmark
+    public byte[] serializarPagina() throws Exception {
+        return writerPagina.writeValueAsBytes(pagina);
+    }
+
+    @Benchmark
+    public Usuario deserializarUsuario() throws Exception {
+        return readerUsuario.readValue(jsonUsuario);
+    }
+
+    @Benchmark
+    public Usuario deserializarAlta() throws Exception {
+        return readerUsuario.readValue(jsonAlta);
+    }
+
+    @Benchmark
+    public List<Usuario> deserializarPagina() throws Exception {
+        return readerPagina.readValue(jsonPagina);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.benchmark;
+
+import com.example.model.Usuario;
+import com.example.util.EscritorJsonUsuario;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mongodb.MongoClientSettings;
+import io.vertx.core.buffer.Buffer;
+import org.bson.BsonBinaryReader;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.pojo.Conventions;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Página de 100 usuarios desde los documentos BSON recibidos hasta el cuerpo JSON: decodificando
+ * a Usuario y serializando con Jackson (usuarios.json.desde-bson=false) frente a escribir el JSON
+ * directamente desde los bytes (usuarios.json.desde-bson=true). Con -prof gc se compara también
+ * la memoria asignada por operación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsuarioJsonDesdeBsonBenchmark {
+
+    private Codec<Usuario> codec;
+    private ObjectWriter writerPagina;
+    private List<RawBsonDocument> documentos;
+
+    @Setup
+    public void preparar() {
+        codec = CodecRegistries.fromRegistries(
+                MongoClientSettings.getDefaultCodecRegistry(),
+                CodecRegistries.fromProviders(PojoCodecProvider.builder()
+                        .automatic(true)
+                        .conventions(Conventions.DEFAULT_CONVENTIONS)
+                        .build()))
+                .get(Usuario.class);
+        writerPagina = DatosBenchmark.objectMapper()
+                .writerFor(DatosBenchmark.objectMapper().getTypeFactory()
+                        .constructCollectionType(List.class, Usuario.class));
+        documentos = DatosBenchmark.usuarios(100).stream()
+                .map(usuario -> new RawBsonDocument(usuario, codec))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] pojoYJackson() throws Exception {
+        List<Usuario> usuarios = new ArrayList<>(documentos.size());
+        for (RawBsonDocument documento : documentos) {
+            try (BsonBinaryReader reader = new BsonBinaryReader(documento.getByteBuffer().asNIO())) {
+                usuarios.add(codec.decode(reader, DecoderContext.builder().build()));
+            }
+        }
+        return writerPagina.writeValueAsBytes(usuarios);
+    }
+
+    @Benchmark
+    public Buffer desdeBson() {
+        return EscritorJsonUsuario.escribir(documentos);
+    }
+}
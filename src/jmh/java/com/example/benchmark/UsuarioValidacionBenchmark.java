@@ -0,0 +1,52 @@
+package com.example.benchmark;
+
+import com.example.model.Usuario;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation de @Valid Usuario: el caso habitual (válido) y uno con todas las restricciones
+ * violadas, que además construye e interpola los mensajes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsuarioValidacionBenchmark {
+
+    private Validator validator;
+    private Usuario valido;
+    private Usuario invalido;
+
+    @Setup
+    public void preparar() {
+        validator = DatosBenchmark.validator();
+        valido = DatosBenchmark.usuario(1);
+        invalido = new Usuario("A", "no-es-un-email", "123");
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Usuario>> validarValido() {
+        return validator.validate(valido);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Usuario>> validarInvalido() {
+        return validator.validate(invalido);
+    }
+}
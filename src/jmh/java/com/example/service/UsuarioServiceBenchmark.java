@@ -0,0 +1,144 @@
+package com.example.service;
+
+import com.example.benchmark.DatosBenchmark;
+import com.example.metricas.MetricasUsuarios;
+import com.example.model.ConteoUsuarios;
+import com.example.model.ModoBusqueda;
+import com.example.model.PaginaUsuarios;
+import com.example.model.Usuario;
+import com.example.repository.ConsistenciaCausal;
+import com.example.repository.UsuarioRepositoryEnMemoria;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cadenas Mutiny de UsuarioService sobre el repositorio en memoria: mide el coste propio del
+ * servicio (validación de parámetros, caché, mapeos, ordenación por relevancia) sin la red ni
+ * MongoDB. Los logs se fuerzan a JUL y se silencian para no medir el logging. Está en el paquete
+ * del servicio para montarlo asignando sus campos, sin contenedor CDI.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.jboss.logging.provider=jdk")
+public class UsuarioServiceBenchmark {
+
+    private static final int USUARIOS = 10_000;
+
+    private UsuarioRepositoryEnMemoria repositorio;
+    private UsuarioService servicio;
+    private String idEnCache;
+    private String idIntermedio;
+    private int siguienteAlta;
+
+    @Setup
+    public void preparar() {
+        DatosBenchmark.silenciarLogs();
+        List<Usuario> usuarios = DatosBenchmark.usuarios(USUARIOS);
+        repositorio = new UsuarioRepositoryEnMemoria(usuarios);
+        servicio = usuarioService(repositorio);
+
+        idEnCache = usuarios.get(0).id.toHexString();
+        idIntermedio = usuarios.get(USUARIOS / 2).id.toHexString();
+        servicio.obtenerPorId(idEnCache).await().indefinitely();
+    }
+
+    @Benchmark
+    public Usuario obtenerPorIdEnCache() {
+        return servicio.obtenerPorId(idEnCache).await().indefinitely();
+    }
+
+    @Benchmark
+    public PaginaUsuarios<Usuario> obtenerPagina() {
+        return servicio.obtenerTodos(idIntermedio, 100).await().indefinitely();
+    }
+
+    @Benchmark
+    public List<Usuario> buscarPorPrefijo() {
+        return servicio.buscarPorNombre("luc", ModoBusqueda.PREFIJO, 20)
+                .collect().asList().await().indefinitely();
+    }
+
+    @Benchmark
+    public List<Usuario> buscarContiene() {
+        return servicio.buscarPorNombre("martin", ModoBusqueda.CONTIENE, 20)
+                .collect().asList().await().indefinitely();
+    }
+
+    @Benchmark
+    public ConteoUsuarios contarIncremental() {
+        return servicio.contarUsuarios(false).await().indefinitely();
+    }
+
+    // Cada alta se borra después para que el repositorio no crezca durante la medición
+    @Benchmark
+    public Usuario crear() {
+        int i = USUARIOS + siguienteAlta++;
+        Usuario creado = servicio.crear(new Usuario("Alta " + i, "alta" + i + "@example.com", "6000000000"))
+                .await().indefinitely();
+        repositorio.borrar(creado.id);
+        return creado;
+    }
+
+    @Benchmark
+    public Usuario actualizar() {
+        Usuario datos = new Usuario("Sofía López", "usuario" + (USUARIOS / 2) + "@example.com", "6000000001");
+        return servicio.actualizar(idIntermedio, datos).await().indefinitely();
+    }
+
+    // Sin cliente de MongoDB la consistencia causal queda deshabilitada; el contador y la caché
+    // quedan sin documento compartido ni invalidación distribuida
+    private static UsuarioService usuarioService(UsuarioRepositoryEnMemoria repositorio) {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ConsistenciaCausal consistencia = new ConsistenciaCausal();
+        CoalescedorConsultas coalescedor = new CoalescedorConsultas(registry);
+
+        ContadorUsuariosService contador = new ContadorUsuariosService();
+        contador.usuarioRepository = repositorio;
+        contador.coalescedor = coalescedor;
+        contador.consistencia = consistencia;
+
+        FiltroEmailsService filtroEmails = new FiltroEmailsService();
+        filtroEmails.usuarioRepository = repositorio;
+        filtroEmails.registry = registry;
+        filtroEmails.habilitado = true;
+        filtroEmails.capacidad = 1_000_000;
+        filtroEmails.tasaFalsosPositivos = 0.01;
+        filtroEmails.batchSize = 5000;
+        filtroEmails.reconstruir().await().indefinitely();
+
+        CacheUsuariosService cacheUsuarios = new CacheUsuariosService();
+        cacheUsuarios.usuarioRepository = repositorio;
+        cacheUsuarios.coalescedor = coalescedor;
+        cacheUsuarios.usuariosPorId = new CacheEnMemoria("usuarios-por-id");
+
+        UsuarioService servicio = new UsuarioService();
+        servicio.usuarioRepository = repositorio;
+        servicio.contadorUsuarios = contador;
+        servicio.filtroEmails = filtroEmails;
+        servicio.metricas = new MetricasUsuarios(registry);
+        servicio.consistencia = consistencia;
+        servicio.cacheUsuarios = cacheUsuarios;
+        servicio.limitePorDefecto = 100;
+        servicio.limiteMaximo = 1000;
+        servicio.limiteBusquedaPorDefecto = 20;
+        servicio.limiteBusquedaMaximo = 100;
+        servicio.maxCandidatosBusqueda = 1000;
+        return servicio;
+    }
+}
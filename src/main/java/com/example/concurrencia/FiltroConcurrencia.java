@@ -0,0 +1,138 @@
+package com.example.concurrencia;
+
+import com.example.controller.UsuarioController.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.Json;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Limita las peticiones concurrentes a /api/usuarios por clase de operación (lectura, escritura y
+ * búsqueda) antes de que lleguen a RESTEasy. Lo que excede el límite se rechaza en el acto con 503
+ * y Retry-After, en lugar de esperar en la cola del pool de MongoDB hasta que expire. Los flujos
+ * largos (stream, changes, batch, export) no pasan por el limitador: su duración no mide la saturación.
+ */
+@ApplicationScoped
+public class FiltroConcurrencia {
+
+    static final String RUTA = "/api/usuarios";
+
+    // Variante imperativa, si se ha incluido en el build: comparte los límites de la reactiva
+    static final String RUTA_HILOS_VIRTUALES = "/api/hilos-virtuales/usuarios";
+
+    public enum ClaseOperacion {
+        LECTURA, ESCRITURA, BUSQUEDA;
+
+        final String etiqueta = name().toLowerCase(Locale.ROOT);
+    }
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "usuarios.concurrencia.habilitada", defaultValue = "true")
+    boolean habilitada;
+
+    @ConfigProperty(name = "usuarios.concurrencia.limite-inicial", defaultValue = "20")
+    int limiteInicial;
+
+    @ConfigProperty(name = "usuarios.concurrencia.limite-minimo", defaultValue = "4")
+    int limiteMinimo;
+
+    @ConfigProperty(name = "usuarios.concurrencia.limite-maximo", defaultValue = "200")
+    int limiteMaximo;
+
+    @ConfigProperty(name = "usuarios.concurrencia.tolerancia", defaultValue = "1.5")
+    double tolerancia;
+
+    @ConfigProperty(name = "usuarios.concurrencia.reintento", defaultValue = "1s")
+    Duration reintento;
+
+    private final Map<ClaseOperacion, LimitadorConcurrencia> limitadores = new EnumMap<>(ClaseOperacion.class);
+    private final Map<ClaseOperacion, Counter> rechazadas = new EnumMap<>(ClaseOperacion.class);
+
+    void registrar(@Observes Router router) {
+        if (!habilitada) {
+            return;
+        }
+        for (ClaseOperacion clase : ClaseOperacion.values()) {
+            LimitadorConcurrencia limitador = new LimitadorConcurrencia(
+                    limiteInicial, limiteMinimo, limiteMaximo, tolerancia);
+            limitadores.put(clase, limitador);
+            Gauge.builder("usuarios.concurrencia.limite", limitador, LimitadorConcurrencia::limite)
+                    .description("Límite adaptativo de peticiones concurrentes")
+                    .tag("clase", clase.etiqueta)
+                    .register(registry);
+            Gauge.builder("usuarios.concurrencia.en_curso", limitador, LimitadorConcurrencia::enCurso)
+                    .description("Peticiones en curso")
+                    .tag("clase", clase.etiqueta)
+                    .register(registry);
+            rechazadas.put(clase, Counter.builder("usuarios.concurrencia.rechazadas")
+                    .description("Peticiones rechazadas con 503 por superar el límite")
+                    .tag("clase", clase.etiqueta)
+                    .register(registry));
+        }
+        // Antes que las rutas de RESTEasy
+        router.route(RUTA + "*").order(-1).handler(this::filtrar);
+        router.route(RUTA_HILOS_VIRTUALES + "*").order(-1).handler(this::filtrar);
+    }
+
+    private void filtrar(RoutingContext contexto) {
+        ClaseOperacion clase = clasificar(contexto.request().method(), contexto.normalizedPath());
+        if (clase == null) {
+            contexto.next();
+            return;
+        }
+
+        LimitadorConcurrencia limitador = limitadores.get(clase);
+        int enCurso = limitador.adquirir();
+        if (enCurso < 0) {
+            rechazadas.get(clase).increment();
+            contexto.response()
+                    .setStatusCode(503)
+                    .putHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, reintento.toSeconds())))
+                    .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                    .end(Json.encode(new ErrorResponse("Servicio saturado, reintente más tarde")));
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        contexto.addEndHandler(fin -> {
+            if (fin.failed()) {
+                limitador.liberarSinMuestra();
+            } else {
+                limitador.liberar(System.nanoTime() - inicio, enCurso, contexto.response().getStatusCode() >= 500);
+            }
+        });
+        contexto.next();
+    }
+
+    static ClaseOperacion clasificar(HttpMethod metodo, String ruta) {
+        String prefijo = ruta.startsWith(RUTA_HILOS_VIRTUALES) ? RUTA_HILOS_VIRTUALES : RUTA;
+        String resto = ruta.substring(Math.min(prefijo.length(), ruta.length()));
+        if (resto.startsWith("/stream") || resto.startsWith("/changes") || resto.startsWith("/batch")
+                || resto.startsWith("/export")) {
+            return null;
+        }
+        if (HttpMethod.GET.equals(metodo) || HttpMethod.HEAD.equals(metodo)) {
+            return resto.equals("/buscar") ? ClaseOperacion.BUSQUEDA : ClaseOperacion.LECTURA;
+        }
+        if (HttpMethod.POST.equals(metodo) || HttpMethod.PUT.equals(metodo)
+                || HttpMethod.PATCH.equals(metodo) || HttpMethod.DELETE.equals(metodo)) {
+            return ClaseOperacion.ESCRITURA;
+        }
+        return null;
+    }
+}
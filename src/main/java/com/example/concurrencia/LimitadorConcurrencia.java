@@ -0,0 +1,124 @@
+package com.example.concurrencia;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Límite de peticiones concurrentes que se ajusta solo a partir de la latencia observada, al estilo
+ * del algoritmo Gradient2 de Netflix concurrency-limits. Se comparan dos medias exponenciales de la
+ * latencia: una corta, que refleja el estado actual, y una larga, que hace de referencia sin cola.
+ * Mientras la corta no supera la larga multiplicada por la tolerancia, el límite crece en √límite;
+ * cuando la supera, la cola está creciendo (normalmente en el pool de conexiones de MongoDB) y el
+ * límite baja en proporción. Las respuestas 5xx lo reducen un 10 %.
+ */
+public class LimitadorConcurrencia {
+
+    private static final int VENTANA_CORTA = 10;
+    private static final int VENTANA_LARGA = 600;
+    private static final double SUAVIZADO = 0.2;
+    private static final double REDUCCION_POR_ERROR = 0.9;
+
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final double tolerancia;
+
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private volatile int limite;
+
+    // Protegidos por el monitor del limitador
+    private double limiteEstimado;
+    private double rttCortoNanos;
+    private double rttLargoNanos;
+    private long muestras;
+
+    public LimitadorConcurrencia(int limiteInicial, int limiteMinimo, int limiteMaximo, double tolerancia) {
+        if (limiteMinimo < 1 || limiteMinimo > limiteMaximo) {
+            throw new IllegalArgumentException("Límites de concurrencia inválidos: " + limiteMinimo + ".." + limiteMaximo);
+        }
+        this.limiteMinimo = limiteMinimo;
+        this.limiteMaximo = limiteMaximo;
+        this.tolerancia = tolerancia;
+        this.limiteEstimado = Math.max(limiteMinimo, Math.min(limiteMaximo, limiteInicial));
+        this.limite = (int) limiteEstimado;
+    }
+
+    /**
+     * @return las peticiones en curso, incluida ésta, o -1 si se ha alcanzado el límite y la
+     *         petición debe rechazarse
+     */
+    public int adquirir() {
+        while (true) {
+            int actual = enCurso.get();
+            if (actual >= limite) {
+                return -1;
+            }
+            if (enCurso.compareAndSet(actual, actual + 1)) {
+                return actual + 1;
+            }
+        }
+    }
+
+    /**
+     * @param rttNanos         duración de la petición
+     * @param enCursoAlEmpezar valor devuelto por {@link #adquirir()}
+     * @param error            si la petición terminó con un error del servidor
+     */
+    public void liberar(long rttNanos, int enCursoAlEmpezar, boolean error) {
+        enCurso.decrementAndGet();
+        if (error) {
+            reducir();
+        } else {
+            muestra(rttNanos, enCursoAlEmpezar);
+        }
+    }
+
+    // Petición abortada (p. ej. el cliente cerró la conexión): su duración no es representativa
+    public void liberarSinMuestra() {
+        enCurso.decrementAndGet();
+    }
+
+    public int limite() {
+        return limite;
+    }
+
+    public int enCurso() {
+        return enCurso.get();
+    }
+
+    public synchronized double rttLargoNanos() {
+        return rttLargoNanos;
+    }
+
+    private synchronized void reducir() {
+        ajustar(limiteEstimado * REDUCCION_POR_ERROR);
+    }
+
+    private synchronized void muestra(long rttNanos, int enCursoAlEmpezar) {
+        muestras++;
+        // Hasta llenar cada ventana se usa la media simple de las muestras recibidas
+        rttCortoNanos = media(rttCortoNanos, rttNanos, Math.min(muestras, VENTANA_CORTA));
+        rttLargoNanos = media(rttLargoNanos, rttNanos, Math.min(muestras, VENTANA_LARGA));
+
+        // Tras una subida de latencia prolongada, la referencia vuelve antes a la latencia actual
+        if (rttLargoNanos > 2 * rttCortoNanos) {
+            rttLargoNanos *= 0.95;
+        }
+
+        // Sin demanda cerca del límite la latencia no dice nada sobre él: no se sube
+        if (enCursoAlEmpezar < limiteEstimado / 2) {
+            return;
+        }
+
+        double gradiente = Math.max(0.5, Math.min(1.0, tolerancia * rttLargoNanos / rttCortoNanos));
+        double nuevo = limiteEstimado * gradiente + Math.sqrt(limiteEstimado);
+        ajustar(limiteEstimado * (1 - SUAVIZADO) + nuevo * SUAVIZADO);
+    }
+
+    private void ajustar(double nuevo) {
+        limiteEstimado = Math.max(limiteMinimo, Math.min(limiteMaximo, nuevo));
+        limite = (int) limiteEstimado;
+    }
+
+    private static double media(double actual, long muestra, long ventana) {
+        return actual + (muestra - actual) / ventana;
+    }
+}
@@ -1,9 +1,37 @@
 package com.example.controller;
 
+import com.example.model.ConteoUsuarios;
+import com.example.model.ElementoImportacion;
+import com.example.model.EventoUsuario;
+import com.example.model.FormatoExportacion;
+import com.example.model.ModoBusqueda;
+import com.example.model.ProyeccionUsuario;
+import com.example.model.ResultadoImportacion;
 import com.example.model.Usuario;
+import com.example.service.CambiosUsuariosService;
+import com.example.service.EmailDuplicadoException;
+import com.example.service.ExportacionRechazadaException;
+import com.example.service.ExportacionUsuariosService;
+import com.example.service.ReanudacionRechazadaException;
+import com.example.service.UsuarioNoEncontradoException;
 import com.example.service.UsuarioService;
+import com.example.service.VersionNoCoincideException;
+import com.example.util.EscritorJsonUsuario;
+import com.example.util.EtagUsuario;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import io.smallrye.common.annotation.Blocking;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.core.buffer.Buffer;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
@@ -11,12 +39,27 @@ import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.jboss.logging.Logger;
+import org.jboss.resteasy.reactive.RestMulti;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import org.jboss.resteasy.reactive.common.util.RestMediaType;
 
 import jakarta.inject.Inject;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 
 @Path("/api/usuarios")
 @Produces(MediaType.APPLICATION_JSON)
@@ -26,16 +69,231 @@ public class UsuarioController {
 
     private static final Logger LOG = Logger.getLogger(UsuarioController.class);
 
+    // Token de consistencia causal: lo devuelven las escrituras y lo aceptan las lecturas
+    static final String CABECERA_CONSISTENCIA = "X-Consistencia-Token";
+
+    private static final String TEXT_CSV = "text/csv";
+
+    private static final String REINTENTO_EXPORTACION_SEGUNDOS = "30";
+
+    private static final String REINTENTO_REANUDACION_SEGUNDOS = "5";
+
+    private static final String REINTENTO_MONGO_SEGUNDOS = "1";
+
+    // La lectura del cuerpo de una importación es bloqueante: en un worker se ejecuta sin saltos
+    private static final Executor FUERA_DEL_EVENT_LOOP = tarea -> {
+        if (io.vertx.core.Context.isOnEventLoopThread()) {
+            Infrastructure.getDefaultWorkerPool().execute(tarea);
+        } else {
+            tarea.run();
+        }
+    };
+
     @Inject
     UsuarioService usuarioService;
 
+    @Inject
+    CambiosUsuariosService cambiosUsuariosService;
+
+    @Inject
+    ExportacionUsuariosService exportacionUsuariosService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    // Listado y búsqueda escriben el JSON desde los bytes BSON, sin materializar Usuario
+    @ConfigProperty(name = "usuarios.json.desde-bson", defaultValue = "false")
+    boolean jsonDesdeBson;
+
     @GET
-    @Operation(summary = "Obtener todos los usuarios", description = "Retorna la lista completa de usuarios activos")
-    @APIResponse(responseCode = "200", description = "Lista de usuarios obtenida exitosamente",
+    @Operation(summary = "Obtener usuarios paginados",
+               description = "Retorna una página de usuarios activos ordenados por ID. El cursor de la página siguiente "
+                       + "se devuelve en las cabeceras X-Next-Cursor y Link")
+    @APIResponse(responseCode = "200", description = "Página de usuarios obtenida exitosamente",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = Usuario.class)))
-    public Multi<Usuario> obtenerTodos() {
-        LOG.debug("GET /api/usuarios - Obteniendo todos los usuarios");
-        return usuarioService.obtenerTodos();
+    @APIResponse(responseCode = "400", description = "Cursor o límite inválido")
+    public Uni<Response> obtenerTodos(
+            @Parameter(description = "ID del último usuario de la página anterior")
+            @QueryParam("after") String after,
+            @Parameter(description = "Número máximo de usuarios a retornar")
+            @QueryParam("limit") Integer limit,
+            @Parameter(description = "Campos a incluir separados por comas (id, nombre, email, telefono, activo, "
+                    + "fechaCreacion, fechaActualizacion); el id se incluye siempre")
+            @QueryParam("fields") String fields,
+            @Parameter(description = "Token X-Consistencia-Token de una escritura anterior: la lectura la incluye "
+                    + "aunque se sirva desde un secundario")
+            @HeaderParam(CABECERA_CONSISTENCIA) String token,
+            @Context UriInfo uriInfo) {
+
+        LOG.debugf("GET /api/usuarios?after=%s&limit=%s&fields=%s - Obteniendo usuarios", after, limit, fields);
+
+        Uni<Response> respuesta = jsonDesdeBson && fields == null
+                ? usuarioService.obtenerTodosSinDecodificar(after, limit, token)
+                        .map(pagina -> respuestaPagina(EscritorJsonUsuario.escribir(pagina.usuarios),
+                                                       pagina.siguienteCursor, uriInfo))
+                // Un campo no permitido falla con IllegalArgumentException y se responde con 400
+                : Uni.createFrom().deferred(() -> 
+                        usuarioService.obtenerTodos(after, limit, ProyeccionUsuario.de(fields), token))
+                        .map(pagina -> respuestaPagina(pagina.usuarios, pagina.siguienteCursor, uriInfo));
+
+        return respuesta
+                .onFailure(UsuarioController::tieneRespuesta).recoverWithItem(UsuarioController::respuestaError);
+    }
+
+    private static Response respuestaPagina(Object usuarios, String siguienteCursor, UriInfo uriInfo) {
+        Response.ResponseBuilder response = Response.ok(usuarios);
+        if (siguienteCursor != null) {
+            response.header("X-Next-Cursor", siguienteCursor)
+                    .link(uriInfo.getRequestUriBuilder()
+                                 .replaceQueryParam("after", siguienteCursor)
+                                 .build(), "next");
+        }
+        return response.build();
+    }
+
+    @GET
+    @Path("/stream")
+    @Produces(RestMediaType.APPLICATION_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Transmitir usuarios", description = "Transmite todos los usuarios activos como NDJSON respetando la contrapresión del cliente")
+    @APIResponse(responseCode = "200", description = "Flujo de usuarios",
+                content = @Content(mediaType = RestMediaType.APPLICATION_NDJSON, schema = @Schema(implementation = Usuario.class)))
+    public Multi<Usuario> streamTodos(
+            @Parameter(description = "ID a partir del cual continuar la transmisión")
+            @QueryParam("after") String after) {
+
+        LOG.debugf("GET /api/usuarios/stream?after=%s - Transmitiendo usuarios", after);
+
+        if (after != null && !ObjectId.isValid(after)) {
+            return Multi.createFrom().failure(new BadRequestException("Cursor de paginación inválido"));
+        }
+
+        return usuarioService.streamTodos(after);
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    @Operation(summary = "Exportar usuarios",
+               description = "Transmite todos los usuarios, también los desactivados, ordenados por fechaActualizacion e ID, "
+                       + "como NDJSON o CSV. Con since sólo los modificados desde esa fecha; para continuar una exportación "
+                       + "interrumpida se pasan la fechaActualizacion y el id del último usuario recibido en since y after. "
+                       + "Se comprime con gzip si el cliente lo acepta")
+    @APIResponse(responseCode = "200", description = "Flujo de usuarios",
+                content = {@Content(mediaType = RestMediaType.APPLICATION_NDJSON, schema = @Schema(implementation = Usuario.class)),
+                           @Content(mediaType = TEXT_CSV)})
+    @APIResponse(responseCode = "400", description = "Formato, fecha o cursor inválido")
+    @APIResponse(responseCode = "503", description = "Demasiadas exportaciones en curso")
+    public Multi<Buffer> exportar(
+            @Parameter(description = "Formato de salida: ndjson o csv")
+            @QueryParam("format") @DefaultValue("ndjson") String format,
+            @Parameter(description = "fechaActualizacion mínima en UTC (ISO, p. ej. 2024-01-31T10:15:30)")
+            @QueryParam("since") String since,
+            @Parameter(description = "ID del último usuario recibido con fechaActualizacion igual a since")
+            @QueryParam("after") String after,
+            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
+
+        LOG.debugf("GET /api/usuarios/export?format=%s&since=%s&after=%s - Exportando usuarios", format, since, after);
+
+        FormatoExportacion formato;
+        try {
+            formato = FormatoExportacion.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Multi.createFrom().failure(new BadRequestException("El parámetro 'format' debe ser 'ndjson' o 'csv'"));
+        }
+        boolean gzip = aceptaGzip(acceptEncoding);
+
+        Multi<Buffer> exportacion = exportacionUsuariosService.exportar(formato, since, after, gzip)
+                .onFailure(IllegalArgumentException.class)
+                .transform(throwable -> new BadRequestException(throwable.getMessage()))
+                .onFailure(ExportacionRechazadaException.class)
+                .transform(throwable -> new WebApplicationException(
+                        Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, REINTENTO_EXPORTACION_SEGUNDOS)
+                                .type(MediaType.APPLICATION_JSON_TYPE)
+                                .entity(new ErrorResponse(throwable.getMessage())).build()));
+
+        RestMulti.SyncRestMulti.Builder<Buffer> respuesta = RestMulti.fromMultiData(exportacion)
+                .header(HttpHeaders.CONTENT_TYPE, formato == FormatoExportacion.CSV
+                        ? TEXT_CSV + ";charset=UTF-8"
+                        : RestMediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return respuesta.build();
+    }
+
+    // gzip, salvo que venga con q=0
+    static boolean aceptaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String codificacion : acceptEncoding.split(",")) {
+            String[] partes = codificacion.trim().split(";");
+            if (partes[0].trim().equalsIgnoreCase("gzip")) {
+                return partes.length < 2 || !partes[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    @GET
+    @Path("/changes")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Feed de cambios de usuarios",
+               description = "Emite como Server-Sent Events las altas, modificaciones y desactivaciones de usuarios. "
+                       + "El id de cada evento es un token de reanudación: al reconectar con Last-Event-ID o "
+                       + "resumeAfter se reciben los cambios perdidos")
+    @APIResponse(responseCode = "200", description = "Flujo de eventos de cambio",
+                content = @Content(mediaType = MediaType.SERVER_SENT_EVENTS, schema = @Schema(implementation = EventoUsuario.class)))
+    @APIResponse(responseCode = "503", description = "Token anterior al historial y sin change streams dedicados libres")
+    public Multi<OutboundSseEvent> observarCambios(
+            @Parameter(description = "Token del último evento recibido")
+            @HeaderParam("Last-Event-ID") String lastEventId,
+            @Parameter(description = "Token del último evento recibido (alternativa a Last-Event-ID)")
+            @QueryParam("resumeAfter") String resumeAfter,
+            @Context Sse sse) {
+
+        String token = resumeAfter != null ? resumeAfter : lastEventId;
+        LOG.debugf("GET /api/usuarios/changes?resumeAfter=%s - Observando cambios", token);
+
+        return observar(token)
+                .map(evento -> sse.newEventBuilder()
+                        .id(evento.token)
+                        .name(evento.tipo.name().toLowerCase(Locale.ROOT))
+                        .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                        .data(evento)
+                        .build());
+    }
+
+    @GET
+    @Path("/changes")
+    @Produces(RestMediaType.APPLICATION_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Feed de cambios de usuarios (NDJSON)",
+               description = "Igual que el feed SSE pero como NDJSON; el campo token de cada evento sirve para resumeAfter")
+    @APIResponse(responseCode = "200", description = "Flujo de eventos de cambio",
+                content = @Content(mediaType = RestMediaType.APPLICATION_NDJSON, schema = @Schema(implementation = EventoUsuario.class)))
+    @APIResponse(responseCode = "503", description = "Token anterior al historial y sin change streams dedicados libres")
+    public Multi<EventoUsuario> observarCambiosNdjson(
+            @Parameter(description = "Token del último evento recibido")
+            @QueryParam("resumeAfter") String resumeAfter) {
+
+        LOG.debugf("GET /api/usuarios/changes?resumeAfter=%s - Observando cambios (NDJSON)", resumeAfter);
+
+        return observar(resumeAfter);
+    }
+
+    private Multi<EventoUsuario> observar(String token) {
+        return cambiosUsuariosService.observar(token)
+                .onFailure(ReanudacionRechazadaException.class)
+                .transform(throwable -> new WebApplicationException(
+                        Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, REINTENTO_REANUDACION_SEGUNDOS)
+                                .type(MediaType.APPLICATION_JSON_TYPE)
+                                .entity(new ErrorResponse(throwable.getMessage())).build()));
     }
 
     @GET
@@ -43,24 +301,34 @@ public class UsuarioController {
     @Operation(summary = "Obtener usuario por ID", description = "Retorna un usuario específico por su ID")
     @APIResponse(responseCode = "200", description = "Usuario encontrado",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = Usuario.class)))
+    @APIResponse(responseCode = "304", description = "El usuario no ha cambiado desde la ETag de If-None-Match")
     @APIResponse(responseCode = "404", description = "Usuario no encontrado")
     @APIResponse(responseCode = "400", description = "ID inválido")
     public Uni<Response> obtenerPorId(
             @Parameter(description = "ID del usuario", required = true)
-            @PathParam("id") String id) {
+            @PathParam("id") String id,
+            @Parameter(description = "Campos a incluir separados por comas (id, nombre, email, telefono, activo, "
+                    + "fechaCreacion, fechaActualizacion); el id se incluye siempre")
+            @QueryParam("fields") String fields,
+            @Parameter(description = "ETag de una respuesta anterior: si el usuario no ha cambiado responde 304")
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
         
         LOG.debugf("GET /api/usuarios/%s - Obteniendo usuario por ID", id);
         
-        return usuarioService.obtenerPorId(id)
-                .map(usuario -> Response.ok(usuario).build())
-                .onFailure(IllegalArgumentException.class)
-                .recoverWithItem(throwable -> 
-                    Response.status(Response.Status.BAD_REQUEST)
-                           .entity(new ErrorResponse(throwable.getMessage())).build())
-                .onFailure(RuntimeException.class)
-                .recoverWithItem(throwable -> 
-                    Response.status(Response.Status.NOT_FOUND)
-                           .entity(new ErrorResponse(throwable.getMessage())).build());
+        return Uni.createFrom().deferred(() -> {
+                    ProyeccionUsuario proyeccion = ProyeccionUsuario.de(fields);
+                    if (ifNoneMatch == null) {
+                        return usuarioConEtag(id, proyeccion);
+                    }
+                    // La versión se compara sin cargar el documento completo
+                    return usuarioService.obtenerVersion(id).flatMap(version -> {
+                        String etag = EtagUsuario.de(new ObjectId(id), version);
+                        return EtagUsuario.coincideAlguna(ifNoneMatch, etag)
+                                ? Uni.createFrom().item(Response.notModified().header(HttpHeaders.ETAG, etag).build())
+                                : conEtag(usuarioService.obtenerPorId(id, version), proyeccion);
+                    });
+                })
+                .onFailure(UsuarioController::tieneRespuesta).recoverWithItem(UsuarioController::respuestaError);
     }
 
     @POST
@@ -72,17 +340,32 @@ public class UsuarioController {
     public Uni<Response> crear(@Valid Usuario usuario) {
         LOG.debugf("POST /api/usuarios - Creando usuario: %s", usuario.email);
         
-        return usuarioService.crear(usuario)
-                .map(usuarioCreado -> Response.status(Response.Status.CREATED)
-                                            .entity(usuarioCreado).build())
-                .onFailure(IllegalArgumentException.class)
-                .recoverWithItem(throwable -> 
-                    Response.status(Response.Status.CONFLICT)
-                           .entity(new ErrorResponse(throwable.getMessage())).build())
-                .onFailure()
-                .recoverWithItem(throwable -> 
-                    Response.status(Response.Status.BAD_REQUEST)
-                           .entity(new ErrorResponse("Error al crear usuario")).build());
+        return usuarioService.crearConToken(usuario)
+                .map(escritura -> conToken(Response.status(Response.Status.CREATED)
+                                                   .entity(escritura.valor)
+                                                   .header(HttpHeaders.ETAG, EtagUsuario.de(escritura.valor.id,
+                                                           escritura.valor.fechaActualizacion)),
+                                           escritura.token))
+                .onFailure(UsuarioController::tieneRespuesta).recoverWithItem(UsuarioController::respuestaError);
+    }
+
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, RestMediaType.APPLICATION_NDJSON})
+    @Operation(summary = "Importar usuarios en lote",
+               description = "Crea usuarios a partir de un array JSON o de un cuerpo NDJSON, procesándolos en lotes acotados")
+    @APIResponse(responseCode = "200", description = "Resultado por usuario: CREADO, CONFLICTO o INVALIDO",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResultadoImportacion.class)))
+    @Blocking
+    public Multi<ResultadoImportacion> importar(InputStream cuerpo) {
+        LOG.debug("POST /api/usuarios/batch - Importando usuarios");
+
+        // @Blocking ya suscribe en un worker; sólo los lotes siguientes, que se piden al terminar
+        // una inserción o una escritura de la respuesta, llegan desde el event loop
+        Multi<ElementoImportacion> usuarios = Multi.createFrom().<ElementoImportacion>iterable(() -> leerUsuarios(cuerpo))
+                .runSubscriptionOn(FUERA_DEL_EVENT_LOOP);
+
+        return usuarioService.importar(usuarios);
     }
 
     @PUT
@@ -93,29 +376,28 @@ public class UsuarioController {
     @APIResponse(responseCode = "400", description = "Datos inválidos")
     @APIResponse(responseCode = "404", description = "Usuario no encontrado")
     @APIResponse(responseCode = "409", description = "El email ya existe")
+    @APIResponse(responseCode = "412", description = "El usuario ha cambiado: la ETag de If-Match no es la actual")
     public Uni<Response> actualizar(
             @Parameter(description = "ID del usuario", required = true)
             @PathParam("id") String id,
+            @Parameter(description = "ETag de la versión leída: sólo se actualiza si sigue siendo la actual")
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
             @Valid Usuario usuario) {
         
         LOG.debugf("PUT /api/usuarios/%s - Actualizando usuario", id);
         
-        return usuarioService.actualizar(id, usuario)
-                .map(usuarioActualizado -> Response.ok(usuarioActualizado).build())
-                .onFailure(IllegalArgumentException.class)
-                .recoverWithItem(throwable -> {
-                    if (throwable.getMessage().contains("ID")) {
-                        return Response.status(Response.Status.BAD_REQUEST)
-                                     .entity(new ErrorResponse(throwable.getMessage())).build();
-                    } else {
-                        return Response.status(Response.Status.CONFLICT)
-                                     .entity(new ErrorResponse(throwable.getMessage())).build();
-                    }
-                })
-                .onFailure(RuntimeException.class)
+        return usuarioService.actualizarConToken(id, usuario, ifMatch)
+                .map(escritura -> conToken(Response.ok(escritura.valor)
+                                                   .header(HttpHeaders.ETAG, EtagUsuario.de(escritura.valor.id,
+                                                           escritura.valor.fechaActualizacion)),
+                                           escritura.token))
+                .onFailure(VersionNoCoincideException.class)
                 .recoverWithItem(throwable -> 
-                    Response.status(Response.Status.NOT_FOUND)
-                           .entity(new ErrorResponse(throwable.getMessage())).build());
+                    Response.status(Response.Status.PRECONDITION_FAILED)
+                           .header(HttpHeaders.ETAG, EtagUsuario.de(new ObjectId(id),
+                                   ((VersionNoCoincideException) throwable).versionActual))
+                           .entity(new ErrorResponse(throwable.getMessage())).build())
+                .onFailure(UsuarioController::tieneRespuesta).recoverWithItem(UsuarioController::respuestaError);
     }
 
     @DELETE
@@ -130,45 +412,200 @@ public class UsuarioController {
         
         LOG.debugf("DELETE /api/usuarios/%s - Eliminando usuario", id);
         
-        return usuarioService.eliminar(id)
-                .map(eliminado -> Response.ok(new SuccessResponse("Usuario eliminado exitosamente")).build())
-                .onFailure(IllegalArgumentException.class)
-                .recoverWithItem(throwable -> 
-                    Response.status(Response.Status.BAD_REQUEST)
-                           .entity(new ErrorResponse(throwable.getMessage())).build())
-                .onFailure(RuntimeException.class)
-                .recoverWithItem(throwable -> 
-                    Response.status(Response.Status.NOT_FOUND)
-                           .entity(new ErrorResponse(throwable.getMessage())).build());
+        return usuarioService.eliminarConToken(id)
+                .map(escritura -> conToken(Response.ok(new SuccessResponse("Usuario eliminado exitosamente")),
+                                           escritura.token))
+                .onFailure(UsuarioController::tieneRespuesta).recoverWithItem(UsuarioController::respuestaError);
     }
 
     @GET
     @Path("/buscar")
-    @Operation(summary = "Buscar usuarios por nombre", description = "Busca usuarios que contengan el texto en el nombre")
+    @Operation(summary = "Buscar usuarios por nombre",
+               description = "Busca usuarios cuyo nombre empiece por o contenga el texto, sin distinguir mayúsculas ni acentos. "
+                       + "Los resultados se ordenan por relevancia")
     @APIResponse(responseCode = "200", description = "Búsqueda completada",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = Usuario.class)))
-    public Multi<Usuario> buscarPorNombre(
+    public Uni<Response> buscarPorNombre(
             @Parameter(description = "Texto a buscar en el nombre", required = true)
-            @QueryParam("nombre") String nombre) {
+            @QueryParam("nombre") String nombre,
+            @Parameter(description = "Modo de búsqueda: prefijo o contiene")
+            @QueryParam("modo") @DefaultValue("contiene") String modo,
+            @Parameter(description = "Número máximo de resultados")
+            @QueryParam("limit") Integer limit,
+            @Parameter(description = "Campos a incluir separados por comas (id, nombre, email, telefono, activo, "
+                    + "fechaCreacion, fechaActualizacion); el id se incluye siempre")
+            @QueryParam("fields") String fields,
+            @Parameter(description = "Token X-Consistencia-Token de una escritura anterior: la lectura la incluye "
+                    + "aunque se sirva desde un secundario")
+            @HeaderParam(CABECERA_CONSISTENCIA) String token) {
         
-        LOG.debugf("GET /api/usuarios/buscar?nombre=%s - Buscando usuarios", nombre);
+        LOG.debugf("GET /api/usuarios/buscar?nombre=%s&modo=%s - Buscando usuarios", nombre, modo);
         
         if (nombre == null || nombre.trim().isEmpty()) {
-            return Multi.createFrom().failure(new BadRequestException("El parámetro 'nombre' es obligatorio"));
+            return Uni.createFrom().failure(new BadRequestException("El parámetro 'nombre' es obligatorio"));
+        }
+
+        ModoBusqueda modoBusqueda;
+        try {
+            modoBusqueda = ModoBusqueda.valueOf(modo.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(new BadRequestException("El parámetro 'modo' debe ser 'prefijo' o 'contiene'"));
+        }
+
+        if (limit != null && limit < 1) {
+            return Uni.createFrom().failure(new BadRequestException("El parámetro 'limit' debe ser mayor que cero"));
+        }
+
+        ProyeccionUsuario proyeccion;
+        try {
+            proyeccion = ProyeccionUsuario.de(fields);
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(new BadRequestException(e.getMessage()));
         }
         
-        return usuarioService.buscarPorNombre(nombre.trim());
+        Uni<Response> respuesta = jsonDesdeBson && proyeccion == null
+                ? usuarioService.buscarPorNombreSinDecodificar(nombre.trim(), modoBusqueda, limit, token)
+                        .collect().asList()
+                        .map(documentos -> Response.ok(EscritorJsonUsuario.escribir(documentos)).build())
+                : usuarioService.buscarPorNombre(nombre.trim(), modoBusqueda, limit, proyeccion, token)
+                        .collect().asList()
+                        .map(usuarios -> Response.ok(usuarios).build());
+
+        // Token de consistencia inválido: 400
+        return respuesta
+                .onFailure(UsuarioController::tieneRespuesta).recoverWithItem(UsuarioController::respuestaError);
     }
 
     @GET
     @Path("/count")
-    @Operation(summary = "Contar usuarios", description = "Retorna el número total de usuarios activos")
+    @Operation(summary = "Contar usuarios",
+               description = "Retorna el número de usuarios activos desde un contador mantenido en memoria. "
+                       + "Con exact=true cuenta directamente en MongoDB")
     @APIResponse(responseCode = "200", description = "Conteo obtenido exitosamente")
-    public Uni<Response> contarUsuarios() {
-        LOG.debug("GET /api/usuarios/count - Contando usuarios");
+    public Uni<Response> contarUsuarios(
+            @Parameter(description = "Contar en MongoDB en lugar de usar el contador incremental")
+            @QueryParam("exact") @DefaultValue("false") boolean exact,
+            @Parameter(description = "Token X-Consistencia-Token de una escritura anterior (sólo con exact=true)")
+            @HeaderParam(CABECERA_CONSISTENCIA) String token) {
+        LOG.debugf("GET /api/usuarios/count?exact=%s - Contando usuarios", exact);
         
-        return usuarioService.contarUsuarios()
-                .map(count -> Response.ok(new CountResponse(count)).build());
+        return usuarioService.contarUsuarios(exact, token)
+                .map(conteo -> Response.ok(new CountResponse(conteo)).build())
+                .onFailure(UsuarioController::tieneRespuesta).recoverWithItem(UsuarioController::respuestaError);
+    }
+
+    static boolean tieneRespuesta(Throwable throwable) {
+        return respuestaError(throwable) != null;
+    }
+
+    /**
+     * Código HTTP de los fallos esperados del servicio, o null si no es ninguno y debe propagarse
+     * como 500. Un timeout o un error de conexión de MongoDB no es culpa del cliente: se responde
+     * con 503 y Retry-After, y como error de servidor lo cuenta también el limitador de concurrencia.
+     */
+    static Response respuestaError(Throwable throwable) {
+        if (throwable instanceof UsuarioNoEncontradoException) {
+            return error(Response.Status.NOT_FOUND, throwable.getMessage());
+        }
+        // Antes que IllegalArgumentException, de la que es subclase
+        if (throwable instanceof EmailDuplicadoException) {
+            return error(Response.Status.CONFLICT, throwable.getMessage());
+        }
+        if (throwable instanceof IllegalArgumentException || throwable instanceof ConstraintViolationException) {
+            return error(Response.Status.BAD_REQUEST, throwable.getMessage());
+        }
+        if (throwable instanceof MongoTimeoutException || throwable instanceof MongoExecutionTimeoutException
+                || throwable instanceof MongoSocketException) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, REINTENTO_MONGO_SEGUNDOS)
+                    .entity(new ErrorResponse("MongoDB no responde, reintente más tarde")).build();
+        }
+        return null;
+    }
+
+    private static Response error(Response.Status estado, String mensaje) {
+        return Response.status(estado).entity(new ErrorResponse(mensaje)).build();
+    }
+
+    private Uni<Response> usuarioConEtag(String id, ProyeccionUsuario proyeccion) {
+        return conEtag(usuarioService.obtenerPorId(id), proyeccion);
+    }
+
+    // El usuario completo sale de la caché: la proyección se aplica en memoria y la ETag es la misma
+    private static Uni<Response> conEtag(Uni<Usuario> lectura, ProyeccionUsuario proyeccion) {
+        return lectura
+                .map(usuario -> Response.ok(proyeccion != null ? proyeccion.vista(usuario) : usuario)
+                                        .header(HttpHeaders.ETAG, EtagUsuario.de(usuario.id, usuario.fechaActualizacion))
+                                        .build());
+    }
+
+    // Sin token si MongoDB no admite sesiones causales (servidor standalone)
+    private static Response conToken(Response.ResponseBuilder response, String token) {
+        if (token != null) {
+            response.header(CABECERA_CONSISTENCIA, token);
+        }
+        return response.build();
+    }
+
+    // Acepta tanto un array JSON como una secuencia NDJSON sin cargar el cuerpo completo
+    private Iterator<ElementoImportacion> leerUsuarios(InputStream cuerpo) {
+        try {
+            return new LectorImportacion(objectMapper.readerFor(Usuario.class).readValues(cuerpo));
+        } catch (IOException e) {
+            throw new BadRequestException("Cuerpo de importación inválido", e);
+        }
+    }
+
+    /**
+     * Los errores de un elemento llegan cuando la respuesta ya ha empezado con 200, así que se
+     * devuelven como un elemento ilegible en su posición. Un valor que no encaja en Usuario sólo
+     * invalida ese elemento; con JSON mal formado no se sabe dónde empieza el siguiente y la
+     * lectura termina ahí.
+     */
+    static class LectorImportacion implements Iterator<ElementoImportacion> {
+
+        private final MappingIterator<Usuario> usuarios;
+        private ElementoImportacion siguiente;
+        private boolean terminado;
+
+        LectorImportacion(MappingIterator<Usuario> usuarios) {
+            this.usuarios = usuarios;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (siguiente == null && !terminado) {
+                siguiente = leer();
+            }
+            return siguiente != null;
+        }
+
+        @Override
+        public ElementoImportacion next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ElementoImportacion elemento = siguiente;
+            siguiente = null;
+            return elemento;
+        }
+
+        private ElementoImportacion leer() {
+            try {
+                if (!usuarios.hasNextValue()) {
+                    terminado = true;
+                    return null;
+                }
+                return ElementoImportacion.leido(usuarios.nextValue());
+            } catch (JsonMappingException e) {
+                // El iterador salta el resto del elemento en la siguiente lectura
+                return ElementoImportacion.ilegible("Usuario ilegible: " + e.getOriginalMessage());
+            } catch (IOException e) {
+                terminado = true;
+                return ElementoImportacion.ilegible("JSON mal formado, se descarta el resto del cuerpo: "
+                        + (e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage()));
+            }
+        }
     }
 
     // Clases auxiliares para las respuestas
@@ -195,9 +632,14 @@ public class UsuarioController {
     public static class CountResponse {
         public long count;
         public long timestamp;
+        // Antigüedad del valor respecto a la última sincronización con MongoDB
+        public long ageMs;
+        public boolean exact;
 
-        public CountResponse(long count) {
-            this.count = count;
+        public CountResponse(ConteoUsuarios conteo) {
+            this.count = conteo.valor;
+            this.ageMs = conteo.edadMs;
+            this.exact = conteo.exacto;
             this.timestamp = System.currentTimeMillis();
         }
     }
@@ -0,0 +1,179 @@
+package com.example.controller;
+
+import com.example.controller.UsuarioController.CountResponse;
+import com.example.controller.UsuarioController.SuccessResponse;
+import com.example.model.ModoBusqueda;
+import com.example.model.PaginaUsuarios;
+import com.example.model.Usuario;
+import com.example.service.UsuarioServiceBloqueante;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.logging.Logger;
+
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Los endpoints principales de /api/usuarios en estilo imperativo sobre hilos virtuales, para
+ * comparar ambos modelos con la misma carga (ver EscenarioCargaUsuarios). Sólo existe si se
+ * construye con usuarios.hilos-virtuales.habilitado=true, y entonces la aplicación debe construirse
+ * y ejecutarse con JDK 21 o posterior: Quarkus rechaza @RunOnVirtualThread en JDK anteriores.
+ */
+@Path("/api/hilos-virtuales/usuarios")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@Tag(name = "Usuarios (hilos virtuales)", description = "Operaciones CRUD para usuarios en hilos virtuales")
+@IfBuildProperty(name = "usuarios.hilos-virtuales.habilitado", stringValue = "true")
+public class UsuarioHilosVirtualesController {
+
+    private static final Logger LOG = Logger.getLogger(UsuarioHilosVirtualesController.class);
+
+    @Inject
+    UsuarioServiceBloqueante usuarioService;
+
+    @GET
+    @RunOnVirtualThread
+    @Operation(summary = "Obtener usuarios paginados")
+    public Response obtenerTodos(
+            @Parameter(description = "ID del último usuario de la página anterior")
+            @QueryParam("after") String after,
+            @Parameter(description = "Número máximo de usuarios a retornar")
+            @QueryParam("limit") Integer limit,
+            @Context UriInfo uriInfo) {
+
+        LOG.debugf("GET /api/hilos-virtuales/usuarios?after=%s&limit=%s - Obteniendo usuarios", after, limit);
+
+        return responder(() -> {
+            PaginaUsuarios<Usuario> pagina = usuarioService.obtenerTodos(after, limit);
+            Response.ResponseBuilder response = Response.ok(pagina.usuarios);
+            if (pagina.siguienteCursor != null) {
+                response.header("X-Next-Cursor", pagina.siguienteCursor)
+                        .link(uriInfo.getRequestUriBuilder()
+                                     .replaceQueryParam("after", pagina.siguienteCursor)
+                                     .build(), "next");
+            }
+            return response.build();
+        });
+    }
+
+    @GET
+    @Path("/{id}")
+    @RunOnVirtualThread
+    @Operation(summary = "Obtener usuario por ID")
+    public Response obtenerPorId(
+            @Parameter(description = "ID del usuario", required = true)
+            @PathParam("id") String id) {
+
+        LOG.debugf("GET /api/hilos-virtuales/usuarios/%s - Obteniendo usuario por ID", id);
+
+        return responder(() -> Response.ok(usuarioService.obtenerPorId(id)).build());
+    }
+
+    @POST
+    @RunOnVirtualThread
+    @Operation(summary = "Crear nuevo usuario")
+    public Response crear(@Valid Usuario usuario) {
+        LOG.debugf("POST /api/hilos-virtuales/usuarios - Creando usuario: %s", usuario.email);
+
+        return responder(() -> Response.status(Response.Status.CREATED)
+                .entity(usuarioService.crear(usuario)).build());
+    }
+
+    @PUT
+    @Path("/{id}")
+    @RunOnVirtualThread
+    @Operation(summary = "Actualizar usuario")
+    public Response actualizar(
+            @Parameter(description = "ID del usuario", required = true)
+            @PathParam("id") String id,
+            @Valid Usuario usuario) {
+
+        LOG.debugf("PUT /api/hilos-virtuales/usuarios/%s - Actualizando usuario", id);
+
+        return responder(() -> Response.ok(usuarioService.actualizar(id, usuario)).build());
+    }
+
+    @DELETE
+    @Path("/{id}")
+    @RunOnVirtualThread
+    @Operation(summary = "Eliminar usuario")
+    public Response eliminar(
+            @Parameter(description = "ID del usuario", required = true)
+            @PathParam("id") String id) {
+
+        LOG.debugf("DELETE /api/hilos-virtuales/usuarios/%s - Eliminando usuario", id);
+
+        return responder(() -> {
+            usuarioService.eliminar(id);
+            return Response.ok(new SuccessResponse("Usuario eliminado exitosamente")).build();
+        });
+    }
+
+    @GET
+    @Path("/buscar")
+    @RunOnVirtualThread
+    @Operation(summary = "Buscar usuarios por nombre")
+    public Response buscarPorNombre(
+            @Parameter(description = "Texto a buscar en el nombre", required = true)
+            @QueryParam("nombre") String nombre,
+            @Parameter(description = "Modo de búsqueda: prefijo o contiene")
+            @QueryParam("modo") @DefaultValue("contiene") String modo,
+            @Parameter(description = "Número máximo de resultados")
+            @QueryParam("limit") Integer limit) {
+
+        LOG.debugf("GET /api/hilos-virtuales/usuarios/buscar?nombre=%s&modo=%s - Buscando usuarios", nombre, modo);
+
+        if (nombre == null || nombre.trim().isEmpty()) {
+            throw new BadRequestException("El parámetro 'nombre' es obligatorio");
+        }
+
+        ModoBusqueda modoBusqueda;
+        try {
+            modoBusqueda = ModoBusqueda.valueOf(modo.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("El parámetro 'modo' debe ser 'prefijo' o 'contiene'");
+        }
+
+        if (limit != null && limit < 1) {
+            throw new BadRequestException("El parámetro 'limit' debe ser mayor que cero");
+        }
+
+        return Response.ok(usuarioService.buscarPorNombre(nombre.trim(), modoBusqueda, limit)).build();
+    }
+
+    @GET
+    @Path("/count")
+    @RunOnVirtualThread
+    @Operation(summary = "Contar usuarios")
+    public Response contarUsuarios(
+            @Parameter(description = "Contar en MongoDB en lugar de usar el contador incremental")
+            @QueryParam("exact") @DefaultValue("false") boolean exact) {
+
+        LOG.debugf("GET /api/hilos-virtuales/usuarios/count?exact=%s - Contando usuarios", exact);
+
+        return Response.ok(new CountResponse(usuarioService.contarUsuarios(exact))).build();
+    }
+
+    // Mismos códigos que UsuarioController; el resto de fallos se propaga como 500
+    private static Response responder(Supplier<Response> operacion) {
+        try {
+            return operacion.get();
+        } catch (RuntimeException e) {
+            Response respuesta = UsuarioController.respuestaError(e);
+            if (respuesta == null) {
+                throw e;
+            }
+            return respuesta;
+        }
+    }
+}
@@ -1,59 +1,171 @@
 package com.example.health;
 
-import com.mongodb.reactivestreams.client.MongoClient;
-import org.eclipse.microprofile.health.HealthCheck;
+import com.example.metricas.MetricasMongo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.mongodb.reactive.ReactiveMongoClient;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.health.api.AsyncHealthCheck;
+import io.smallrye.mutiny.Uni;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
 import org.eclipse.microprofile.health.Readiness;
+import org.jboss.logging.Logger;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import java.util.concurrent.CompletableFuture;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Readiness de MongoDB. Un sondeo periódico hace ping y guarda el último resultado; las sondas de
+ * Kubernetes sólo leen ese resultado, así que no ocupan hilos ni generan tráfico adicional hacia
+ * MongoDB por muchas que lleguen. La instancia deja de estar lista si el ping falla o si la
+ * latencia del ping o la espera media por una conexión del pool superan sus umbrales, para que
+ * el balanceador deje de enviarle tráfico antes de que las peticiones empiecen a expirar.
+ */
 @Readiness
 @ApplicationScoped
-public class MongoHealthCheck implements HealthCheck {
+public class MongoHealthCheck implements AsyncHealthCheck {
+
+    private static final Logger LOG = Logger.getLogger(MongoHealthCheck.class);
+
+    private static final String NOMBRE = "MongoDB connection health check";
+
+    private static final Document PING = new Document("ping", 1);
 
     @Inject
-    MongoClient mongoClient;
+    ReactiveMongoClient mongoClient;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "salud.mongo.intervalo", defaultValue = "5s")
+    Duration intervalo;
+
+    @ConfigProperty(name = "salud.mongo.timeout", defaultValue = "2s")
+    Duration timeout;
+
+    @ConfigProperty(name = "salud.mongo.latencia-maxima", defaultValue = "500ms")
+    Duration latenciaMaxima;
+
+    @ConfigProperty(name = "salud.mongo.espera-pool-maxima", defaultValue = "200ms")
+    Duration esperaPoolMaxima;
+
+    private volatile Sondeo ultimo;
+
+    // Totales del timer de checkout en el sondeo anterior, para calcular la espera del intervalo
+    private long checkoutsPrevios;
+    private double esperaPreviaNanos;
 
     @Override
-    public HealthCheckResponse call() {
-        try {
-            // Crear un CompletableFuture para manejar el resultado
-            CompletableFuture<org.bson.Document> future = new CompletableFuture<>();
-
-            // Ejecutar el comando ping
-            mongoClient.getDatabase("admin")
-                    .runCommand(org.bson.Document.parse("{ping: 1}"))
-                    .subscribe(new org.reactivestreams.Subscriber<org.bson.Document>() {
-                        @Override
-                        public void onSubscribe(org.reactivestreams.Subscription s) {
-                            s.request(1);
-                        }
-
-                        @Override
-                        public void onNext(org.bson.Document document) {
-                            future.complete(document);
-                        }
-
-                        @Override
-                        public void onError(Throwable t) {
-                            future.completeExceptionally(t);
-                        }
-
-                        @Override
-                        public void onComplete() {
-                            // Ya se completó en onNext
-                        }
-                    });
-
-            // Esperar el resultado con timeout
-            future.get(5, TimeUnit.SECONDS);
-
-            return HealthCheckResponse.up("MongoDB connection health check");
-        } catch (Exception e) {
-            return HealthCheckResponse.down("MongoDB connection health check");
-        }
-    }
-}
\ No newline at end of file
+    public Uni<HealthCheckResponse> call() {
+        Sondeo sondeo = ultimo;
+        if (sondeo == null) {
+            // Aún no ha terminado el primer sondeo programado
+            return sondear().map(this::respuesta);
+        }
+        return Uni.createFrom().item(respuesta(sondeo));
+    }
+
+    @Scheduled(every = "{salud.mongo.intervalo}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> sondeoPeriodico() {
+        return sondear().replaceWithVoid();
+    }
+
+    Uni<Sondeo> sondear() {
+        return Uni.createFrom().deferred(() -> {
+            long inicio = System.nanoTime();
+            return mongoClient.getDatabase("admin").runCommand(PING)
+                    .ifNoItem().after(timeout)
+                        .failWith(() -> new TimeoutException("sin respuesta en " + timeout.toMillis() + " ms"))
+                    .map(respuesta -> new Sondeo(System.nanoTime() - inicio, esperaPoolNanos(), null))
+                    .onFailure().recoverWithItem(throwable ->
+                        new Sondeo(System.nanoTime() - inicio, esperaPoolNanos(), throwable));
+        }).invoke(this::registrar);
+    }
+
+    void registrar(Sondeo sondeo) {
+        Sondeo anterior = ultimo;
+        ultimo = sondeo;
+        String motivo = motivoCaida(sondeo);
+        String motivoAnterior = anterior != null ? motivoCaida(anterior) : null;
+        if (motivo != null && motivoAnterior == null) {
+            LOG.warnf("MongoDB deja de estar listo: %s", motivo);
+        } else if (motivo == null && motivoAnterior != null) {
+            LOG.info("MongoDB vuelve a estar listo");
+        }
+    }
+
+    // Espera media por conexión desde el sondeo anterior, incluidos los checkouts fallidos
+    private synchronized long esperaPoolNanos() {
+        long checkouts = 0;
+        double esperaNanos = 0;
+        for (Timer timer : registry.find(MetricasMongo.TIMER_CHECKOUT).timers()) {
+            checkouts += timer.count();
+            esperaNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        long nuevos = checkouts - checkoutsPrevios;
+        double espera = esperaNanos - esperaPreviaNanos;
+        checkoutsPrevios = checkouts;
+        esperaPreviaNanos = esperaNanos;
+        return nuevos > 0 ? (long) (espera / nuevos) : 0;
+    }
+
+    private String motivoCaida(Sondeo sondeo) {
+        if (sondeo.error != null) {
+            return "ping fallido (" + sondeo.error.getMessage() + ")";
+        }
+        if (sondeo.latenciaNanos > latenciaMaxima.toNanos()) {
+            return "latencia del ping de " + milis(sondeo.latenciaNanos) + " ms";
+        }
+        if (sondeo.esperaPoolNanos > esperaPoolMaxima.toNanos()) {
+            return "espera media del pool de " + milis(sondeo.esperaPoolNanos) + " ms";
+        }
+        // Si el planificador se detiene, el último resultado deja de ser representativo
+        long antiguedad = System.nanoTime() - sondeo.instante;
+        if (antiguedad > intervalo.multipliedBy(3).plus(timeout).toNanos()) {
+            return "sin sondeos desde hace " + milis(antiguedad) + " ms";
+        }
+        return null;
+    }
+
+    private HealthCheckResponse respuesta(Sondeo sondeo) {
+        String motivo = motivoCaida(sondeo);
+        HealthCheckResponseBuilder builder = HealthCheckResponse.named(NOMBRE)
+                .status(motivo == null)
+                .withData("latencia_ms", milis(sondeo.latenciaNanos))
+                .withData("espera_pool_ms", milis(sondeo.esperaPoolNanos))
+                .withData("antiguedad_ms", milis(System.nanoTime() - sondeo.instante));
+        if (motivo != null) {
+            builder.withData("motivo", motivo);
+        }
+        return builder.build();
+    }
+
+    private static long milis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    static final class Sondeo {
+
+        final long latenciaNanos;
+        final long esperaPoolNanos;
+        final Throwable error;
+        final long instante;
+
+        Sondeo(long latenciaNanos, long esperaPoolNanos, Throwable error) {
+            this(latenciaNanos, esperaPoolNanos, error, System.nanoTime());
+        }
+
+        Sondeo(long latenciaNanos, long esperaPoolNanos, Throwable error, long instante) {
+            this.latenciaNanos = latenciaNanos;
+            this.esperaPoolNanos = esperaPoolNanos;
+            this.error = error;
+            this.instante = instante;
+        }
+    }
+}
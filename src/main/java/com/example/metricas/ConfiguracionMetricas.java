@@ -0,0 +1,34 @@
+package com.example.metricas;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+import java.util.List;
+
+@Singleton
+public class ConfiguracionMetricas {
+
+    // Capas cuya latencia se publica como histograma para calcular percentiles en Prometheus
+    private static final List<String> PREFIJOS_HISTOGRAMA = List.of(
+            "http.server.requests", MetricasUsuarios.TIMER_OPERACIONES, "mongodb.driver.");
+
+    @Produces
+    @Singleton
+    MeterFilter histogramasDeLatencia() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (PREFIJOS_HISTOGRAMA.stream().noneMatch(id.getName()::startsWith)) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+}
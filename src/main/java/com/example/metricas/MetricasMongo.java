@@ -0,0 +1,75 @@
+package com.example.metricas;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import io.quarkus.mongodb.runtime.MongoClientCustomizer;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas del driver de MongoDB. Los gauges del pool (tamaño, conexiones en uso y peticiones en
+ * espera) los registra Quarkus con quarkus.mongodb.metrics.enabled; aquí se añaden el tiempo de
+ * cada comando por nombre y colección y el tiempo de espera para obtener una conexión del pool.
+ */
+@ApplicationScoped
+public class MetricasMongo {
+
+    public static final String TIMER_CHECKOUT = "mongodb.driver.pool.checkout";
+
+    @Inject
+    MeterRegistry registry;
+
+    // El cliente de Quarkus registra automáticamente los CommandListener disponibles como beans
+    @Produces
+    @Singleton
+    CommandListener comandosMongo() {
+        return new MongoMetricsCommandListener(registry);
+    }
+
+    @Produces
+    @Singleton
+    MongoClientCustomizer poolMongo() {
+        ConnectionPoolListener listener = new TiempoCheckout(registry);
+        return builder -> builder.applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(listener));
+    }
+
+    static class TiempoCheckout implements ConnectionPoolListener {
+
+        private final Timer exitosos;
+        private final MeterRegistry registry;
+
+        TiempoCheckout(MeterRegistry registry) {
+            this.registry = registry;
+            this.exitosos = timer(registry, "ok");
+        }
+
+        @Override
+        public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+            exitosos.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+
+        // Timeout del pool, pool cerrado o error al abrir la conexión
+        @Override
+        public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+            timer(registry, event.getReason().name().toLowerCase(Locale.ROOT))
+                    .record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+
+        private static Timer timer(MeterRegistry registry, String resultado) {
+            return Timer.builder(TIMER_CHECKOUT)
+                    .description("Tiempo de espera para obtener una conexión del pool de MongoDB")
+                    .tag("outcome", resultado)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.metricas;
+
+import com.example.service.EmailDuplicadoException;
+import com.example.service.ExportacionRechazadaException;
+import com.example.service.UsuarioNoEncontradoException;
+import com.example.service.VersionNoCoincideException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.validation.ConstraintViolationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Timer usuarios.operaciones por operación de UsuarioService, etiquetado con el resultado
+ * (ok, not_found, conflict, precondition_failed, invalid, rejected, error o cancelled). El tiempo
+ * se mide desde la suscripción hasta el resultado, de modo que incluye las esperas a MongoDB.
+ */
+@ApplicationScoped
+public class MetricasUsuarios {
+
+    static final String TIMER_OPERACIONES = "usuarios.operaciones";
+
+    static final String CONTADOR_CANDIDATOS_TRUNCADOS = "usuarios.busqueda.candidatos_truncados";
+
+    @Inject
+    MeterRegistry registry;
+
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public MetricasUsuarios() {
+    }
+
+    public MetricasUsuarios(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> Uni<T> medir(String operacion, Uni<T> uni) {
+        return Uni.createFrom().deferred(() -> {
+            long inicio = System.nanoTime();
+            return uni
+                    .onItemOrFailure().invoke((item, failure) -> registrar(operacion, resultado(failure), inicio))
+                    .onCancellation().invoke(() -> registrar(operacion, "cancelled", inicio));
+        });
+    }
+
+    // En los flujos se mide la duración completa, hasta el último elemento
+    public <T> Multi<T> medir(String operacion, Multi<T> multi) {
+        return Multi.createFrom().deferred(() -> {
+            long inicio = System.nanoTime();
+            return multi.onTermination().invoke((failure, cancelled) ->
+                    registrar(operacion, cancelled ? "cancelled" : resultado(failure), inicio));
+        });
+    }
+
+    // Variante síncrona para UsuarioServiceBloqueante
+    public <T> T medir(String operacion, Supplier<T> accion) {
+        long inicio = System.nanoTime();
+        try {
+            T resultado = accion.get();
+            registrar(operacion, "ok", inicio);
+            return resultado;
+        } catch (RuntimeException e) {
+            registrar(operacion, resultado(e), inicio);
+            throw e;
+        }
+    }
+
+    // Búsquedas por subcadena cuyos candidatos por n-gramas llegaron a usuarios.busqueda.max-candidatos
+    public void registrarCandidatosTruncados() {
+        registry.counter(CONTADOR_CANDIDATOS_TRUNCADOS).increment();
+    }
+
+    static String resultado(Throwable failure) {
+        if (failure == null) {
+            return "ok";
+        }
+        if (failure instanceof UsuarioNoEncontradoException) {
+            return "not_found";
+        }
+        if (failure instanceof EmailDuplicadoException) {
+            return "conflict";
+        }
+        if (failure instanceof ExportacionRechazadaException) {
+            return "rejected";
+        }
+        if (failure instanceof VersionNoCoincideException) {
+            return "precondition_failed";
+        }
+        if (failure instanceof IllegalArgumentException || failure instanceof ConstraintViolationException) {
+            return "invalid";
+        }
+        return "error";
+    }
+
+    private void registrar(String operacion, String resultado, long inicio) {
+        timers.computeIfAbsent(operacion + '|' + resultado, clave -> Timer.builder(TIMER_OPERACIONES)
+                        .description("Duración de las operaciones de UsuarioService")
+                        .tag("operacion", operacion)
+                        .tag("outcome", resultado)
+                        .register(registry))
+                .record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.model;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import java.time.LocalDateTime;
+
+@MongoEntity(collection = "contadores")
+public class Contador {
+
+    @BsonId
+    public String id;
+
+    public long valor;
+
+    // Aumenta con cada cambio: la reconciliación sólo fija el valor si no ha cambiado
+    public long version;
+
+    public LocalDateTime fechaActualizacion;
+}
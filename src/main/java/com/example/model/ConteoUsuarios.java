@@ -0,0 +1,17 @@
+package com.example.model;
+
+public class ConteoUsuarios {
+
+    public long valor;
+
+    // Milisegundos desde la última sincronización con MongoDB (0 si el conteo es exacto)
+    public long edadMs;
+
+    public boolean exacto;
+
+    public ConteoUsuarios(long valor, long edadMs, boolean exacto) {
+        this.valor = valor;
+        this.edadMs = edadMs;
+        this.exacto = exacto;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.model;
+
+/**
+ * Elemento del cuerpo de una importación: el usuario leído o, si el elemento no se ha podido
+ * convertir en un usuario, el motivo. Así un elemento ilegible sólo invalida su posición.
+ */
+public class ElementoImportacion {
+
+    public final Usuario usuario;
+
+    public final String error;
+
+    private ElementoImportacion(Usuario usuario, String error) {
+        this.usuario = usuario;
+        this.error = error;
+    }
+
+    public static ElementoImportacion leido(Usuario usuario) {
+        return new ElementoImportacion(usuario, null);
+    }
+
+    public static ElementoImportacion ilegible(String error) {
+        return new ElementoImportacion(null, error);
+    }
+}
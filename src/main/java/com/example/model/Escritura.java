@@ -0,0 +1,18 @@
+package com.example.model;
+
+/**
+ * Resultado de una escritura junto con su token de consistencia causal, que el cliente puede
+ * enviar en sus lecturas siguientes para leer al menos hasta esa escritura.
+ */
+public class Escritura<T> {
+
+    public final T valor;
+
+    // null si MongoDB no devuelve operationTime (servidor standalone o sin sesiones)
+    public final String token;
+
+    public Escritura(T valor, String token) {
+        this.valor = valor;
+        this.token = token;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.model;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+public class EventoUsuario {
+
+    public enum Tipo {
+        CREADO,
+        ACTUALIZADO,
+        DESACTIVADO
+    }
+
+    public Tipo tipo;
+    public String id;
+
+    // Documento completo tras el cambio (null si el usuario ya no existe)
+    public Usuario usuario;
+
+    // Token de reanudación del change stream; se usa como id del evento SSE
+    public String token;
+
+    public long timestamp;
+
+    public EventoUsuario(Tipo tipo, String id, Usuario usuario, String token, long timestamp) {
+        this.tipo = tipo;
+        this.id = id;
+        this.usuario = usuario;
+        this.token = token;
+        this.timestamp = timestamp;
+    }
+
+    public static EventoUsuario de(ChangeStreamDocument<Usuario> cambio) {
+        BsonValue id = cambio.getDocumentKey().get("_id");
+        long timestamp = cambio.getClusterTime() != null
+                ? cambio.getClusterTime().getTime() * 1000L
+                : System.currentTimeMillis();
+
+        return new EventoUsuario(
+                tipoDe(cambio),
+                id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.toString(),
+                cambio.getFullDocument(),
+                tokenDe(cambio.getResumeToken()),
+                timestamp);
+    }
+
+    // El borrado de usuarios es lógico: poner activo a false es una desactivación
+    private static Tipo tipoDe(ChangeStreamDocument<Usuario> cambio) {
+        OperationType operacion = cambio.getOperationType();
+        if (operacion == OperationType.INSERT) {
+            return Tipo.CREADO;
+        }
+        if (operacion == OperationType.UPDATE && cambio.getUpdateDescription() != null) {
+            BsonDocument campos = cambio.getUpdateDescription().getUpdatedFields();
+            if (campos != null && campos.isBoolean("activo") && !campos.getBoolean("activo").getValue()) {
+                return Tipo.DESACTIVADO;
+            }
+        }
+        if (operacion == OperationType.REPLACE && cambio.getFullDocument() != null
+                && Boolean.FALSE.equals(cambio.getFullDocument().activo)) {
+            return Tipo.DESACTIVADO;
+        }
+        return Tipo.ACTUALIZADO;
+    }
+
+    public static String tokenDe(BsonDocument resumeToken) {
+        return resumeToken.getString("_data").getValue();
+    }
+
+    public static BsonDocument resumeToken(String token) {
+        return new BsonDocument("_data", new BsonString(token));
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.model;
+
+public enum FormatoExportacion {
+
+    // Un documento JSON por línea, con los mismos campos que la API
+    NDJSON,
+
+    // RFC 4180 con cabecera; los campos nulos quedan vacíos
+    CSV
+}
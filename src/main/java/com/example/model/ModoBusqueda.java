@@ -0,0 +1,10 @@
+package com.example.model;
+
+public enum ModoBusqueda {
+
+    // Nombres que empiezan por el texto: usa directamente el índice de nombreNormalizado
+    PREFIJO,
+
+    // Nombres que contienen el texto: usa el índice multiclave de n-gramas
+    CONTIENE
+}
@@ -0,0 +1,39 @@
+package com.example.model;
+
+import org.bson.types.ObjectId;
+
+import java.util.List;
+import java.util.function.Function;
+
+public class PaginaUsuarios<T> {
+
+    public List<T> usuarios;
+
+    // ID del último usuario de la página, o null si no hay más resultados
+    public String siguienteCursor;
+
+    public PaginaUsuarios(List<T> usuarios, String siguienteCursor) {
+        this.usuarios = usuarios;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    /**
+     * Construye la página a partir de una consulta que pidió {@code limite + 1} elementos:
+     * el elemento sobrante sólo indica que existe una página siguiente.
+     */
+    public static PaginaUsuarios<Usuario> de(List<Usuario> resultados, int limite) {
+        return de(resultados, limite, usuario -> usuario.id);
+    }
+
+    public static <T> PaginaUsuarios<T> de(List<T> resultados, int limite, Function<T, ObjectId> id) {
+        if (resultados.size() <= limite) {
+            return new PaginaUsuarios<>(resultados, null);
+        }
+        List<T> pagina = resultados.subList(0, limite);
+        return new PaginaUsuarios<>(pagina, id.apply(pagina.get(limite - 1)).toHexString());
+    }
+
+    public <R> PaginaUsuarios<R> map(Function<T, R> vista) {
+        return new PaginaUsuarios<>(usuarios.stream().map(vista).toList(), siguienteCursor);
+    }
+}
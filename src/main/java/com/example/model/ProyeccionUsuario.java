@@ -0,0 +1,116 @@
+package com.example.model;
+
+import com.mongodb.client.model.Projections;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Campos pedidos con el parámetro fields. Sólo se aceptan los campos públicos de Usuario; el id se
+ * incluye siempre porque hace falta para paginar y para identificar cada elemento. La proyección
+ * se aplica en MongoDB, así que el driver sólo decodifica los campos pedidos.
+ */
+public class ProyeccionUsuario {
+
+    public enum Campo {
+        NOMBRE("nombre", "nombre", usuario -> usuario.nombre),
+        EMAIL("email", "email", usuario -> usuario.email),
+        TELEFONO("telefono", "telefono", usuario -> usuario.telefono),
+        ACTIVO("activo", "activo", usuario -> usuario.activo),
+        FECHA_CREACION("fechaCreacion", "fechaCreacion", usuario -> usuario.fechaCreacion),
+        FECHA_ACTUALIZACION("fechaActualizacion", "fechaActualizacion", usuario -> usuario.fechaActualizacion),
+        // Último, igual que en el JSON completo de Usuario
+        ID("id", "_id", usuario -> usuario.id);
+
+        final String json;
+        final String mongo;
+        final Function<Usuario, Object> valor;
+
+        Campo(String json, String mongo, Function<Usuario, Object> valor) {
+            this.json = json;
+            this.mongo = mongo;
+            this.valor = valor;
+        }
+    }
+
+    private static final Set<Campo> RESUMEN = EnumSet.of(Campo.ID, Campo.NOMBRE, Campo.EMAIL);
+
+    private final Set<Campo> campos;
+
+    private ProyeccionUsuario(Set<Campo> campos) {
+        this.campos = campos;
+    }
+
+    /**
+     * @param fields lista separada por comas, p. ej. "nombre,email"
+     * @return la proyección, o null si no se pidió ninguna y debe devolverse el usuario completo
+     * @throws IllegalArgumentException si algún campo no está permitido
+     */
+    public static ProyeccionUsuario de(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<Campo> campos = EnumSet.of(Campo.ID);
+        for (String nombre : fields.split(",")) {
+            String campo = nombre.trim();
+            if (!campo.isEmpty()) {
+                campos.add(buscar(campo));
+            }
+        }
+        return new ProyeccionUsuario(campos);
+    }
+
+    private static Campo buscar(String json) {
+        for (Campo campo : Campo.values()) {
+            if (campo.json.equals(json)) {
+                return campo;
+            }
+        }
+        throw new IllegalArgumentException("Campo no permitido en 'fields': " + json
+                + " (permitidos: " + String.join(", ", nombresPermitidos()) + ")");
+    }
+
+    private static List<String> nombresPermitidos() {
+        List<String> nombres = new ArrayList<>();
+        for (Campo campo : Campo.values()) {
+            nombres.add(campo.json);
+        }
+        return nombres;
+    }
+
+    // La vista resumen tiene su propio tipo y codec, sin mapeo por reflexión
+    public boolean esResumen() {
+        return campos.equals(RESUMEN);
+    }
+
+    /**
+     * Proyección para MongoDB con los campos pedidos más los que necesite la consulta
+     * internamente (p. ej. nombreNormalizado para ordenar por relevancia).
+     */
+    public Bson bson(String... adicionales) {
+        List<String> incluidos = new ArrayList<>();
+        for (Campo campo : campos) {
+            incluidos.add(campo.mongo);
+        }
+        incluidos.addAll(List.of(adicionales));
+        return Projections.include(incluidos);
+    }
+
+    public Map<String, Object> aplicar(Usuario usuario) {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        for (Campo campo : campos) {
+            resultado.put(campo.json, campo.valor.apply(usuario));
+        }
+        return resultado;
+    }
+
+    public Object vista(Usuario usuario) {
+        return esResumen() ? UsuarioResumen.de(usuario) : aplicar(usuario);
+    }
+}
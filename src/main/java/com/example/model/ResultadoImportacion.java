@@ -0,0 +1,43 @@
+package com.example.model;
+
+import java.util.List;
+
+public class ResultadoImportacion {
+
+    public enum Estado {
+        CREADO,
+        CONFLICTO,
+        INVALIDO
+    }
+
+    // Posición del usuario dentro del cuerpo de la petición
+    public int indice;
+    public Estado estado;
+    public String id;
+    public String email;
+    public List<String> errores;
+
+    public ResultadoImportacion(int indice, Estado estado, String id, String email, List<String> errores) {
+        this.indice = indice;
+        this.estado = estado;
+        this.id = id;
+        this.email = email;
+        this.errores = errores;
+    }
+
+    public static ResultadoImportacion creado(int indice, Usuario usuario) {
+        return new ResultadoImportacion(indice, Estado.CREADO, usuario.id.toHexString(), usuario.email, List.of());
+    }
+
+    public static ResultadoImportacion conflicto(int indice, Usuario usuario, String motivo) {
+        return new ResultadoImportacion(indice, Estado.CONFLICTO, null, usuario.email, List.of(motivo));
+    }
+
+    public static ResultadoImportacion invalido(int indice, Usuario usuario, List<String> errores) {
+        return new ResultadoImportacion(indice, Estado.INVALIDO, null, usuario.email, errores);
+    }
+
+    public static ResultadoImportacion ilegible(int indice, String error) {
+        return new ResultadoImportacion(indice, Estado.INVALIDO, null, null, List.of(error));
+    }
+}
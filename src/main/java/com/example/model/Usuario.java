@@ -1,5 +1,7 @@
 package com.example.model;
 
+import com.example.util.NormalizadorTexto;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.quarkus.mongodb.panache.common.MongoEntity;
 import org.bson.types.ObjectId;
@@ -8,6 +10,7 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @MongoEntity(collection = "usuarios")
 public class Usuario {
@@ -32,6 +35,13 @@ public class Usuario {
 
     public LocalDateTime fechaActualizacion;
 
+    // Campos derivados del nombre para la búsqueda indexada; no forman parte del JSON
+    @JsonIgnore
+    public String nombreNormalizado;
+
+    @JsonIgnore
+    public List<String> nombreNgramas;
+
     public Usuario() {
         this.fechaCreacion = LocalDateTime.now();
         this.fechaActualizacion = LocalDateTime.now();
@@ -48,6 +58,11 @@ public class Usuario {
         this.fechaActualizacion = LocalDateTime.now();
     }
 
+    public void indexarNombre() {
+        this.nombreNormalizado = NormalizadorTexto.normalizar(nombre);
+        this.nombreNgramas = NormalizadorTexto.ngramas(nombreNormalizado);
+    }
+
     @Override
     public String toString() {
         return "Usuario{" +
@@ -0,0 +1,31 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.bson.types.ObjectId;
+
+/**
+ * Vista resumida de un usuario (fields=id,nombre,email), la que piden la mayoría de clientes.
+ * MongoDB la decodifica con UsuarioResumenCodec en lugar del codec POJO de Usuario.
+ */
+public class UsuarioResumen {
+
+    @JsonProperty("id")
+    public ObjectId id;
+
+    public String nombre;
+
+    public String email;
+
+    public UsuarioResumen() {
+    }
+
+    public UsuarioResumen(ObjectId id, String nombre, String email) {
+        this.id = id;
+        this.nombre = nombre;
+        this.email = email;
+    }
+
+    public static UsuarioResumen de(Usuario usuario) {
+        return new UsuarioResumen(usuario.id, usuario.nombre, usuario.email);
+    }
+}
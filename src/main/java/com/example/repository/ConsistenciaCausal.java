@@ -0,0 +1,152 @@
+package com.example.repository;
+
+import com.example.model.Escritura;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.connection.ClusterDescription;
+import com.mongodb.connection.ServerDescription;
+import com.mongodb.reactivestreams.client.ClientSession;
+import io.quarkus.mongodb.reactive.ReactiveMongoClient;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Tokens de consistencia causal entre peticiones. Cada escritura se hace en una sesión causal y
+ * su token contiene el operationTime y el clusterTime firmado de esa sesión. Una lectura que
+ * recibe el token abre otra sesión causal avanzada hasta ese instante, así que el driver pide
+ * afterClusterTime y un secundario no responde hasta haber replicado la escritura. Las lecturas
+ * sin token no abren sesión.
+ */
+@ApplicationScoped
+public class ConsistenciaCausal {
+
+    private static final Logger LOG = Logger.getLogger(ConsistenciaCausal.class);
+
+    private static final ClientSessionOptions CAUSAL = ClientSessionOptions.builder()
+            .causallyConsistent(true)
+            .build();
+
+    @Inject
+    ReactiveMongoClient mongoClient;
+
+    @ConfigProperty(name = "usuarios.lectura.consistencia-causal", defaultValue = "true")
+    boolean habilitada;
+
+    // Para avisar una sola vez de que el servidor no admite sesiones
+    private volatile boolean avisado;
+
+    public <T> Uni<Escritura<T>> escribir(Function<ClientSession, Uni<T>> escritura) {
+        if (!habilitada) {
+            return escritura.apply(null).map(valor -> new Escritura<>(valor, null));
+        }
+        return iniciarSesion().flatMap(sesion -> escritura.apply(sesion)
+                .map(valor -> new Escritura<>(valor, sesion != null ? token(sesion) : null))
+                .eventually(() -> cerrar(sesion)));
+    }
+
+    /**
+     * @throws IllegalArgumentException (como fallo del Uni) si el token no es válido
+     */
+    public <T> Uni<T> leer(String token, Function<ClientSession, Uni<? extends T>> lectura) {
+        if (token == null || !habilitada) {
+            return Uni.createFrom().deferred(() -> lectura.apply(null));
+        }
+        return Uni.createFrom().item(() -> decodificar(token))
+                .flatMap(datos -> iniciarSesion().flatMap(sesion -> {
+                    avanzar(sesion, datos);
+                    return lectura.apply(sesion).eventually(() -> cerrar(sesion));
+                }));
+    }
+
+    public <T> Multi<T> leerFlujo(String token, Function<ClientSession, Multi<? extends T>> lectura) {
+        if (token == null || !habilitada) {
+            return Multi.createFrom().deferred(() -> lectura.apply(null));
+        }
+        return Uni.createFrom().item(() -> decodificar(token))
+                .onItem().transformToMulti(datos -> iniciarSesion().onItem().transformToMulti(sesion -> {
+                    avanzar(sesion, datos);
+                    return lectura.apply(sesion).onTermination().invoke(() -> cerrar(sesion));
+                }));
+    }
+
+    // null si no hay sesiones: la operación se hace igualmente, sin token
+    private Uni<ClientSession> iniciarSesion() {
+        if (!admiteSesiones()) {
+            return Uni.createFrom().nullItem();
+        }
+        return mongoClient.startSession(CAUSAL);
+    }
+
+    // El driver sólo rechaza la sesión al usarla, así que se mira antes la descripción del cluster.
+    // Sin servidores conectados no se sabe todavía: se intenta con sesión
+    private boolean admiteSesiones() {
+        ClusterDescription cluster = mongoClient.unwrap().getClusterDescription();
+        boolean conectado = cluster.getServerDescriptions().stream().anyMatch(ServerDescription::isOk);
+        if (!conectado || cluster.getLogicalSessionTimeoutMinutes() != null) {
+            return true;
+        }
+        if (!avisado) {
+            avisado = true;
+            LOG.warn("MongoDB no admite sesiones, no se emitirán tokens de consistencia");
+        }
+        return false;
+    }
+
+    private static void avanzar(ClientSession sesion, BsonDocument datos) {
+        if (sesion == null) {
+            return;
+        }
+        if (datos.isDocument("clusterTime")) {
+            sesion.advanceClusterTime(datos.getDocument("clusterTime"));
+        }
+        sesion.advanceOperationTime(datos.getTimestamp("operationTime"));
+    }
+
+    private static void cerrar(ClientSession sesion) {
+        if (sesion != null) {
+            sesion.close();
+        }
+    }
+
+    private static String token(ClientSession sesion) {
+        return sesion.getOperationTime() != null ? token(sesion.getOperationTime(), sesion.getClusterTime()) : null;
+    }
+
+    static String token(BsonTimestamp operationTime, BsonDocument clusterTime) {
+        BsonDocument datos = new BsonDocument("operationTime", operationTime);
+        if (clusterTime != null) {
+            datos.append("clusterTime", clusterTime);
+        }
+        ByteBuffer bson = new RawBsonDocument(datos, new BsonDocumentCodec()).getByteBuffer().asNIO();
+        byte[] bytes = new byte[bson.remaining()];
+        bson.get(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    static BsonDocument decodificar(String token) {
+        BsonDocument datos;
+        boolean valido;
+        try {
+            // Se decodifica completo para validar también el clusterTime
+            datos = new RawBsonDocument(Base64.getUrlDecoder().decode(token)).decode(new BsonDocumentCodec());
+            valido = datos.isTimestamp("operationTime");
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Token de consistencia inválido", e);
+        }
+        if (!valido) {
+            throw new IllegalArgumentException("Token de consistencia inválido");
+        }
+        return datos;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.repository;
+
+import com.example.model.Contador;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepositoryBase;
+import io.smallrye.mutiny.Uni;
+import org.bson.conversions.Bson;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.LocalDateTime;
+
+@ApplicationScoped
+public class ContadorRepository implements ReactivePanacheMongoRepositoryBase<Contador, String> {
+
+    // $inc atómico: varias réplicas pueden incrementar el mismo contador sin perder actualizaciones.
+    // Cada cambio incrementa también la versión
+    public Uni<Void> incrementar(String id, long delta) {
+        return mongoCollection().updateOne(
+                Filters.eq("_id", id),
+                Updates.combine(
+                        Updates.inc("valor", delta),
+                        Updates.inc("version", 1L),
+                        Updates.set("fechaActualizacion", LocalDateTime.now())),
+                new UpdateOptions().upsert(true))
+                .replaceWithVoid();
+    }
+
+    /**
+     * Fija el valor sólo si el contador sigue en la versión leída (0 si no existía), para no pisar
+     * los incrementos de otras réplicas hechos desde entonces.
+     *
+     * @return false si la versión ha cambiado
+     */
+    public Uni<Boolean> fijarSiVersion(String id, long version, long valor) {
+        // Los contadores anteriores a la versión no tienen el campo
+        Bson mismaVersion = version == 0
+                ? Filters.or(Filters.eq("version", 0L), Filters.exists("version", false))
+                : Filters.eq("version", version);
+        return mongoCollection().updateOne(
+                Filters.and(Filters.eq("_id", id), mismaVersion),
+                Updates.combine(
+                        Updates.set("valor", valor),
+                        Updates.inc("version", 1L),
+                        Updates.set("fechaActualizacion", LocalDateTime.now())),
+                new UpdateOptions().upsert(true))
+                .map(resultado -> true)
+                // Con otra versión el upsert intenta insertar un segundo documento con el mismo _id
+                .onFailure(UsuarioRepository::esClaveDuplicada).recoverWithItem(false);
+    }
+}
@@ -1,43 +1,412 @@
 package com.example.repository;
 
 import com.example.model.Usuario;
+import com.example.model.UsuarioResumen;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.reactivestreams.client.ClientSession;
+import io.quarkus.mongodb.ChangeStreamOptions;
+import io.quarkus.mongodb.FindOptions;
 import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepository;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheQuery;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.quarkus.panache.common.Sort;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 @ApplicationScoped
 public class UsuarioRepository implements ReactivePanacheMongoRepository<Usuario> {
 
+    private static final Bson PROYECCION_RESUMEN = Projections.include("nombre", "email");
+
+    // Los n-gramas son la mayor parte del documento y nunca se devuelven al cliente
+    private static final Bson SIN_NGRAMAS = Projections.exclude("nombreNgramas");
+
+    private static final Bson SIN_CAMPOS_BUSQUEDA = Projections.exclude("nombreNormalizado", "nombreNgramas");
+
+    private static final Bson SOLO_VERSION = Projections.include("fechaActualizacion");
+
+    private static final Bson SOLO_EMAIL = Projections.fields(Projections.include("email"), Projections.excludeId());
+
+    private static final String COLECCION_ARCHIVO = "usuarios_archivo";
+
+    /**
+     * Índices que necesitan las consultas de este repositorio. GestorIndicesService los crea o
+     * corrige al arrancar; mongo-init/init-mongo.js crea los mismos.
+     */
+    public static final List<IndexModel> INDICES = List.of(
+            // Único sólo entre los activos: el email de un usuario eliminado se puede reutilizar
+            new IndexModel(Indexes.ascending("email"), new IndexOptions()
+                    .name("email_1")
+                    .unique(true)
+                    .partialFilterExpression(Filters.eq("activo", true))),
+            // Listado paginado por _id y conteo de activos
+            new IndexModel(Indexes.ascending("activo", "_id"), new IndexOptions().name("activo_1__id_1")),
+            // Búsqueda por prefijo y por n-gramas
+            new IndexModel(Indexes.ascending("nombreNormalizado"), new IndexOptions().name("nombreNormalizado_1")),
+            new IndexModel(Indexes.ascending("nombreNgramas"), new IndexOptions().name("nombreNgramas_1")),
+            // Exportación incremental
+            new IndexModel(Indexes.ascending("fechaActualizacion", "_id"),
+                           new IndexOptions().name("fechaActualizacion_1__id_1")),
+            // Archivo de usuarios desactivados hace tiempo
+            new IndexModel(Indexes.ascending("activo", "fechaActualizacion"),
+                           new IndexOptions().name("activo_1_fechaActualizacion_1")));
+
+    // Listado, búsqueda y conteo; las lecturas por id siguen en el primario (y en la caché)
+    @ConfigProperty(name = "usuarios.lectura.preferencia", defaultValue = "primary")
+    String preferenciaLectura;
+
     public Uni<Usuario> findByEmail(String email) {
         return find("email", email).firstResult();
     }
 
-    public Multi<Usuario> findByNombre(String nombre) {
-        return find("nombre like ?1", "%" + nombre + "%").stream();
+    public Multi<Usuario> findByPrefijoNombre(ClientSession sesion, String prefijoNormalizado, int limite,
+                                              Bson proyeccion) {
+        return leer(mongoCollection(), sesion,
+                filtroPrefijoNombre(prefijoNormalizado),
+                opcionesPrefijo(limite).projection(proyeccion));
+    }
+
+    public Multi<Usuario> findByNgramasNombre(ClientSession sesion, List<String> ngramas, int maxCandidatos,
+                                              Bson proyeccion) {
+        return leer(mongoCollection(), sesion,
+                filtroNgramasNombre(ngramas),
+                new FindOptions()
+                        .projection(proyeccion)
+                        .limit(maxCandidatos));
+    }
+
+    // Variantes sin decodificar para escribir el JSON directamente desde los bytes BSON
+    public Multi<RawBsonDocument> findByPrefijoNombreSinDecodificar(ClientSession sesion, String prefijoNormalizado,
+                                                                    int limite) {
+        return leer(mongoCollection().withDocumentClass(RawBsonDocument.class), sesion,
+                filtroPrefijoNombre(prefijoNormalizado), opcionesPrefijo(limite).projection(SIN_NGRAMAS));
+    }
+
+    public Multi<RawBsonDocument> findByNgramasNombreSinDecodificar(ClientSession sesion, List<String> ngramas,
+                                                                    int maxCandidatos) {
+        return leer(mongoCollection().withDocumentClass(RawBsonDocument.class), sesion,
+                filtroNgramasNombre(ngramas), new FindOptions().projection(SIN_NGRAMAS).limit(maxCandidatos));
+    }
+
+    public Multi<Usuario> findSinNombreIndexado(int batchSize) {
+        return find("{'nombreNormalizado': {'$exists': false}}")
+                .withBatchSize(batchSize)
+                .stream();
+    }
+
+    public Uni<Void> guardarIndiceNombre(Usuario usuario) {
+        return mongoCollection().updateOne(
+                Filters.eq("_id", usuario.id),
+                Updates.combine(
+                        Updates.set("nombreNormalizado", usuario.nombreNormalizado),
+                        Updates.set("nombreNgramas", usuario.nombreNgramas)))
+                .replaceWithVoid();
+    }
+
+    // Con proyección sólo decodifica esos campos; el resto queda con sus valores por defecto
+    public Uni<List<Usuario>> findActivosDespuesDe(ClientSession sesion, ObjectId after, int limit, Bson proyeccion) {
+        return leer(mongoCollection(), sesion,
+                filtroActivosDespuesDe(after), opcionesPagina(limit).projection(proyeccion))
+                .collect().asList();
+    }
+
+    public Uni<List<UsuarioResumen>> findResumenesActivosDespuesDe(ClientSession sesion, ObjectId after, int limit) {
+        return leer(mongoCollection().withDocumentClass(UsuarioResumen.class), sesion,
+                filtroActivosDespuesDe(after), opcionesPagina(limit).projection(PROYECCION_RESUMEN))
+                .collect().asList();
+    }
+
+    public Uni<List<RawBsonDocument>> findActivosDespuesDeSinDecodificar(ClientSession sesion, ObjectId after,
+                                                                        int limit) {
+        return leer(mongoCollection().withDocumentClass(RawBsonDocument.class), sesion,
+                filtroActivosDespuesDe(after), opcionesPagina(limit).projection(SIN_CAMPOS_BUSQUEDA))
+                .collect().asList();
     }
 
-    public Multi<Usuario> findActivos() {
-        return find("activo", true).stream();
+    public Multi<Usuario> streamActivosDespuesDe(ObjectId after, int batchSize) {
+        return queryActivosDespuesDe(after)
+                .withBatchSize(batchSize)
+                .stream();
     }
 
-    public Uni<Long> countActivos() {
-        return count("activo", true);
+    // Emails de los usuarios activos, sin decodificar el resto del documento
+    public Multi<String> streamEmailsActivos(int batchSize) {
+        return paraLectura(mongoCollection().withDocumentClass(RawBsonDocument.class))
+                .find(Filters.eq("activo", true), new FindOptions().projection(SOLO_EMAIL).batchSize(batchSize))
+                .map(documento -> documento.getString("email").getValue());
+    }
+
+    // Todos los usuarios, también los desactivados, en el orden del índice {fechaActualizacion: 1, _id: 1}.
+    // Con despuesDe continúa justo después del documento (desde, despuesDe) de una exportación anterior
+    public Multi<RawBsonDocument> exportarDesde(LocalDateTime desde, ObjectId despuesDe, int batchSize) {
+        return paraLectura(mongoCollection().withDocumentClass(RawBsonDocument.class))
+                .find(filtroExportacion(desde, despuesDe), new FindOptions()
+                        .sort(Sorts.ascending("fechaActualizacion", "_id"))
+                        .projection(SIN_CAMPOS_BUSQUEDA)
+                        .batchSize(batchSize));
+    }
+
+    public Uni<Long> countActivos(ClientSession sesion) {
+        ReactiveMongoCollection<Usuario> coleccion = paraLectura(mongoCollection());
+        Bson activos = Filters.eq("activo", true);
+        return sesion != null ? coleccion.countDocuments(sesion, activos) : coleccion.countDocuments(activos);
+    }
+
+    // Siempre en el primario: el resultado se escribe en el contador compartido, y el de un
+    // secundario con retraso lo haría retroceder
+    public Uni<Long> countActivosEnPrimario() {
+        return mongoCollection().withReadPreference(ReadPreference.primary())
+                .countDocuments(Filters.eq("activo", true));
     }
 
     public Uni<Usuario> findByIdAndActivo(ObjectId id) {
         return find("_id = ?1 and activo = ?2", id, true).firstResult();
     }
 
+    // Sólo entre los activos, igual que el índice único de email
     public Uni<Boolean> existsByEmail(String email) {
-        return count("email", email)
+        return count("email = ?1 and activo = ?2", email, true)
                 .map(count -> count > 0);
     }
 
-    public Uni<Boolean> existsByEmailAndNotId(String email, ObjectId id) {
-        return count("email = ?1 and _id != ?2", email, id)
-                .map(count -> count > 0);
+    public Uni<Usuario> insertar(ClientSession sesion, Usuario usuario) {
+        if (usuario.id == null) {
+            usuario.id = new ObjectId();
+        }
+        return (sesion != null ? mongoCollection().insertOne(sesion, usuario) : mongoCollection().insertOne(usuario))
+                .replaceWith(usuario);
+    }
+
+    // Sólo fechaActualizacion, la versión de la ETag: null si el usuario no existe o está inactivo
+    public Uni<LocalDateTime> findVersionActivo(ObjectId id) {
+        return mongoCollection().withDocumentClass(RawBsonDocument.class)
+                .find(filtroActivo(id), new FindOptions().projection(SOLO_VERSION).limit(1))
+                .toUni()
+                .onItem().ifNotNull().transform(documento -> LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(documento.getDateTime("fechaActualizacion").getValue()), ZoneOffset.UTC));
+    }
+
+    /**
+     * Actualización condicional en un solo viaje: retorna null si el usuario no existe, está inactivo
+     * o, con versiones no nulas, su fechaActualizacion no es ninguna de ellas (If-Match).
+     */
+    public Uni<Usuario> actualizarActivo(ClientSession sesion, ObjectId id, List<LocalDateTime> versiones,
+                                         Usuario datos) {
+        Bson filtro = versiones != null
+                ? Filters.and(filtroActivo(id), Filters.in("fechaActualizacion", versiones))
+                : filtroActivo(id);
+        return actualizarUno(sesion, filtro, actualizacionDatos(datos));
+    }
+
+    public Uni<Usuario> desactivar(ClientSession sesion, ObjectId id) {
+        return actualizarUno(sesion, filtroActivo(id), actualizacionBaja());
+    }
+
+    private Uni<Usuario> actualizarUno(ClientSession sesion, Bson filtro, Bson actualizacion) {
+        FindOneAndUpdateOptions opciones = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+        return sesion != null
+                ? mongoCollection().findOneAndUpdate(sesion, filtro, actualizacion, opciones)
+                : mongoCollection().findOneAndUpdate(filtro, actualizacion, opciones);
+    }
+
+    public static boolean esClaveDuplicada(Throwable throwable) {
+        return throwable instanceof MongoException mongoException
+                && ErrorCategory.fromErrorCode(mongoException.getCode()) == ErrorCategory.DUPLICATE_KEY;
+    }
+
+    public Uni<Set<String>> findEmailsExistentes(Collection<String> emails) {
+        return mongoCollection()
+                .find(Filters.and(Filters.in("email", emails), Filters.eq("activo", true)),
+                      new FindOptions().projection(Projections.include("email")))
+                .map(usuario -> usuario.email)
+                .collect().asSet();
+    }
+
+    // Sin orden: un documento rechazado no impide insertar el resto del lote
+    public Uni<InsertManyResult> insertarLote(List<Usuario> usuarios) {
+        return mongoCollection().insertMany(usuarios, new InsertManyOptions().ordered(false));
+    }
+
+    public Multi<BsonDocument> listarIndices() {
+        return mongoCollection().listIndexes(BsonDocument.class);
+    }
+
+    public Uni<Void> crearIndice(IndexModel indice) {
+        return mongoCollection().createIndexes(List.of(indice)).replaceWithVoid();
+    }
+
+    public Uni<Void> eliminarIndice(String nombre) {
+        return mongoCollection().dropIndex(nombre);
+    }
+
+    public Uni<List<BsonDocument>> findInactivosAntesDe(LocalDateTime corte, int limite) {
+        return mongoCollection().withDocumentClass(BsonDocument.class)
+                .find(Filters.and(Filters.eq("activo", false), Filters.lt("fechaActualizacion", corte)),
+                      new FindOptions().limit(limite))
+                .collect().asList();
+    }
+
+    /**
+     * Copia los documentos a usuarios_archivo (con fechaArchivo) y los borra de usuarios. Si se
+     * interrumpe entre los dos pasos, el siguiente intento encuentra las copias ya archivadas y
+     * sólo borra. Retorna el número de usuarios borrados.
+     */
+    public Uni<Long> archivar(List<BsonDocument> documentos) {
+        BsonDateTime fechaArchivo = new BsonDateTime(System.currentTimeMillis());
+        List<BsonDocument> copias = new ArrayList<>(documentos.size());
+        List<BsonValue> ids = new ArrayList<>(documentos.size());
+        for (BsonDocument documento : documentos) {
+            BsonDocument copia = new BsonDocument();
+            copia.putAll(documento);
+            copias.add(copia.append("fechaArchivo", fechaArchivo));
+            ids.add(documento.get("_id"));
+        }
+        return mongoDatabase().getCollection(COLECCION_ARCHIVO, BsonDocument.class)
+                .insertMany(copias, new InsertManyOptions().ordered(false))
+                .replaceWithVoid()
+                .onFailure(UsuarioRepository::soloClavesDuplicadas).recoverWithNull()
+                .flatMap(ignorado -> mongoCollection().deleteMany(
+                        Filters.and(Filters.in("_id", ids), Filters.eq("activo", false))))
+                .map(DeleteResult::getDeletedCount);
+    }
+
+    private static boolean soloClavesDuplicadas(Throwable throwable) {
+        return throwable instanceof MongoBulkWriteException excepcion
+                && excepcion.getWriteConcernError() == null
+                && excepcion.getWriteErrors().stream().allMatch(error ->
+                        ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY);
+    }
+
+    // Requiere que MongoDB se ejecute como replica set; con resumeToken continúa justo después de ese cambio
+    public Multi<ChangeStreamDocument<Usuario>> observarCambios(BsonDocument resumeToken) {
+        ChangeStreamOptions opciones = new ChangeStreamOptions().fullDocument(FullDocument.UPDATE_LOOKUP);
+        if (resumeToken != null) {
+            opciones.resumeAfter(resumeToken);
+        }
+        return mongoCollection().watch(
+                List.of(Aggregates.match(Filters.in("operationType", "insert", "update", "replace"))),
+                Usuario.class,
+                opciones);
+    }
+
+    private <D> ReactiveMongoCollection<D> paraLectura(ReactiveMongoCollection<D> coleccion) {
+        return coleccion.withReadPreference(ReadPreference.valueOf(preferenciaLectura));
+    }
+
+    // La sesión (o null) es la del token de consistencia del cliente: con ella un secundario espera
+    // a haber replicado la escritura del cliente antes de responder
+    private <D> Multi<D> leer(ReactiveMongoCollection<D> coleccion, ClientSession sesion, Bson filtro,
+                              FindOptions opciones) {
+        ReactiveMongoCollection<D> lectura = paraLectura(coleccion);
+        return sesion != null ? lectura.find(sesion, filtro, opciones) : lectura.find(filtro, opciones);
+    }
+
+    // Los filtros y actualizaciones se comparten con UsuarioRepositoryBloqueante
+    static Bson filtroActivo(ObjectId id) {
+        return Filters.and(Filters.eq("_id", id), Filters.eq("activo", true));
+    }
+
+    static Bson actualizacionDatos(Usuario datos) {
+        Bson telefono = datos.telefono != null
+                ? Updates.set("telefono", datos.telefono)
+                : Updates.unset("telefono");
+
+        return Updates.combine(
+                Updates.set("nombre", datos.nombre),
+                Updates.set("nombreNormalizado", datos.nombreNormalizado),
+                Updates.set("nombreNgramas", datos.nombreNgramas),
+                Updates.set("email", datos.email),
+                telefono,
+                Updates.set("fechaActualizacion", LocalDateTime.now()));
+    }
+
+    static Bson actualizacionBaja() {
+        return Updates.combine(
+                Updates.set("activo", false),
+                Updates.set("fechaActualizacion", LocalDateTime.now()));
+    }
+
+    // Rango [prefijo, prefijo + U+FFFF) sobre nombreNormalizado: recorre sólo la porción del índice que coincide
+    static Bson filtroPrefijoNombre(String prefijoNormalizado) {
+        return Filters.and(
+                Filters.gte("nombreNormalizado", prefijoNormalizado),
+                Filters.lt("nombreNormalizado", prefijoNormalizado + '\uffff'),
+                Filters.eq("activo", true));
+    }
+
+    private static FindOptions opcionesPrefijo(int limite) {
+        return new FindOptions()
+                .sort(Sorts.ascending("nombreNormalizado"))
+                .limit(limite);
+    }
+
+    static Bson filtroNgramasNombre(List<String> ngramas) {
+        return Filters.and(
+                Filters.all("nombreNgramas", ngramas),
+                Filters.eq("activo", true));
+    }
+
+    static Bson filtroActivosDespuesDe(ObjectId after) {
+        return after == null
+                ? Filters.eq("activo", true)
+                : Filters.and(Filters.eq("activo", true), Filters.gt("_id", after));
+    }
+
+    private static Bson filtroExportacion(LocalDateTime desde, ObjectId despuesDe) {
+        if (desde == null) {
+            return new BsonDocument();
+        }
+        if (despuesDe == null) {
+            return Filters.gte("fechaActualizacion", desde);
+        }
+        return Filters.or(
+                Filters.gt("fechaActualizacion", desde),
+                Filters.and(Filters.eq("fechaActualizacion", desde), Filters.gt("_id", despuesDe)));
+    }
+
+    private static FindOptions opcionesPagina(int limit) {
+        return new FindOptions().sort(Sorts.ascending("_id")).limit(limit);
+    }
+
+    // Paginación por cursor sobre _id: siempre ordenada para que el cursor sea estable
+    private ReactivePanacheQuery<Usuario> queryActivosDespuesDe(ObjectId after) {
+        if (after == null) {
+            return find("activo", Sort.ascending("_id"), true);
+        }
+        return find("activo = ?1 and _id > ?2", Sort.ascending("_id"), true, after);
     }
 }
\ No newline at end of file
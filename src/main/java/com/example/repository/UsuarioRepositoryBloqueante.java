@@ -0,0 +1,84 @@
+package com.example.repository;
+
+import com.example.model.Usuario;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Las consultas de UsuarioRepository que usa UsuarioServiceBloqueante, con el cliente síncrono de
+ * MongoDB: cada método bloquea el hilo (virtual) que lo llama hasta tener la respuesta. Usa los
+ * mismos filtros, actualizaciones e índices que la versión reactiva.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "usuarios.hilos-virtuales.habilitado", stringValue = "true")
+public class UsuarioRepositoryBloqueante implements PanacheMongoRepository<Usuario> {
+
+    private static final FindOneAndUpdateOptions DEVOLVER_ACTUALIZADO =
+            new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+
+    @ConfigProperty(name = "usuarios.lectura.preferencia", defaultValue = "primary")
+    String preferenciaLectura;
+
+    public List<Usuario> findActivosDespuesDe(ObjectId after, int limit) {
+        return paraLectura().find(UsuarioRepository.filtroActivosDespuesDe(after))
+                .sort(Sorts.ascending("_id"))
+                .limit(limit)
+                .into(new ArrayList<>(limit));
+    }
+
+    public List<Usuario> findByPrefijoNombre(String prefijoNormalizado, int limite) {
+        return paraLectura().find(UsuarioRepository.filtroPrefijoNombre(prefijoNormalizado))
+                .sort(Sorts.ascending("nombreNormalizado"))
+                .limit(limite)
+                .into(new ArrayList<>(limite));
+    }
+
+    public List<Usuario> findByNgramasNombre(List<String> ngramas, int maxCandidatos) {
+        return paraLectura().find(UsuarioRepository.filtroNgramasNombre(ngramas))
+                .limit(maxCandidatos)
+                .into(new ArrayList<>());
+    }
+
+    public long countActivos() {
+        return paraLectura().countDocuments(Filters.eq("activo", true));
+    }
+
+    public boolean existsByEmail(String email) {
+        return count("email = ?1 and activo = ?2", email, true) > 0;
+    }
+
+    public Usuario insertar(Usuario usuario) {
+        if (usuario.id == null) {
+            usuario.id = new ObjectId();
+        }
+        mongoCollection().insertOne(usuario);
+        return usuario;
+    }
+
+    // null si el usuario no existe o está inactivo
+    public Usuario actualizarActivo(ObjectId id, Usuario datos) {
+        return mongoCollection().findOneAndUpdate(UsuarioRepository.filtroActivo(id),
+                UsuarioRepository.actualizacionDatos(datos), DEVOLVER_ACTUALIZADO);
+    }
+
+    public Usuario desactivar(ObjectId id) {
+        return mongoCollection().findOneAndUpdate(UsuarioRepository.filtroActivo(id),
+                UsuarioRepository.actualizacionBaja(), DEVOLVER_ACTUALIZADO);
+    }
+
+    private MongoCollection<Usuario> paraLectura() {
+        return mongoCollection().withReadPreference(ReadPreference.valueOf(preferenciaLectura));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.repository;
+
+import com.example.model.UsuarioResumen;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Codec escrito a mano para la vista resumen: lee sólo _id, nombre y email y salta el resto de
+ * campos sin el descubrimiento de propiedades ni la reflexión del codec POJO.
+ */
+public class UsuarioResumenCodec implements Codec<UsuarioResumen> {
+
+    @Override
+    public UsuarioResumen decode(BsonReader reader, DecoderContext decoderContext) {
+        UsuarioResumen resumen = new UsuarioResumen();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String campo = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (campo) {
+                case "_id" -> resumen.id = reader.readObjectId();
+                case "nombre" -> resumen.nombre = reader.readString();
+                case "email" -> resumen.email = reader.readString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return resumen;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, UsuarioResumen resumen, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (resumen.id != null) {
+            writer.writeObjectId("_id", resumen.id);
+        }
+        escribir(writer, "nombre", resumen.nombre);
+        escribir(writer, "email", resumen.email);
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<UsuarioResumen> getEncoderClass() {
+        return UsuarioResumen.class;
+    }
+
+    private static void escribir(BsonWriter writer, String campo, String valor) {
+        if (valor != null) {
+            writer.writeString(campo, valor);
+        } else {
+            writer.writeNull(campo);
+        }
+    }
+}
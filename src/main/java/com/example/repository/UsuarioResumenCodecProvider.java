@@ -0,0 +1,18 @@
+package com.example.repository;
+
+import com.example.model.UsuarioResumen;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+
+// Quarkus registra en el cliente de MongoDB todos los CodecProvider de la aplicación
+public class UsuarioResumenCodecProvider implements CodecProvider {
+
+    private static final UsuarioResumenCodec CODEC = new UsuarioResumenCodec();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        return clazz == UsuarioResumen.class ? (Codec<T>) CODEC : null;
+    }
+}
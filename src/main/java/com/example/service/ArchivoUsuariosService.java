@@ -0,0 +1,91 @@
+package com.example.service;
+
+import com.example.repository.UsuarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mueve a usuarios_archivo los usuarios desactivados hace más de usuarios.archivo.antiguedad, para
+ * que no sigan creciendo la colección y los índices que recorren las consultas de activos. Trabaja
+ * en lotes con una pausa entre ellos y un máximo de lotes por ejecución, así que nunca compite
+ * mucho tiempo con el tráfico normal; lo que no da tiempo a archivar queda para la siguiente.
+ * Varias instancias pueden ejecutarlo a la vez: archivar un lote dos veces no duplica nada.
+ */
+@ApplicationScoped
+public class ArchivoUsuariosService {
+
+    private static final Logger LOG = Logger.getLogger(ArchivoUsuariosService.class);
+
+    static final String CONTADOR_ARCHIVADOS = "usuarios.archivo.archivados";
+
+    @Inject
+    UsuarioRepository usuarioRepository;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "usuarios.archivo.habilitado", defaultValue = "true")
+    boolean habilitado;
+
+    @ConfigProperty(name = "usuarios.archivo.antiguedad", defaultValue = "30d")
+    Duration antiguedad;
+
+    @ConfigProperty(name = "usuarios.archivo.tamano-lote", defaultValue = "500")
+    int tamanoLote;
+
+    @ConfigProperty(name = "usuarios.archivo.pausa", defaultValue = "1s")
+    Duration pausa;
+
+    @ConfigProperty(name = "usuarios.archivo.max-lotes", defaultValue = "100")
+    int maxLotes;
+
+    @Scheduled(every = "{usuarios.archivo.intervalo}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> archivoPeriodico() {
+        if (!habilitado) {
+            return Uni.createFrom().voidItem();
+        }
+        LocalDateTime corte = LocalDateTime.now().minus(antiguedad);
+        return archivar(corte)
+                .invoke(total -> {
+                    if (total > 0) {
+                        LOG.infof("Archivados %d usuarios desactivados antes de %s", total, corte);
+                    }
+                })
+                .onFailure().invoke(throwable ->
+                    LOG.error("Error al archivar usuarios desactivados", throwable))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    // Un lote incompleto indica que no quedan más por archivar
+    Uni<Long> archivar(LocalDateTime corte) {
+        AtomicLong archivados = new AtomicLong();
+        return Multi.createBy().repeating()
+                .uni(() -> usuarioRepository.findInactivosAntesDe(corte, tamanoLote)
+                        .call(lote -> lote.isEmpty()
+                                ? Uni.createFrom().voidItem()
+                                : usuarioRepository.archivar(lote).invoke(borrados -> {
+                                    archivados.addAndGet(borrados);
+                                    registry.counter(CONTADOR_ARCHIVADOS).increment(borrados);
+                                }))
+                        .map(List::size)
+                        .call(leidos -> leidos == tamanoLote
+                                ? Uni.createFrom().voidItem().onItem().delayIt().by(pausa)
+                                : Uni.createFrom().voidItem()))
+                .whilst(leidos -> leidos == tamanoLote)
+                .select().first(maxLotes)
+                .collect().last()
+                .map(ignorado -> archivados.get());
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.service;
+
+import com.example.model.Usuario;
+import com.example.repository.UsuarioRepository;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Caché de usuarios activos por id, compartida por las versiones reactiva e imperativa del servicio.
+ *
+ * Una carga que empezó antes de una escritura no puede volver a dejar el usuario anterior en la
+ * caché: Caffeine descarta la carga en curso al invalidar, y cada invalidación cambia la generación
+ * del id, que forma parte de la clave del coalescedor, así que las cargas posteriores no se unen a
+ * una consulta lanzada antes de escribir.
+ *
+ * Las escrituras de otras réplicas se invalidan con el feed de cambios (usuarios.cache.invalidacion-distribuida).
+ * Una réplica puede servir un usuario desactualizado hasta que le llega el evento y, si el feed está
+ * caído o deshabilitado, como mucho durante el expire-after-write de la caché (60s). Al suscribirse
+ * al feed, también al reconectar, se vacía la caché porque pueden haberse perdido eventos.
+ */
+@ApplicationScoped
+public class CacheUsuariosService {
+
+    private static final Logger LOG = Logger.getLogger(CacheUsuariosService.class);
+
+    // Potencia de dos: dos ids que comparten generación sólo provocan una consulta de más
+    private static final int GENERACIONES = 1024;
+
+    @Inject
+    UsuarioRepository usuarioRepository;
+
+    @Inject
+    CoalescedorConsultas coalescedor;
+
+    @Inject
+    CambiosUsuariosService cambiosUsuarios;
+
+    @Inject
+    @CacheName("usuarios-por-id")
+    Cache usuariosPorId;
+
+    @ConfigProperty(name = "usuarios.cache.invalidacion-distribuida", defaultValue = "true")
+    boolean invalidacionDistribuida;
+
+    @ConfigProperty(name = "usuarios.cambios.reintento-minimo", defaultValue = "1s")
+    Duration reintentoMinimo;
+
+    @ConfigProperty(name = "usuarios.cambios.reintento-maximo", defaultValue = "30s")
+    Duration reintentoMaximo;
+
+    private final AtomicLongArray generaciones = new AtomicLongArray(GENERACIONES);
+
+    private Cancellable suscripcion;
+
+    // Las consultas fallidas (incluido "no encontrado") no quedan en caché, pero las concurrentes
+    // para el mismo id comparten una sola consulta a MongoDB
+    public Uni<Usuario> obtener(ObjectId id) {
+        return usuariosPorId.getAsync(id, clave -> {
+            List<Object> claveConsulta = List.of(id, generaciones.get(indice(id)));
+            return coalescedor.ejecutar("buscar_por_id", claveConsulta, () -> usuarioRepository.findByIdAndActivo(id))
+                    .onItem().ifNull().failWith(UsuarioNoEncontradoException::new);
+        });
+    }
+
+    /**
+     * Como {@link #obtener(ObjectId)}, pero si el usuario en caché no tiene la versión indicada (la
+     * fechaActualizacion recién leída de MongoDB) se descarta y se vuelve a cargar.
+     */
+    public Uni<Usuario> obtener(ObjectId id, LocalDateTime version) {
+        return obtener(id).flatMap(usuario -> version.equals(usuario.fechaActualizacion.truncatedTo(ChronoUnit.MILLIS))
+                ? Uni.createFrom().item(usuario)
+                : invalidar(id).flatMap(invalidado -> obtener(id)));
+    }
+
+    // Tras cada escritura del usuario, cuando MongoDB ya la ha confirmado
+    public Uni<Void> invalidar(ObjectId id) {
+        generaciones.incrementAndGet(indice(id));
+        return usuariosPorId.invalidate(id);
+    }
+
+    void alIniciar(@Observes StartupEvent event) {
+        if (!invalidacionDistribuida) {
+            return;
+        }
+        suscripcion = cambiosUsuarios.observar(null)
+                // También al reconectar: mientras el feed estuvo caído pudieron perderse eventos
+                .onSubscription().call(this::vaciar)
+                .onItem().call(evento -> ObjectId.isValid(evento.id)
+                        ? invalidar(new ObjectId(evento.id))
+                        : Uni.createFrom().voidItem())
+                .onFailure().invoke(throwable ->
+                    LOG.warn("Invalidación de la caché de usuarios interrumpida, reintentando", throwable))
+                .onFailure().retry().withBackOff(reintentoMinimo, reintentoMaximo).indefinitely()
+                .subscribe().with(
+                    evento -> { },
+                    throwable -> LOG.error("La invalidación distribuida de la caché de usuarios se detuvo", throwable));
+    }
+
+    void alDetener(@Observes ShutdownEvent event) {
+        if (suscripcion != null) {
+            suscripcion.cancel();
+        }
+    }
+
+    private Uni<Void> vaciar() {
+        for (int i = 0; i < GENERACIONES; i++) {
+            generaciones.incrementAndGet(i);
+        }
+        return usuariosPorId.invalidateAll();
+    }
+
+    private static int indice(ObjectId id) {
+        return id.hashCode() & (GENERACIONES - 1);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.service;
+
+import com.example.model.EventoUsuario;
+import com.example.repository.UsuarioRepository;
+import com.mongodb.MongoCommandException;
+import io.quarkus.runtime.ShutdownEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
+import io.smallrye.mutiny.subscription.Cancellable;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Feed de cambios de usuarios. Un único change stream por instancia se reparte entre todos los
+ * suscriptores, cada uno con su propio buffer acotado; cuando un consumidor lento llena su buffer
+ * se le desconecta o se descartan sus eventos según usuarios.cambios.politica. Los últimos
+ * eventos se conservan en memoria para que un cliente que se reconecta con su último token los
+ * reciba sin abrir otro change stream. Un token anterior a ese historial necesita su propio change
+ * stream: como cada uno ocupa un cursor en MongoDB, sólo se admiten usuarios.cambios.max-reanudaciones
+ * a la vez y el resto se rechaza con ReanudacionRechazadaException.
+ */
+@ApplicationScoped
+public class CambiosUsuariosService {
+
+    private static final Logger LOG = Logger.getLogger(CambiosUsuariosService.class);
+
+    // ChangeStreamHistoryLost y ChangeStreamFatalError: el token ya no sirve para reanudar
+    private static final Set<Integer> ERRORES_TOKEN_INVALIDO = Set.of(280, 286);
+
+    public enum Politica {
+        DESCONECTAR,
+        DESCARTAR
+    }
+
+    @Inject
+    UsuarioRepository usuarioRepository;
+
+    @ConfigProperty(name = "usuarios.cambios.buffer", defaultValue = "256")
+    int capacidadBuffer;
+
+    @ConfigProperty(name = "usuarios.cambios.politica", defaultValue = "desconectar")
+    Politica politica;
+
+    @ConfigProperty(name = "usuarios.cambios.historial", defaultValue = "1000")
+    int tamanoHistorial;
+
+    @ConfigProperty(name = "usuarios.cambios.max-reanudaciones", defaultValue = "16")
+    int maxReanudaciones;
+
+    @ConfigProperty(name = "usuarios.cambios.reintento-minimo", defaultValue = "1s")
+    Duration reintentoMinimo;
+
+    @ConfigProperty(name = "usuarios.cambios.reintento-maximo", defaultValue = "30s")
+    Duration reintentoMaximo;
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+
+    // Eventos recientes, protegidos por el monitor de este servicio junto con el reparto
+    private final ArrayDeque<EventoUsuario> historial = new ArrayDeque<>();
+
+    private Cancellable flujo;
+
+    private volatile String ultimoToken;
+
+    private Semaphore reanudaciones;
+
+    @PostConstruct
+    void iniciar() {
+        reanudaciones = new Semaphore(maxReanudaciones);
+    }
+
+    /**
+     * @param desdeToken token del último evento recibido por el cliente, o null para recibir
+     *                   sólo los cambios a partir de ahora
+     */
+    public Multi<EventoUsuario> observar(String desdeToken) {
+        return Multi.createFrom().deferred(() -> {
+            Suscriptor suscriptor;
+            synchronized (this) {
+                iniciarSiNecesario();
+                List<EventoUsuario> pendientes = desdeToken != null ? pendientesDesde(desdeToken) : List.of();
+                if (pendientes == null) {
+                    return reanudarDedicado(desdeToken);
+                }
+                suscriptor = new Suscriptor(capacidadBuffer + pendientes.size());
+                pendientes.forEach(suscriptor.procesador::onNext);
+                suscriptores.add(suscriptor);
+            }
+            return suscriptor.procesador
+                    .onTermination().invoke(() -> {
+                        suscriptores.remove(suscriptor);
+                        if (suscriptor.descartados > 0) {
+                            LOG.infof("Suscriptor del feed de cambios cerrado con %d eventos descartados",
+                                      suscriptor.descartados);
+                        }
+                    });
+        });
+    }
+
+    // Token anterior al historial en memoria: este cliente necesita su propio change stream
+    private Multi<EventoUsuario> reanudarDedicado(String token) {
+        if (!reanudaciones.tryAcquire()) {
+            LOG.warnf("Reanudación del feed de cambios rechazada: ya hay %d change streams dedicados", maxReanudaciones);
+            return Multi.createFrom().failure(new ReanudacionRechazadaException());
+        }
+        LOG.debugf("Token %s fuera del historial, reanudando con un change stream dedicado", token);
+        return usuarioRepository.observarCambios(EventoUsuario.resumeToken(token))
+                .map(EventoUsuario::de)
+                .onTermination().invoke(reanudaciones::release);
+    }
+
+    public int suscriptoresActivos() {
+        return suscriptores.size();
+    }
+
+    void alDetener(@Observes ShutdownEvent event) {
+        synchronized (this) {
+            if (flujo != null) {
+                flujo.cancel();
+            }
+        }
+        suscriptores.forEach(suscriptor -> suscriptor.procesador.onComplete());
+    }
+
+    // El change stream se abre con el primer suscriptor y se mantiene mientras viva la aplicación
+    private void iniciarSiNecesario() {
+        if (flujo != null) {
+            return;
+        }
+        flujo = Multi.createFrom()
+                .deferred(() -> usuarioRepository.observarCambios(
+                        ultimoToken != null ? EventoUsuario.resumeToken(ultimoToken) : null))
+                .onCompletion().failWith(() -> new IllegalStateException("El change stream de usuarios se cerró"))
+                .onFailure().invoke(this::alFallar)
+                .onFailure().retry().withBackOff(reintentoMinimo, reintentoMaximo).indefinitely()
+                .map(EventoUsuario::de)
+                .subscribe().with(
+                    this::publicar,
+                    throwable -> LOG.error("El feed de cambios de usuarios se detuvo", throwable));
+    }
+
+    private synchronized void publicar(EventoUsuario evento) {
+        ultimoToken = evento.token;
+        historial.addLast(evento);
+        if (historial.size() > tamanoHistorial) {
+            historial.removeFirst();
+        }
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.entregar(evento);
+        }
+    }
+
+    // Eventos posteriores al token, o null si el token no está en el historial
+    private List<EventoUsuario> pendientesDesde(String token) {
+        if (token.equals(ultimoToken)) {
+            return List.of();
+        }
+        List<EventoUsuario> pendientes = new ArrayList<>();
+        Iterator<EventoUsuario> eventos = historial.descendingIterator();
+        while (eventos.hasNext()) {
+            EventoUsuario evento = eventos.next();
+            if (evento.token.equals(token)) {
+                Collections.reverse(pendientes);
+                return pendientes;
+            }
+            pendientes.add(evento);
+        }
+        return null;
+    }
+
+    private synchronized void alFallar(Throwable throwable) {
+        LOG.warn("Error en el change stream de usuarios, reintentando", throwable);
+        if (throwable instanceof MongoCommandException mongoException
+                && ERRORES_TOKEN_INVALIDO.contains(mongoException.getErrorCode())) {
+            // No se puede reanudar sin huecos: se empieza desde ahora y se olvida el historial
+            ultimoToken = null;
+            historial.clear();
+        }
+    }
+
+    private class Suscriptor {
+
+        final ArrayBlockingQueue<EventoUsuario> buffer;
+        final UnicastProcessor<EventoUsuario> procesador;
+        long descartados;
+
+        Suscriptor(int capacidad) {
+            this.buffer = new ArrayBlockingQueue<>(capacidad);
+            this.procesador = UnicastProcessor.create(buffer, null);
+        }
+
+        // Con el buffer lleno, el procesador falla con BackPressureFailure y el cliente se desconecta
+        void entregar(EventoUsuario evento) {
+            if (politica == Politica.DESCARTAR && buffer.remainingCapacity() == 0) {
+                descartados++;
+                return;
+            }
+            procesador.onNext(evento);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.UniEmitter;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa las consultas idénticas que coinciden en el tiempo: mientras hay una consulta en curso
+ * para una clave, las llamadas posteriores con la misma clave esperan su resultado en lugar de
+ * lanzar otra operación contra MongoDB. El resultado o el fallo se entrega a todas y la entrada
+ * se retira al terminar, así que no es una caché: la siguiente llamada vuelve a consultar.
+ * Cancelar una llamada no afecta a las demás; la consulta sólo se cancela cuando ya no queda
+ * nadie esperándola.
+ */
+@ApplicationScoped
+public class CoalescedorConsultas {
+
+    static final String CONTADOR_LANZADAS = "usuarios.consultas.lanzadas";
+    static final String CONTADOR_COALESCIDAS = "usuarios.consultas.coalescidas";
+    static final String CONTADOR_CANCELADAS = "usuarios.consultas.canceladas";
+
+    @Inject
+    MeterRegistry registry;
+
+    private final ConcurrentHashMap<List<Object>, Vuelo<?>> enCurso = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Counter> contadores = new ConcurrentHashMap<>();
+
+    public CoalescedorConsultas() {
+    }
+
+    public CoalescedorConsultas(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @param consulta nombre de la consulta, que también etiqueta las métricas
+     * @param clave    parámetros que identifican la consulta; deben implementar equals y hashCode
+     */
+    public <V> Uni<V> ejecutar(String consulta, Object clave, Supplier<Uni<V>> operacion) {
+        List<Object> claveCompleta = List.of(consulta, clave);
+        return Uni.createFrom().emitter(emisor -> unirse(claveCompleta, operacion, emisor));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> void unirse(List<Object> clave, Supplier<Uni<V>> operacion, UniEmitter<? super V> emisor) {
+        while (true) {
+            Vuelo<V> nuevo = new Vuelo<>(clave);
+            Vuelo<V> vuelo = (Vuelo<V>) enCurso.putIfAbsent(clave, nuevo);
+            boolean lanzar = vuelo == null;
+            if (lanzar) {
+                vuelo = nuevo;
+            }
+            if (vuelo.anadir(emisor)) {
+                Vuelo<V> actual = vuelo;
+                emisor.onTermination(() -> abandonar(actual, emisor));
+                if (lanzar) {
+                    contador(CONTADOR_LANZADAS, clave).increment();
+                    vuelo.iniciar(operacion);
+                } else {
+                    contador(CONTADOR_COALESCIDAS, clave).increment();
+                }
+                return;
+            }
+            // La consulta acaba de terminar o de cancelarse: se retira y se lanza otra
+            enCurso.remove(clave, vuelo);
+        }
+    }
+
+    // También se invoca tras entregar el resultado; entonces ya no hay nada que hacer
+    private void abandonar(Vuelo<?> vuelo, UniEmitter<?> emisor) {
+        if (vuelo.quitar(emisor)) {
+            enCurso.remove(vuelo.clave, vuelo);
+            contador(CONTADOR_CANCELADAS, vuelo.clave).increment();
+            vuelo.cancelar();
+        }
+    }
+
+    private Counter contador(String nombre, List<Object> clave) {
+        String consulta = (String) clave.get(0);
+        return contadores.computeIfAbsent(nombre + '|' + consulta, k -> Counter.builder(nombre)
+                .description(switch (nombre) {
+                    case CONTADOR_LANZADAS -> "Consultas lanzadas contra MongoDB";
+                    case CONTADOR_COALESCIDAS -> "Llamadas que esperaron una consulta idéntica en curso";
+                    default -> "Consultas canceladas porque nadie esperaba ya su resultado";
+                })
+                .tag("consulta", consulta)
+                .register(registry));
+    }
+
+    private final class Vuelo<V> {
+
+        final List<Object> clave;
+
+        // Protegidos por el monitor del vuelo
+        private final List<UniEmitter<? super V>> esperas = new ArrayList<>();
+        private boolean cerrado;
+        private boolean cancelado;
+        private Cancellable suscripcion;
+
+        Vuelo(List<Object> clave) {
+            this.clave = clave;
+        }
+
+        synchronized boolean anadir(UniEmitter<? super V> emisor) {
+            if (cerrado) {
+                return false;
+            }
+            esperas.add(emisor);
+            return true;
+        }
+
+        // true si era el último en esperar y hay que cancelar la consulta
+        synchronized boolean quitar(UniEmitter<?> emisor) {
+            if (cerrado || !esperas.remove(emisor) || !esperas.isEmpty()) {
+                return false;
+            }
+            cerrado = true;
+            return true;
+        }
+
+        void iniciar(Supplier<Uni<V>> operacion) {
+            Cancellable cancelable = Uni.createFrom().<V>deferred(operacion::get)
+                    .subscribe().with(this::completar, this::fallar);
+            synchronized (this) {
+                if (!cancelado) {
+                    suscripcion = cancelable;
+                    return;
+                }
+            }
+            cancelable.cancel();
+        }
+
+        void cancelar() {
+            Cancellable cancelable;
+            synchronized (this) {
+                cancelado = true;
+                cancelable = suscripcion;
+            }
+            if (cancelable != null) {
+                cancelable.cancel();
+            }
+        }
+
+        private void completar(V item) {
+            for (UniEmitter<? super V> emisor : cerrar()) {
+                emisor.complete(item);
+            }
+        }
+
+        private void fallar(Throwable failure) {
+            for (UniEmitter<? super V> emisor : cerrar()) {
+                emisor.fail(failure);
+            }
+        }
+
+        // Las llamadas que lleguen a partir de aquí lanzan una consulta nueva
+        private List<UniEmitter<? super V>> cerrar() {
+            List<UniEmitter<? super V>> pendientes;
+            synchronized (this) {
+                cerrado = true;
+                pendientes = new ArrayList<>(esperas);
+                esperas.clear();
+            }
+            enCurso.remove(clave, this);
+            return pendientes;
+        }
+    }
+}
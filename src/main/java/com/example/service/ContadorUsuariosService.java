@@ -0,0 +1,174 @@
+package com.example.service;
+
+import com.example.model.ConteoUsuarios;
+import com.example.repository.ConsistenciaCausal;
+import com.example.repository.ContadorRepository;
+import com.example.repository.UsuarioRepository;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conteo de usuarios activos mantenido de forma incremental por las altas y bajas, para que
+ * GET /api/usuarios/count no consulte MongoDB en cada petición. Se reconcilia periódicamente con
+ * un count real y, si está activado el modo compartido, se apoya en un documento de la colección
+ * "contadores" para que todas las réplicas converjan al mismo valor.
+ */
+@ApplicationScoped
+public class ContadorUsuariosService {
+
+    private static final Logger LOG = Logger.getLogger(ContadorUsuariosService.class);
+
+    static final String CONTADOR_ACTIVOS = "usuarios_activos";
+
+    private static final int INTENTOS_RECONCILIACION = 3;
+
+    @Inject
+    UsuarioRepository usuarioRepository;
+
+    @Inject
+    ContadorRepository contadorRepository;
+
+    @Inject
+    CoalescedorConsultas coalescedor;
+
+    @Inject
+    ConsistenciaCausal consistencia;
+
+    @ConfigProperty(name = "usuarios.contador.compartido", defaultValue = "true")
+    boolean compartido;
+
+    private final AtomicLong valor = new AtomicLong();
+
+    // Instante (ms) de la última vez que el valor se leyó de una fuente autoritativa
+    private volatile long sincronizadoEn;
+
+    private volatile boolean inicializado;
+
+    public Uni<ConteoUsuarios> obtener() {
+        if (!inicializado) {
+            return reconciliar().map(total -> new ConteoUsuarios(total, 0, true));
+        }
+        return Uni.createFrom().item(() ->
+            new ConteoUsuarios(valor.get(), System.currentTimeMillis() - sincronizadoEn, false));
+    }
+
+    public Uni<ConteoUsuarios> contarExacto() {
+        return contarExacto(null);
+    }
+
+    /**
+     * Count con la preferencia de lectura configurada. Sólo responde a quien lo pide: un secundario
+     * puede ir por detrás, así que el resultado no se guarda en el contador.
+     *
+     * @param token token de consistencia de una escritura del cliente: el conteo la incluye aunque
+     *              se haga en un secundario
+     */
+    public Uni<ConteoUsuarios> contarExacto(String token) {
+        // Los counts exactos simultáneos comparten la misma consulta; los que traen token sólo la
+        // comparten con los del mismo token
+        return coalescedor.ejecutar("contar_exacto", token != null ? token : CONTADOR_ACTIVOS, () ->
+                    consistencia.leer(token, sesion -> usuarioRepository.countActivos(sesion)))
+                .map(total -> new ConteoUsuarios(total, 0, true));
+    }
+
+    public Uni<Void> registrarAltas(long altas) {
+        return ajustar(altas);
+    }
+
+    public Uni<Void> registrarBaja() {
+        return ajustar(-1);
+    }
+
+    @Scheduled(every = "{usuarios.contador.reconciliacion}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> reconciliacionPeriodica() {
+        return reconciliar()
+                .onFailure().invoke(throwable ->
+                    LOG.error("Error al reconciliar el contador de usuarios", throwable))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    @Scheduled(every = "{usuarios.contador.sincronizacion}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> sincronizacionPeriodica() {
+        if (!compartido || !inicializado) {
+            return Uni.createFrom().voidItem();
+        }
+        // Recoge los incrementos hechos por otras réplicas sin recontar la colección
+        return contadorRepository.findById(CONTADOR_ACTIVOS)
+                .onItem().ifNotNull().invoke(contador -> {
+                    valor.set(contador.valor);
+                    sincronizadoEn = System.currentTimeMillis();
+                })
+                .onFailure().invoke(throwable ->
+                    LOG.error("Error al sincronizar el contador de usuarios", throwable))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    // Con el count del primario, el único que no puede hacer retroceder el contador. La reconciliación
+    // programada y la inicialización simultáneas comparten la consulta
+    private Uni<Long> reconciliar() {
+        return coalescedor.ejecutar("contar_activos", CONTADOR_ACTIVOS, () -> {
+            long inicio = System.currentTimeMillis();
+            Uni<Long> contar = usuarioRepository.countActivosEnPrimario();
+            return (compartido ? contarYFijar(contar, INTENTOS_RECONCILIACION) : contar.map(Reconciliacion::local))
+                    .invoke(reconciliacion -> {
+                        if (reconciliacion.fijado()) {
+                            valor.set(reconciliacion.total());
+                            sincronizadoEn = inicio;
+                            inicializado = true;
+                            LOG.debugf("Contador de usuarios reconciliado: %d", reconciliacion.total());
+                        }
+                    })
+                    .map(Reconciliacion::total);
+        });
+    }
+
+    /**
+     * Fija el documento compartido al total contado si nadie lo ha modificado desde que se leyó su
+     * versión: un incremento de otra réplica entre la lectura y la escritura se perdería con un $set.
+     * Si la versión ha cambiado se vuelve a contar; agotados los intentos se conserva el documento y
+     * la sincronización periódica lo recoge.
+     */
+    private Uni<Reconciliacion> contarYFijar(Uni<Long> contar, int intentos) {
+        return contadorRepository.findById(CONTADOR_ACTIVOS)
+                .map(contador -> contador != null ? contador.version : 0L)
+                .flatMap(version -> contar.flatMap(total ->
+                        contadorRepository.fijarSiVersion(CONTADOR_ACTIVOS, version, total)
+                                .flatMap(fijado -> {
+                                    if (fijado || intentos <= 1) {
+                                        if (!fijado) {
+                                            LOG.debugf("El contador compartido cambió durante %d reconciliaciones seguidas; "
+                                                    + "se conserva", INTENTOS_RECONCILIACION);
+                                        }
+                                        return Uni.createFrom().item(new Reconciliacion(total, fijado));
+                                    }
+                                    return contarYFijar(contar, intentos - 1);
+                                })));
+    }
+
+    private record Reconciliacion(long total, boolean fijado) {
+
+        static Reconciliacion local(long total) {
+            return new Reconciliacion(total, true);
+        }
+    }
+
+    // El contador es aproximado: un fallo al actualizarlo no debe hacer fallar la escritura del usuario
+    private Uni<Void> ajustar(long delta) {
+        valor.addAndGet(delta);
+        if (!compartido) {
+            return Uni.createFrom().voidItem();
+        }
+        return contadorRepository.incrementar(CONTADOR_ACTIVOS, delta)
+                .onFailure().invoke(throwable ->
+                    LOG.warn("No se pudo actualizar el contador compartido de usuarios", throwable))
+                .onFailure().recoverWithNull();
+    }
+}
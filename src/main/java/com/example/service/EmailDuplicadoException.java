@@ -0,0 +1,11 @@
+package com.example.service;
+
+// Subclase de IllegalArgumentException: el controlador la sigue respondiendo con 409
+public class EmailDuplicadoException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    public EmailDuplicadoException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.service;
+
+// Ya hay usuarios.exportacion.max-concurrentes exportaciones en curso
+public class ExportacionRechazadaException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ExportacionRechazadaException() {
+        super("Demasiadas exportaciones en curso, reintente más tarde");
+    }
+}
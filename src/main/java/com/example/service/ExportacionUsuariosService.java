@@ -0,0 +1,114 @@
+package com.example.service;
+
+import com.example.metricas.MetricasUsuarios;
+import com.example.model.FormatoExportacion;
+import com.example.repository.UsuarioRepository;
+import com.example.util.CompresorGzip;
+import com.example.util.EscritorCsvUsuario;
+import com.example.util.EscritorJsonUsuario;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.core.buffer.Buffer;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Exportación completa o incremental de usuarios (también los desactivados) ordenada por
+ * fechaActualizacion y _id. Los documentos se leen sin decodificar con lotes grandes del driver,
+ * se agrupan en bloques y cada bloque se formatea (y se comprime) en el worker pool, fuera del
+ * event loop. La contrapresión del cliente llega hasta el cursor, así que la memoria es la de un
+ * lote y un bloque sea cual sea el tamaño de la colección. Cada exportación ocupa una conexión del
+ * pool en cada getMore: su número está acotado para no dejar sin conexiones al tráfico interactivo.
+ */
+@ApplicationScoped
+public class ExportacionUsuariosService {
+
+    private static final Logger LOG = Logger.getLogger(ExportacionUsuariosService.class);
+
+    @Inject
+    UsuarioRepository usuarioRepository;
+
+    @Inject
+    MetricasUsuarios metricas;
+
+    @ConfigProperty(name = "usuarios.exportacion.batch-size", defaultValue = "5000")
+    int batchSize;
+
+    @ConfigProperty(name = "usuarios.exportacion.documentos-por-bloque", defaultValue = "1000")
+    int documentosPorBloque;
+
+    @ConfigProperty(name = "usuarios.exportacion.max-concurrentes", defaultValue = "2")
+    int maxConcurrentes;
+
+    private Semaphore exportaciones;
+
+    @PostConstruct
+    void iniciar() {
+        exportaciones = new Semaphore(maxConcurrentes);
+    }
+
+    /**
+     * @param since fechaActualizacion mínima (ISO, UTC) o null para exportar todo
+     * @param after id del último usuario recibido con fechaActualizacion igual a since, para
+     *              continuar una exportación interrumpida
+     * @param gzip  comprimir la salida como un único flujo gzip
+     */
+    public Multi<Buffer> exportar(FormatoExportacion formato, String since, String after, boolean gzip) {
+        LOG.debugf("Exportando usuarios (formato: %s, since: %s, after: %s)", formato, since, after);
+
+        LocalDateTime desde;
+        try {
+            desde = since != null ? LocalDateTime.parse(since) : null;
+        } catch (DateTimeParseException e) {
+            return metricas.medir("exportar", Multi.createFrom().failure(
+                new IllegalArgumentException("El parámetro 'since' debe ser una fecha ISO como 2024-01-31T10:15:30")));
+        }
+        if (after != null && (desde == null || !ObjectId.isValid(after))) {
+            return metricas.medir("exportar", Multi.createFrom().failure(
+                new IllegalArgumentException("El parámetro 'after' debe ser un ID válido y requiere 'since'")));
+        }
+        ObjectId despuesDe = after != null ? new ObjectId(after) : null;
+
+        return metricas.medir("exportar", Multi.createFrom().deferred(() -> {
+            if (!exportaciones.tryAcquire()) {
+                return Multi.createFrom().failure(new ExportacionRechazadaException());
+            }
+            return comprimir(bloques(formato, desde, despuesDe), gzip)
+                    .onTermination().invoke(exportaciones::release);
+        }).onFailure(throwable -> !(throwable instanceof ExportacionRechazadaException)).invoke(throwable ->
+            LOG.error("Error al exportar usuarios", throwable)));
+    }
+
+    private Multi<Buffer> bloques(FormatoExportacion formato, LocalDateTime desde, ObjectId despuesDe) {
+        Multi<Buffer> bloques = usuarioRepository.exportarDesde(desde, despuesDe, batchSize)
+                .group().intoLists().of(documentosPorBloque)
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .map(formato == FormatoExportacion.CSV
+                        ? EscritorCsvUsuario::escribir
+                        : EscritorJsonUsuario::escribirLineas);
+        if (formato == FormatoExportacion.CSV) {
+            return Multi.createBy().concatenating().streams(
+                    Multi.createFrom().item(() -> Buffer.buffer(EscritorCsvUsuario.CABECERA)), bloques);
+        }
+        return bloques;
+    }
+
+    private static Multi<Buffer> comprimir(Multi<Buffer> bloques, boolean gzip) {
+        if (!gzip) {
+            return bloques;
+        }
+        return Multi.createFrom().resource(CompresorGzip::new, compresor -> bloques
+                        .map(compresor::comprimir)
+                        .onCompletion().continueWith(() -> List.of(compresor.terminar())))
+                .withFinalizer(CompresorGzip::cerrar);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.service;
+
+import com.example.repository.UsuarioRepository;
+import com.example.util.FiltroBloom;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.stream.Collectors;
+
+/**
+ * Filtro de Bloom con los emails de los usuarios activos, para que el alta no consulte MongoDB
+ * cuando el email es nuevo, que es el caso habitual. Un positivo se confirma con existsByEmail.
+ * Las altas y actualizaciones de esta réplica lo amplían al momento; las bajas y las escrituras de
+ * otras réplicas se recogen al reconstruirlo, la primera vez al arrancar y después periódicamente.
+ * Un email que falte en el filtro sólo evita la comprobación previa: el índice único de email
+ * sigue rechazando el duplicado.
+ */
+@ApplicationScoped
+public class FiltroEmailsService {
+
+    private static final Logger LOG = Logger.getLogger(FiltroEmailsService.class);
+
+    static final String CONTADOR_COMPROBACIONES = "usuarios.filtro_emails.comprobaciones";
+
+    @Inject
+    UsuarioRepository usuarioRepository;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "usuarios.filtro-emails.habilitado", defaultValue = "true")
+    boolean habilitado;
+
+    @ConfigProperty(name = "usuarios.filtro-emails.capacidad", defaultValue = "1000000")
+    long capacidad;
+
+    @ConfigProperty(name = "usuarios.filtro-emails.tasa-falsos-positivos", defaultValue = "0.01")
+    double tasaFalsosPositivos;
+
+    @ConfigProperty(name = "usuarios.filtro-emails.batch-size", defaultValue = "5000")
+    int batchSize;
+
+    // null hasta la primera construcción: mientras tanto todas las altas consultan MongoDB
+    private volatile FiltroBloom filtro;
+
+    // Durante una reconstrucción, las altas se anotan también en el filtro nuevo
+    private volatile FiltroBloom enConstruccion;
+
+    @PostConstruct
+    void registrarMetricas() {
+        Gauge.builder("usuarios.filtro_emails.tasa_falsos_positivos", this, FiltroEmailsService::tasaEstimada)
+                .description("Tasa de falsos positivos estimada con la ocupación actual del filtro")
+                .register(registry);
+        Gauge.builder("usuarios.filtro_emails.elementos", this, FiltroEmailsService::elementos)
+                .description("Emails anotados en el filtro")
+                .register(registry);
+    }
+
+    /**
+     * @return true si el email seguro que no pertenece a ningún usuario activo y puede omitirse la
+     *         consulta; false si hay que comprobarlo en MongoDB
+     */
+    public boolean descarta(String email) {
+        FiltroBloom actual = filtro;
+        if (!habilitado || actual == null || actual.puedeContener(email)) {
+            return false;
+        }
+        registry.counter(CONTADOR_COMPROBACIONES, "outcome", "negativo").increment();
+        return true;
+    }
+
+    // Resultado de la consulta tras un positivo: los falsos positivos dan la tasa observada
+    public void confirmar(boolean existe) {
+        if (habilitado && filtro != null) {
+            registry.counter(CONTADOR_COMPROBACIONES, "outcome", existe ? "confirmado" : "falso_positivo").increment();
+        }
+    }
+
+    public void registrar(String email) {
+        FiltroBloom actual = filtro;
+        if (actual != null) {
+            actual.agregar(email);
+        }
+        FiltroBloom nuevo = enConstruccion;
+        if (nuevo != null) {
+            nuevo.agregar(email);
+        }
+    }
+
+    // La primera ejecución es al arrancar
+    @Scheduled(every = "{usuarios.filtro-emails.reconstruccion}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> reconstruccionPeriodica() {
+        if (!habilitado) {
+            return Uni.createFrom().voidItem();
+        }
+        return reconstruir()
+                .onFailure().invoke(throwable ->
+                    LOG.error("Error al reconstruir el filtro de emails", throwable))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    // Se construye aparte y se sustituye al terminar: hasta entonces se sigue usando el anterior
+    Uni<Long> reconstruir() {
+        FiltroBloom nuevo = new FiltroBloom(capacidad, tasaFalsosPositivos);
+        enConstruccion = nuevo;
+        return usuarioRepository.streamEmailsActivos(batchSize)
+                .invoke(nuevo::agregar)
+                .collect().with(Collectors.counting())
+                .invoke(total -> {
+                    filtro = nuevo;
+                    if (total > capacidad) {
+                        LOG.warnf("Hay %d usuarios activos y el filtro de emails está dimensionado para %d: "
+                                + "aumente usuarios.filtro-emails.capacidad", total, capacidad);
+                    }
+                    LOG.infof("Filtro de emails reconstruido: %d emails, tasa de falsos positivos estimada %.4f",
+                            total, nuevo.tasaFalsosPositivosEstimada());
+                })
+                .onTermination().invoke(() -> enConstruccion = null);
+    }
+
+    private double tasaEstimada() {
+        FiltroBloom actual = filtro;
+        return actual != null ? actual.tasaFalsosPositivosEstimada() : Double.NaN;
+    }
+
+    private double elementos() {
+        FiltroBloom actual = filtro;
+        return actual != null ? actual.elementos() : 0;
+    }
+}
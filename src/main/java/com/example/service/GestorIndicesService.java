@@ -0,0 +1,177 @@
+package com.example.service;
+
+import com.example.repository.UsuarioRepository;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Comprueba al arrancar que la colección de usuarios tiene los índices que necesitan las consultas
+ * ({@link UsuarioRepository#INDICES}), también en entornos no creados con init-mongo.js. Crea los
+ * que faltan; los que tienen las mismas claves pero otras opciones (p. ej. el índice único de email
+ * anterior, que no era parcial) sólo se informan, salvo con usuarios.indices.reemplazar. Entonces el
+ * índice nuevo se crea con otro nombre y el anterior se borra cuando el nuevo ya existe, así que la
+ * colección nunca se queda sin el índice único de email. Los índices que no usa ninguna consulta
+ * sólo se informan. Se ejecuta en segundo plano y no retrasa el inicio.
+ */
+@ApplicationScoped
+public class GestorIndicesService {
+
+    private static final Logger LOG = Logger.getLogger(GestorIndicesService.class);
+
+    @Inject
+    UsuarioRepository usuarioRepository;
+
+    @ConfigProperty(name = "usuarios.indices.verificar-al-iniciar", defaultValue = "true")
+    boolean verificarAlIniciar;
+
+    @ConfigProperty(name = "usuarios.indices.reemplazar", defaultValue = "false")
+    boolean reemplazar;
+
+    void alIniciar(@Observes StartupEvent event) {
+        if (!verificarAlIniciar) {
+            return;
+        }
+
+        usuarioRepository.listarIndices()
+                .collect().asList()
+                .flatMap(existentes -> {
+                    informarSobrantes(existentes);
+                    return Multi.createFrom().iterable(UsuarioRepository.INDICES)
+                            .onItem().transformToUniAndConcatenate(indice -> verificar(indice, existentes))
+                            .collect().with(Collectors.counting());
+                })
+                .subscribe().with(
+                    corregidos -> LOG.infof("Índices de usuarios verificados: %d creados o reemplazados", corregidos),
+                    throwable -> LOG.error("Error al verificar los índices de usuarios", throwable));
+    }
+
+    // Emite el nombre del índice si lo ha creado o reemplazado, nada si ya era correcto o no se toca
+    Uni<String> verificar(IndexModel indice, List<BsonDocument> existentes) {
+        String nombre = indice.getOptions().getName();
+        BsonDocument claves = documento(indice.getKeys());
+        List<BsonDocument> mismos = existentes.stream()
+                .filter(candidato -> nombre.equals(nombreDe(candidato)) || mismasClaves(claves, candidato.getDocument("key")))
+                .toList();
+
+        if (mismos.isEmpty()) {
+            LOG.infof("Creando índice %s", nombre);
+            return usuarioRepository.crearIndice(indice).replaceWith(nombre);
+        }
+        List<String> distintos = mismos.stream()
+                .filter(existente -> !coincide(indice, existente))
+                .map(GestorIndicesService::nombreDe)
+                .toList();
+        if (distintos.isEmpty()) {
+            return Uni.createFrom().nullItem();
+        }
+        if (!reemplazar) {
+            LOG.warnf("Los índices %s no coinciden con el que necesitan las consultas (%s); "
+                    + "se mantienen hasta reemplazarlos a mano o con usuarios.indices.reemplazar=true", distintos, nombre);
+            return Uni.createFrom().nullItem();
+        }
+
+        // Si una ejecución anterior ya creó el índice correcto sólo queda borrar los antiguos
+        boolean yaCreado = distintos.size() < mismos.size();
+        String nuevo = nombreLibre(nombre, existentes);
+        Uni<Void> crear = yaCreado
+                ? Uni.createFrom().voidItem()
+                : usuarioRepository.crearIndice(conNombre(indice, nuevo))
+                        .invoke(() -> LOG.infof("Creado el índice %s que reemplaza a %s", nuevo, distintos));
+        return crear
+                .onFailure().invoke(throwable -> LOG.errorf(throwable,
+                        "No se pudo crear el índice %s; se mantienen %s", nuevo, distintos))
+                .chain(() -> Multi.createFrom().iterable(distintos)
+                        .onItem().transformToUniAndConcatenate(anterior -> usuarioRepository.eliminarIndice(anterior)
+                                .invoke(() -> LOG.infof("Borrado el índice %s", anterior))
+                                .onFailure().invoke(throwable -> LOG.errorf(throwable,
+                                        "No se pudo borrar el índice %s", anterior)))
+                        .collect().last())
+                .replaceWith(nombre)
+                .onFailure().recoverWithNull();
+    }
+
+    // MongoDB no admite dos índices con el mismo nombre: el de reemplazo lleva un sufijo libre
+    static String nombreLibre(String nombre, List<BsonDocument> existentes) {
+        Set<String> usados = existentes.stream().map(GestorIndicesService::nombreDe).collect(Collectors.toSet());
+        String candidato = nombre;
+        for (int i = 2; usados.contains(candidato); i++) {
+            candidato = nombre + "_v" + i;
+        }
+        return candidato;
+    }
+
+    private static IndexModel conNombre(IndexModel indice, String nombre) {
+        IndexOptions opciones = indice.getOptions();
+        return new IndexModel(indice.getKeys(), new IndexOptions()
+                .name(nombre)
+                .unique(opciones.isUnique())
+                .partialFilterExpression(opciones.getPartialFilterExpression()));
+    }
+
+    // Un índice requerido puede llevar otro nombre si se creó como reemplazo
+    private static void informarSobrantes(List<BsonDocument> existentes) {
+        existentes.stream()
+                .filter(existente -> !nombreDe(existente).equals("_id_")
+                        && UsuarioRepository.INDICES.stream().noneMatch(indice -> coincide(indice, existente)
+                                || indice.getOptions().getName().equals(nombreDe(existente))))
+                .forEach(existente -> LOG.infof("El índice %s no lo usa ninguna consulta de la aplicación", nombreDe(existente)));
+    }
+
+    private static String nombreDe(BsonDocument indice) {
+        return indice.getString("name").getValue();
+    }
+
+    static boolean coincide(IndexModel indice, BsonDocument existente) {
+        BsonDocument filtro = indice.getOptions().getPartialFilterExpression() != null
+                ? documento(indice.getOptions().getPartialFilterExpression())
+                : null;
+        boolean unico = Boolean.TRUE.equals(indice.getOptions().isUnique());
+        return mismasClaves(documento(indice.getKeys()), existente.getDocument("key"))
+                && unico == existente.getBoolean("unique", BsonBoolean.FALSE).getValue()
+                && Objects.equals(filtro, existente.get("partialFilterExpression"));
+    }
+
+    // El orden de las claves importa; 1 y 1.0 son la misma dirección (mongosh puede guardar dobles)
+    static boolean mismasClaves(BsonDocument requeridas, BsonDocument existentes) {
+        List<Map.Entry<String, BsonValue>> a = new ArrayList<>(requeridas.entrySet());
+        List<Map.Entry<String, BsonValue>> b = new ArrayList<>(existentes.entrySet());
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            BsonValue x = a.get(i).getValue();
+            BsonValue y = b.get(i).getValue();
+            boolean mismoValor = x.isNumber() && y.isNumber()
+                    ? x.asNumber().doubleValue() == y.asNumber().doubleValue()
+                    : x.equals(y);
+            if (!a.get(i).getKey().equals(b.get(i).getKey()) || !mismoValor) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static BsonDocument documento(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.service;
+
+import com.example.repository.UsuarioRepository;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.util.stream.Collectors;
+
+/**
+ * Completa los campos de búsqueda (nombreNormalizado, nombreNgramas) de los documentos creados
+ * antes de que existieran o insertados fuera de la aplicación. Se ejecuta en segundo plano al
+ * arrancar y no retrasa el inicio.
+ */
+@ApplicationScoped
+public class IndexacionNombresService {
+
+    private static final Logger LOG = Logger.getLogger(IndexacionNombresService.class);
+
+    @Inject
+    UsuarioRepository usuarioRepository;
+
+    @ConfigProperty(name = "usuarios.busqueda.indexar-al-iniciar", defaultValue = "true")
+    boolean indexarAlIniciar;
+
+    @ConfigProperty(name = "usuarios.busqueda.indexacion.batch-size", defaultValue = "500")
+    int batchSize;
+
+    @ConfigProperty(name = "usuarios.busqueda.indexacion.concurrencia", defaultValue = "4")
+    int concurrencia;
+
+    void alIniciar(@Observes StartupEvent event) {
+        if (!indexarAlIniciar) {
+            return;
+        }
+
+        usuarioRepository.findSinNombreIndexado(batchSize)
+                .onItem().transformToUni(usuario -> {
+                    usuario.indexarNombre();
+                    return usuarioRepository.guardarIndiceNombre(usuario);
+                })
+                .merge(concurrencia)
+                .collect().with(Collectors.counting())
+                .subscribe().with(
+                    total -> LOG.infof("Índice de nombres completado: %d usuarios actualizados", total),
+                    throwable -> LOG.error("Error al completar el índice de nombres", throwable));
+    }
+}
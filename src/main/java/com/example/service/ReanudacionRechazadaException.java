@@ -0,0 +1,11 @@
+package com.example.service;
+
+// Ya hay usuarios.cambios.max-reanudaciones change streams dedicados abiertos
+public class ReanudacionRechazadaException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ReanudacionRechazadaException() {
+        super("Demasiadas reanudaciones del feed de cambios en curso, reintente más tarde");
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.service;
+
+public class UsuarioNoEncontradoException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UsuarioNoEncontradoException() {
+        super("Usuario no encontrado");
+    }
+}
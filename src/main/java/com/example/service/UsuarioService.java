@@ -1,15 +1,46 @@
 package com.example.service;
 
+import com.example.model.ConteoUsuarios;
+import com.example.model.ElementoImportacion;
+import com.example.model.Escritura;
+import com.example.model.ModoBusqueda;
+import com.example.model.PaginaUsuarios;
+import com.example.model.ProyeccionUsuario;
+import com.example.model.ResultadoImportacion;
+import com.example.metricas.MetricasUsuarios;
 import com.example.model.Usuario;
+import com.example.repository.ConsistenciaCausal;
 import com.example.repository.UsuarioRepository;
+import com.example.util.EtagUsuario;
+import com.example.util.NormalizadorTexto;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.reactivestreams.client.ClientSession;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 @ApplicationScoped
 public class UsuarioService {
@@ -19,114 +50,513 @@ public class UsuarioService {
     @Inject
     UsuarioRepository usuarioRepository;
 
-    public Multi<Usuario> obtenerTodos() {
-        LOG.debug("Obteniendo todos los usuarios activos");
-        return usuarioRepository.findActivos()
+    @Inject
+    ContadorUsuariosService contadorUsuarios;
+
+    @Inject
+    FiltroEmailsService filtroEmails;
+
+    @Inject
+    Validator validator;
+
+    @Inject
+    MetricasUsuarios metricas;
+
+    @Inject
+    ConsistenciaCausal consistencia;
+
+    // Las instancias cacheadas se comparten entre peticiones: no deben modificarse
+    @Inject
+    CacheUsuariosService cacheUsuarios;
+
+    @ConfigProperty(name = "usuarios.paginacion.limite-por-defecto", defaultValue = "100")
+    int limitePorDefecto;
+
+    @ConfigProperty(name = "usuarios.paginacion.limite-maximo", defaultValue = "1000")
+    int limiteMaximo;
+
+    @ConfigProperty(name = "usuarios.streaming.batch-size", defaultValue = "500")
+    int streamingBatchSize;
+
+    @ConfigProperty(name = "usuarios.importacion.tamano-lote", defaultValue = "500")
+    int tamanoLoteImportacion;
+
+    @ConfigProperty(name = "usuarios.busqueda.limite-por-defecto", defaultValue = "20")
+    int limiteBusquedaPorDefecto;
+
+    @ConfigProperty(name = "usuarios.busqueda.limite-maximo", defaultValue = "100")
+    int limiteBusquedaMaximo;
+
+    @ConfigProperty(name = "usuarios.busqueda.max-candidatos", defaultValue = "1000")
+    int maxCandidatosBusqueda;
+
+    public Uni<PaginaUsuarios<Usuario>> obtenerTodos(String after, Integer limit) {
+        return obtenerTodos(null, after, limit);
+    }
+
+    /**
+     * Como {@link #obtenerTodos(String, Integer)} pero proyectando en MongoDB sólo los campos
+     * pedidos. La vista resumen se decodifica directamente a UsuarioResumen.
+     *
+     * @param token token de consistencia de una escritura anterior del cliente, o null
+     */
+    public Uni<? extends PaginaUsuarios<?>> obtenerTodos(String after, Integer limit, ProyeccionUsuario proyeccion,
+                                                         String token) {
+        return consistencia.leer(token, sesion -> obtenerTodos(sesion, after, limit, proyeccion));
+    }
+
+    // Documentos BSON sin decodificar: el controlador escribe el JSON directamente desde sus bytes
+    public Uni<PaginaUsuarios<RawBsonDocument>> obtenerTodosSinDecodificar(String after, Integer limit, String token) {
+        return consistencia.leer(token, sesion -> obtenerPagina(after, limit, (cursor, limite) ->
+            usuarioRepository.findActivosDespuesDeSinDecodificar(sesion, cursor, limite + 1)
+                    .map(documentos -> PaginaUsuarios.de(documentos, limite,
+                                                         documento -> documento.getObjectId("_id").getValue()))));
+    }
+
+    private Uni<PaginaUsuarios<Usuario>> obtenerTodos(ClientSession sesion, String after, Integer limit) {
+        return obtenerPagina(after, limit, (cursor, limite) ->
+            usuarioRepository.findActivosDespuesDe(sesion, cursor, limite + 1, null)
+                    .map(usuarios -> PaginaUsuarios.de(usuarios, limite)));
+    }
+
+    private Uni<? extends PaginaUsuarios<?>> obtenerTodos(ClientSession sesion, String after, Integer limit,
+                                                          ProyeccionUsuario proyeccion) {
+        if (proyeccion == null) {
+            return obtenerTodos(sesion, after, limit);
+        }
+        if (proyeccion.esResumen()) {
+            return obtenerPagina(after, limit, (cursor, limite) ->
+                usuarioRepository.findResumenesActivosDespuesDe(sesion, cursor, limite + 1)
+                        .map(resumenes -> PaginaUsuarios.de(resumenes, limite, resumen -> resumen.id)));
+        }
+        return obtenerPagina(after, limit, (cursor, limite) ->
+            usuarioRepository.findActivosDespuesDe(sesion, cursor, limite + 1, proyeccion.bson())
+                    .map(usuarios -> PaginaUsuarios.de(usuarios, limite).map(proyeccion::aplicar)));
+    }
+
+    private <T> Uni<PaginaUsuarios<T>> obtenerPagina(String after, Integer limit,
+                                                     BiFunction<ObjectId, Integer, Uni<PaginaUsuarios<T>>> consulta) {
+        LOG.debugf("Obteniendo usuarios activos después de: %s (límite: %s)", after, limit);
+
+        if (after != null && !ObjectId.isValid(after)) {
+            return metricas.medir("obtener_todos", Uni.createFrom().failure(
+                new IllegalArgumentException("Cursor de paginación inválido")));
+        }
+        if (limit != null && limit < 1) {
+            return metricas.medir("obtener_todos", Uni.createFrom().failure(
+                new IllegalArgumentException("El parámetro 'limit' debe ser mayor que cero")));
+        }
+
+        int limite = Math.min(limit != null ? limit : limitePorDefecto, limiteMaximo);
+        ObjectId cursor = after != null ? new ObjectId(after) : null;
+
+        // Se pide un elemento extra para saber si existe una página siguiente
+        return metricas.medir("obtener_todos", consulta.apply(cursor, limite)
+                .onFailure().invoke(throwable -> 
+                    LOG.error("Error al obtener usuarios", throwable)));
+    }
+
+    public Multi<Usuario> streamTodos(String after) {
+        LOG.debugf("Transmitiendo usuarios activos después de: %s", after);
+
+        if (after != null && !ObjectId.isValid(after)) {
+            return metricas.medir("stream_todos", Multi.createFrom().failure(
+                new IllegalArgumentException("Cursor de paginación inválido")));
+        }
+
+        ObjectId cursor = after != null ? new ObjectId(after) : null;
+
+        return metricas.medir("stream_todos", usuarioRepository.streamActivosDespuesDe(cursor, streamingBatchSize)
                 .onFailure().invoke(throwable -> 
-                    LOG.error("Error al obtener usuarios", throwable));
+                    LOG.error("Error al transmitir usuarios", throwable)));
     }
 
     public Uni<Usuario> obtenerPorId(String id) {
         LOG.debugf("Obteniendo usuario por ID: %s", id);
         
         if (!ObjectId.isValid(id)) {
-            return Uni.createFrom().failure(
-                new IllegalArgumentException("ID de usuario inválido"));
+            return metricas.medir("obtener_por_id", Uni.createFrom().failure(
+                new IllegalArgumentException("ID de usuario inválido")));
         }
 
-        return usuarioRepository.findByIdAndActivo(new ObjectId(id))
-                .onItem().ifNull().failWith(() -> 
-                    new RuntimeException("Usuario no encontrado"))
+        return metricas.medir("obtener_por_id", cacheUsuarios.obtener(new ObjectId(id))
                 .onFailure().invoke(throwable -> 
-                    LOG.errorf(throwable, "Error al obtener usuario con ID: %s", id));
+                    LOG.errorf(throwable, "Error al obtener usuario con ID: %s", id)));
+    }
+
+    // Con la versión actual leída de MongoDB: no devuelve una anterior que siga en la caché
+    public Uni<Usuario> obtenerPorId(String id, LocalDateTime version) {
+        return metricas.medir("obtener_por_id", cacheUsuarios.obtener(new ObjectId(id), version));
+    }
+
+    /**
+     * fechaActualizacion del usuario, para responder a If-None-Match sin cargarlo: sólo ese campo,
+     * leído siempre de MongoDB. La caché es de cada réplica y puede ir por detrás de una escritura
+     * hecha en otra, y una petición condicional no debe confirmar una versión que ya no es la actual.
+     */
+    public Uni<LocalDateTime> obtenerVersion(String id) {
+        if (!ObjectId.isValid(id)) {
+            return metricas.medir("obtener_version", Uni.createFrom().failure(
+                new IllegalArgumentException("ID de usuario inválido")));
+        }
+
+        return metricas.medir("obtener_version", usuarioRepository.findVersionActivo(new ObjectId(id))
+                .onItem().ifNull().failWith(UsuarioNoEncontradoException::new));
     }
 
     public Uni<Usuario> crear(@Valid Usuario usuario) {
+        return crear(null, usuario);
+    }
+
+    // Además del usuario devuelve el token de consistencia causal de la escritura
+    public Uni<Escritura<Usuario>> crearConToken(@Valid Usuario usuario) {
+        return consistencia.escribir(sesion -> crear(sesion, usuario));
+    }
+
+    private Uni<Usuario> crear(ClientSession sesion, Usuario usuario) {
         LOG.debugf("Creando nuevo usuario: %s", usuario.email);
         
-        return usuarioRepository.existsByEmail(usuario.email)
+        usuario.indexarNombre();
+
+        // Si el filtro descarta el email no hace falta consultar MongoDB antes de insertar
+        Uni<Boolean> existe = filtroEmails.descarta(usuario.email)
+                ? Uni.createFrom().item(false)
+                : usuarioRepository.existsByEmail(usuario.email).invoke(filtroEmails::confirmar);
+
+        return metricas.medir("crear", existe
                 .flatMap(exists -> {
                     if (exists) {
                         return Uni.createFrom().failure(
-                            new IllegalArgumentException("Ya existe un usuario con este email"));
+                            new EmailDuplicadoException("Ya existe un usuario con este email"));
                     }
-                    return usuarioRepository.persist(usuario);
+                    return usuarioRepository.insertar(sesion, usuario);
                 })
+                // Un alta concurrente con el mismo email la rechaza el índice único
+                .onFailure(UsuarioRepository::esClaveDuplicada).transform(throwable -> 
+                    new EmailDuplicadoException("Ya existe un usuario con este email"))
+                .invoke(usuarioCreado -> filtroEmails.registrar(usuarioCreado.email))
+                .call(usuarioCreado -> contadorUsuarios.registrarAltas(1))
                 .onItem().invoke(usuarioCreado -> 
                     LOG.infof("Usuario creado exitosamente: %s", usuarioCreado.id))
                 .onFailure().invoke(throwable -> 
-                    LOG.errorf(throwable, "Error al crear usuario: %s", usuario.email));
+                    LOG.errorf(throwable, "Error al crear usuario: %s", usuario.email)));
+    }
+
+    public Multi<ResultadoImportacion> importar(Multi<ElementoImportacion> elementos) {
+        LOG.debug("Importando usuarios por lotes");
+
+        AtomicInteger siguienteIndice = new AtomicInteger();
+
+        // Cada lote se procesa cuando termina el anterior: nunca hay más de un lote en memoria
+        return metricas.medir("importar", elementos
+                .group().intoLists().of(tamanoLoteImportacion)
+                .onItem().transformToUniAndConcatenate(lote -> 
+                    crearLote(lote, siguienteIndice.getAndAdd(lote.size())))
+                .onItem().<ResultadoImportacion>disjoint()
+                .onFailure().invoke(throwable -> 
+                    LOG.error("Error al importar usuarios", throwable)));
+    }
+
+    Uni<List<ResultadoImportacion>> crearLote(List<ElementoImportacion> elementos, int indiceInicial) {
+        // Los elementos ilegibles quedan como null: sus resultados se fijan aquí mismo
+        List<Usuario> lote = elementos.stream().map(elemento -> elemento.usuario).toList();
+        ResultadoImportacion[] resultados = new ResultadoImportacion[lote.size()];
+        List<Integer> candidatos = new ArrayList<>();
+        Set<String> emails = new HashSet<>();
+
+        for (int i = 0; i < lote.size(); i++) {
+            Usuario usuario = lote.get(i);
+            if (usuario == null) {
+                resultados[i] = ResultadoImportacion.ilegible(indiceInicial + i, elementos.get(i).error);
+                continue;
+            }
+            List<String> errores = validator.validate(usuario).stream()
+                    .map(violacion -> violacion.getPropertyPath() + ": " + violacion.getMessage())
+                    .toList();
+
+            if (!errores.isEmpty()) {
+                resultados[i] = ResultadoImportacion.invalido(indiceInicial + i, usuario, errores);
+            } else if (!emails.add(usuario.email)) {
+                resultados[i] = ResultadoImportacion.conflicto(indiceInicial + i, usuario,
+                        "Email repetido dentro de la importación");
+            } else {
+                candidatos.add(i);
+            }
+        }
+
+        if (candidatos.isEmpty()) {
+            return Uni.createFrom().item(Arrays.asList(resultados));
+        }
+
+        // Una sola consulta $in por lote en lugar de un count por usuario
+        return usuarioRepository.findEmailsExistentes(emails)
+                .flatMap(existentes -> {
+                    List<Integer> indicesNuevos = new ArrayList<>();
+                    for (int i : candidatos) {
+                        Usuario usuario = lote.get(i);
+                        if (existentes.contains(usuario.email)) {
+                            resultados[i] = ResultadoImportacion.conflicto(indiceInicial + i, usuario,
+                                    "Ya existe un usuario con este email");
+                        } else {
+                            indicesNuevos.add(i);
+                        }
+                    }
+                    return insertarNuevos(lote, indicesNuevos, indiceInicial, resultados);
+                })
+                .onItem().invoke(lista -> 
+                    LOG.infof("Lote de importación procesado: %d usuarios desde el índice %d", lote.size(), indiceInicial));
+    }
+
+    private Uni<List<ResultadoImportacion>> insertarNuevos(List<Usuario> lote, List<Integer> indicesNuevos,
+                                                           int indiceInicial, ResultadoImportacion[] resultados) {
+        if (indicesNuevos.isEmpty()) {
+            return Uni.createFrom().item(Arrays.asList(resultados));
+        }
+
+        List<Usuario> nuevos = new ArrayList<>(indicesNuevos.size());
+        for (int i : indicesNuevos) {
+            Usuario usuario = lote.get(i);
+            usuario.id = new ObjectId();
+            usuario.indexarNombre();
+            nuevos.add(usuario);
+        }
+
+        return usuarioRepository.insertarLote(nuevos)
+                .map(resultado -> List.<BulkWriteError>of())
+                .onFailure(MongoBulkWriteException.class)
+                .recoverWithItem(throwable -> ((MongoBulkWriteException) throwable).getWriteErrors())
+                .flatMap(erroresEscritura -> {
+                    for (BulkWriteError error : erroresEscritura) {
+                        int i = indicesNuevos.get(error.getIndex());
+                        Usuario usuario = lote.get(i);
+                        // El índice único de email resuelve las carreras con otras altas concurrentes
+                        resultados[i] = ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY
+                                ? ResultadoImportacion.conflicto(indiceInicial + i, usuario, "Ya existe un usuario con este email")
+                                : ResultadoImportacion.invalido(indiceInicial + i, usuario, List.of(error.getMessage()));
+                    }
+                    for (int i : indicesNuevos) {
+                        if (resultados[i] == null) {
+                            resultados[i] = ResultadoImportacion.creado(indiceInicial + i, lote.get(i));
+                            filtroEmails.registrar(lote.get(i).email);
+                        }
+                    }
+                    return contadorUsuarios.registrarAltas(indicesNuevos.size() - erroresEscritura.size())
+                            .replaceWith(Arrays.asList(resultados));
+                });
     }
 
     public Uni<Usuario> actualizar(String id, @Valid Usuario usuarioActualizado) {
+        return actualizar(null, id, usuarioActualizado, null);
+    }
+
+    /**
+     * @param ifMatch cabecera If-Match (o null): si ninguna de sus ETags es la versión actual falla
+     *                con VersionNoCoincideException sin modificar el usuario
+     */
+    public Uni<Escritura<Usuario>> actualizarConToken(String id, @Valid Usuario usuarioActualizado, String ifMatch) {
+        return consistencia.escribir(sesion -> actualizar(sesion, id, usuarioActualizado, ifMatch));
+    }
+
+    private Uni<Usuario> actualizar(ClientSession sesion, String id, Usuario usuarioActualizado, String ifMatch) {
         LOG.debugf("Actualizando usuario con ID: %s", id);
         
         if (!ObjectId.isValid(id)) {
-            return Uni.createFrom().failure(
-                new IllegalArgumentException("ID de usuario inválido"));
+            return metricas.medir("actualizar", Uni.createFrom().failure(
+                new IllegalArgumentException("ID de usuario inválido")));
         }
 
         ObjectId objectId = new ObjectId(id);
+        List<LocalDateTime> versiones = EtagUsuario.versiones(ifMatch, objectId);
+        usuarioActualizado.indexarNombre();
 
-        return usuarioRepository.existsByEmailAndNotId(usuarioActualizado.email, objectId)
-                .flatMap(exists -> {
-                    if (exists) {
-                        return Uni.createFrom().failure(
-                            new IllegalArgumentException("Ya existe otro usuario con este email"));
-                    }
-                    
-                    return usuarioRepository.findByIdAndActivo(objectId)
-                            .onItem().ifNull().failWith(() -> 
-                                new RuntimeException("Usuario no encontrado"))
-                            .flatMap(usuarioExistente -> {
-                                usuarioExistente.nombre = usuarioActualizado.nombre;
-                                usuarioExistente.email = usuarioActualizado.email;
-                                usuarioExistente.telefono = usuarioActualizado.telefono;
-                                usuarioExistente.actualizar();
-                                
-                                return usuarioRepository.update(usuarioExistente);
-                            });
-                })
+        // Un único findOneAndUpdate condicional: el índice único de email detecta los conflictos
+        // sin la ventana entre comprobar y escribir que tenía el conteo previo, y la versión de
+        // If-Match forma parte del filtro
+        return metricas.medir("actualizar", usuarioRepository.actualizarActivo(sesion, objectId, versiones, usuarioActualizado)
+                .onItem().ifNull().switchTo(() -> sinActualizar(objectId, versiones))
+                .onFailure(UsuarioRepository::esClaveDuplicada).transform(throwable -> 
+                    new EmailDuplicadoException("Ya existe otro usuario con este email"))
+                .invoke(usuarioAct -> filtroEmails.registrar(usuarioAct.email))
+                .call(() -> cacheUsuarios.invalidar(objectId))
                 .onItem().invoke(usuarioAct -> 
                     LOG.infof("Usuario actualizado exitosamente: %s", usuarioAct.id))
                 .onFailure().invoke(throwable -> 
-                    LOG.errorf(throwable, "Error al actualizar usuario con ID: %s", id));
+                    LOG.errorf(throwable, "Error al actualizar usuario con ID: %s", id)));
+    }
+
+    // Sólo con If-Match hace falta una segunda lectura para distinguir "no existe" de "otra versión"
+    private Uni<Usuario> sinActualizar(ObjectId id, List<LocalDateTime> versiones) {
+        if (versiones == null) {
+            return Uni.createFrom().failure(new UsuarioNoEncontradoException());
+        }
+        return usuarioRepository.findVersionActivo(id)
+                .onItem().transformToUni(version -> Uni.createFrom().failure(version == null
+                        ? new UsuarioNoEncontradoException()
+                        : new VersionNoCoincideException(version)));
     }
 
     public Uni<Boolean> eliminar(String id) {
+        return eliminar(null, id);
+    }
+
+    public Uni<Escritura<Boolean>> eliminarConToken(String id) {
+        return consistencia.escribir(sesion -> eliminar(sesion, id));
+    }
+
+    private Uni<Boolean> eliminar(ClientSession sesion, String id) {
         LOG.debugf("Eliminando usuario con ID: %s", id);
         
         if (!ObjectId.isValid(id)) {
-            return Uni.createFrom().failure(
-                new IllegalArgumentException("ID de usuario inválido"));
+            return metricas.medir("eliminar", Uni.createFrom().failure(
+                new IllegalArgumentException("ID de usuario inválido")));
         }
 
-        return usuarioRepository.findByIdAndActivo(new ObjectId(id))
-                .onItem().ifNull().failWith(() -> 
-                    new RuntimeException("Usuario no encontrado"))
-                .flatMap(usuario -> {
-                    usuario.activo = false;
-                    usuario.actualizar();
-                    return usuarioRepository.update(usuario);
-                })
+        ObjectId objectId = new ObjectId(id);
+
+        return metricas.medir("eliminar", usuarioRepository.desactivar(sesion, objectId)
+                .onItem().ifNull().failWith(UsuarioNoEncontradoException::new)
+                // Se invalida tras la escritura para no volver a servir un usuario desactivado
+                .call(() -> cacheUsuarios.invalidar(objectId))
+                .call(() -> contadorUsuarios.registrarBaja())
                 .map(usuario -> true)
                 .onItem().invoke(eliminado -> 
                     LOG.infof("Usuario eliminado exitosamente: %s", id))
                 .onFailure().invoke(throwable -> 
-                    LOG.errorf(throwable, "Error al eliminar usuario con ID: %s", id));
+                    LOG.errorf(throwable, "Error al eliminar usuario con ID: %s", id)));
     }
 
-    public Multi<Usuario> buscarPorNombre(String nombre) {
-        LOG.debugf("Buscando usuarios por nombre: %s", nombre);
-        return usuarioRepository.findByNombre(nombre)
-                .onFailure().invoke(throwable -> 
-                    LOG.errorf(throwable, "Error al buscar usuarios por nombre: %s", nombre));
+    public Multi<Usuario> buscarPorNombre(String nombre, ModoBusqueda modo, Integer limit) {
+        return buscar(null, nombre, modo, limit, null);
+    }
+
+    // nombreNormalizado se proyecta siempre porque lo necesita la ordenación por relevancia
+    public Multi<?> buscarPorNombre(String nombre, ModoBusqueda modo, Integer limit, ProyeccionUsuario proyeccion,
+                                    String token) {
+        return consistencia.leerFlujo(token, sesion -> proyeccion == null
+                ? buscar(sesion, nombre, modo, limit, null)
+                : buscar(sesion, nombre, modo, limit, proyeccion.bson("nombreNormalizado")).map(proyeccion::vista));
+    }
+
+    public Multi<RawBsonDocument> buscarPorNombreSinDecodificar(String nombre, ModoBusqueda modo, Integer limit,
+                                                               String token) {
+        return consistencia.leerFlujo(token, sesion -> buscar(nombre, modo, limit,
+                (prefijo, limite) -> usuarioRepository.findByPrefijoNombreSinDecodificar(sesion, prefijo, limite),
+                (ngramas, maxCandidatos) ->
+                    usuarioRepository.findByNgramasNombreSinDecodificar(sesion, ngramas, maxCandidatos),
+                documento -> documento.isString("nombreNormalizado")
+                        ? documento.getString("nombreNormalizado").getValue()
+                        : null,
+                documento -> documento.get("_id")));
+    }
+
+    private Multi<Usuario> buscar(ClientSession sesion, String nombre, ModoBusqueda modo, Integer limit,
+                                  Bson proyeccion) {
+        return buscar(nombre, modo, limit,
+                (prefijo, limite) -> usuarioRepository.findByPrefijoNombre(sesion, prefijo, limite, proyeccion),
+                (ngramas, maxCandidatos) ->
+                    usuarioRepository.findByNgramasNombre(sesion, ngramas, maxCandidatos, proyeccion),
+                usuario -> usuario.nombreNormalizado,
+                usuario -> usuario.id);
     }
 
-    public Uni<Long> contarUsuarios() {
-        LOG.debug("Contando usuarios activos");
-        return usuarioRepository.countActivos()
+    private <T> Multi<T> buscar(String nombre, ModoBusqueda modo, Integer limit,
+                                BiFunction<String, Integer, Multi<T>> porPrefijo,
+                                BiFunction<List<String>, Integer, Multi<T>> porNgramas,
+                                Function<T, String> nombreNormalizado, Function<T, Object> id) {
+        LOG.debugf("Buscando usuarios por nombre: %s (modo: %s)", nombre, modo);
+
+        int limite = Math.min(limit != null ? limit : limiteBusquedaPorDefecto, limiteBusquedaMaximo);
+        String consulta = NormalizadorTexto.normalizar(nombre);
+        List<String> ngramas = NormalizadorTexto.ngramas(consulta);
+
+        // Un texto más corto que un n-grama sólo puede resolverse por prefijo
+        Multi<T> resultados = modo == ModoBusqueda.PREFIJO || ngramas.isEmpty()
+                ? porPrefijo.apply(consulta, limite)
+                // Una consulta tras otra: la sesión causal no admite operaciones concurrentes
+                : porPrefijo.apply(consulta, limite).collect().asList()
+                        .flatMap(porPrefijoNombre -> porNgramas.apply(ngramas, maxCandidatosBusqueda).collect().asList()
+                                .map(porNgramasNombre -> unirCandidatos(porPrefijoNombre, porNgramasNombre, id,
+                                        maxCandidatosBusqueda, metricas)))
+                        .onItem().transformToMulti(candidatos -> Multi.createFrom().iterable(
+                            ordenarPorRelevancia(candidatos, nombreNormalizado, consulta, limite)));
+
+        return metricas.medir("buscar_por_nombre", resultados
                 .onFailure().invoke(throwable -> 
-                    LOG.error("Error al contar usuarios", throwable));
+                    LOG.errorf(throwable, "Error al buscar usuarios por nombre: %s", nombre)));
+    }
+
+    /**
+     * Los n-gramas devuelven hasta usuarios.busqueda.max-candidatos coincidencias en cualquier
+     * orden, así que con nombres frecuentes el límite puede dejar fuera el nombre exacto o los que
+     * empiezan por la consulta. Esos se piden aparte por el índice de nombreNormalizado y se añaden
+     * siempre; que se llegue al límite queda en usuarios.busqueda.candidatos_truncados.
+     */
+    static <T> List<T> unirCandidatos(List<T> porPrefijo, List<T> porNgramas, Function<T, Object> id,
+                                      int maxCandidatos, MetricasUsuarios metricas) {
+        if (porNgramas.size() >= maxCandidatos) {
+            LOG.debugf("Búsqueda con el máximo de %d candidatos por n-gramas", maxCandidatos);
+            metricas.registrarCandidatosTruncados();
+        }
+        Map<Object, T> candidatos = new LinkedHashMap<>();
+        porPrefijo.forEach(candidato -> candidatos.put(id.apply(candidato), candidato));
+        porNgramas.forEach(candidato -> candidatos.putIfAbsent(id.apply(candidato), candidato));
+        return new ArrayList<>(candidatos.values());
+    }
+
+    static List<Usuario> ordenarPorRelevancia(List<Usuario> candidatos, String consulta, int limite) {
+        return ordenarPorRelevancia(candidatos, usuario -> usuario.nombreNormalizado, consulta, limite);
+    }
+
+    // Los n-gramas sólo preseleccionan candidatos: aquí se descartan los falsos positivos y se ordena
+    static <T> List<T> ordenarPorRelevancia(List<T> candidatos, Function<T, String> nombreNormalizado,
+                                            String consulta, int limite) {
+        return candidatos.stream()
+                .map(candidato -> new Candidato<>(candidato, nombreNormalizado.apply(candidato)))
+                .filter(candidato -> candidato.nombre != null && candidato.nombre.contains(consulta))
+                .sorted(Comparator.<Candidato<T>>comparingInt(candidato -> relevancia(candidato.nombre, consulta))
+                        .thenComparingInt(candidato -> candidato.nombre.length())
+                        .thenComparing(candidato -> candidato.nombre))
+                .limit(limite)
+                .map(candidato -> candidato.valor)
+                .toList();
+    }
+
+    // El nombre normalizado se extrae una sola vez por candidato, no en cada comparación
+    private static final class Candidato<T> {
+
+        final T valor;
+        final String nombre;
+
+        Candidato(T valor, String nombre) {
+            this.valor = valor;
+            this.nombre = nombre;
+        }
+    }
+
+    // Menor es mejor: nombre exacto, prefijo del nombre, inicio de una palabra y, por último, subcadena
+    private static int relevancia(String nombreNormalizado, String consulta) {
+        if (nombreNormalizado.equals(consulta)) {
+            return 0;
+        }
+        if (nombreNormalizado.startsWith(consulta)) {
+            return 1;
+        }
+        if (nombreNormalizado.contains(" " + consulta)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    public Uni<ConteoUsuarios> contarUsuarios(boolean exacto) {
+        return contarUsuarios(exacto, null);
+    }
+
+    // El token sólo afecta al conteo exacto: el incremental no consulta MongoDB
+    public Uni<ConteoUsuarios> contarUsuarios(boolean exacto, String token) {
+        LOG.debugf("Contando usuarios activos (exacto: %s)", exacto);
+        return metricas.medir(exacto ? "contar_exacto" : "contar",
+                (exacto ? contadorUsuarios.contarExacto(token) : contadorUsuarios.obtener())
+                        .onFailure().invoke(throwable -> 
+                            LOG.error("Error al contar usuarios", throwable)));
     }
 }
\ No newline at end of file
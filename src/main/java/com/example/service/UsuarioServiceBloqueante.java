@@ -0,0 +1,213 @@
+package com.example.service;
+
+import com.example.metricas.MetricasUsuarios;
+import com.example.model.ConteoUsuarios;
+import com.example.model.ModoBusqueda;
+import com.example.model.PaginaUsuarios;
+import com.example.model.Usuario;
+import com.example.repository.UsuarioRepository;
+import com.example.repository.UsuarioRepositoryBloqueante;
+import com.example.util.NormalizadorTexto;
+import com.mongodb.MongoException;
+import io.quarkus.arc.properties.IfBuildProperty;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Versión imperativa de las operaciones principales de UsuarioService (listar, obtener, crear,
+ * actualizar, eliminar, buscar y contar), pensada para ejecutarse en hilos virtuales: cada paso
+ * bloquea el hilo hasta que responde MongoDB. Comparte con la versión reactiva la caché por id,
+ * el filtro de emails, el contador de activos y los timers de usuarios.operaciones. No emite
+ * tokens de consistencia ni admite proyecciones.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "usuarios.hilos-virtuales.habilitado", stringValue = "true")
+public class UsuarioServiceBloqueante {
+
+    private static final Logger LOG = Logger.getLogger(UsuarioServiceBloqueante.class);
+
+    @Inject
+    UsuarioRepositoryBloqueante usuarioRepository;
+
+    @Inject
+    ContadorUsuariosService contadorUsuarios;
+
+    @Inject
+    FiltroEmailsService filtroEmails;
+
+    @Inject
+    MetricasUsuarios metricas;
+
+    @Inject
+    CacheUsuariosService cacheUsuarios;
+
+    @ConfigProperty(name = "usuarios.paginacion.limite-por-defecto", defaultValue = "100")
+    int limitePorDefecto;
+
+    @ConfigProperty(name = "usuarios.paginacion.limite-maximo", defaultValue = "1000")
+    int limiteMaximo;
+
+    @ConfigProperty(name = "usuarios.busqueda.limite-por-defecto", defaultValue = "20")
+    int limiteBusquedaPorDefecto;
+
+    @ConfigProperty(name = "usuarios.busqueda.limite-maximo", defaultValue = "100")
+    int limiteBusquedaMaximo;
+
+    @ConfigProperty(name = "usuarios.busqueda.max-candidatos", defaultValue = "1000")
+    int maxCandidatosBusqueda;
+
+    public PaginaUsuarios<Usuario> obtenerTodos(String after, Integer limit) {
+        LOG.debugf("Obteniendo usuarios activos después de: %s (límite: %s)", after, limit);
+
+        return ejecutar("obtener_todos", "Error al obtener usuarios", () -> {
+            if (after != null && !ObjectId.isValid(after)) {
+                throw new IllegalArgumentException("Cursor de paginación inválido");
+            }
+            if (limit != null && limit < 1) {
+                throw new IllegalArgumentException("El parámetro 'limit' debe ser mayor que cero");
+            }
+
+            int limite = Math.min(limit != null ? limit : limitePorDefecto, limiteMaximo);
+            ObjectId cursor = after != null ? new ObjectId(after) : null;
+
+            // Se pide un elemento extra para saber si existe una página siguiente
+            return PaginaUsuarios.de(usuarioRepository.findActivosDespuesDe(cursor, limite + 1), limite);
+        });
+    }
+
+    public Usuario obtenerPorId(String id) {
+        LOG.debugf("Obteniendo usuario por ID: %s", id);
+
+        return ejecutar("obtener_por_id", "Error al obtener usuario con ID: " + id, () -> {
+            if (!ObjectId.isValid(id)) {
+                throw new IllegalArgumentException("ID de usuario inválido");
+            }
+            // El mismo cargador que la versión reactiva: una consulta en curso anterior a una
+            // escritura nunca deja en la caché el usuario anterior
+            return cacheUsuarios.obtener(new ObjectId(id)).await().indefinitely();
+        });
+    }
+
+    public Usuario crear(@Valid Usuario usuario) {
+        LOG.debugf("Creando nuevo usuario: %s", usuario.email);
+
+        usuario.indexarNombre();
+
+        Usuario creado = ejecutar("crear", "Error al crear usuario: " + usuario.email, () -> {
+            if (!filtroEmails.descarta(usuario.email)) {
+                boolean existe = usuarioRepository.existsByEmail(usuario.email);
+                filtroEmails.confirmar(existe);
+                if (existe) {
+                    throw new EmailDuplicadoException("Ya existe un usuario con este email");
+                }
+            }
+            try {
+                usuarioRepository.insertar(usuario);
+            } catch (MongoException e) {
+                // Un alta concurrente con el mismo email la rechaza el índice único
+                if (UsuarioRepository.esClaveDuplicada(e)) {
+                    throw new EmailDuplicadoException("Ya existe un usuario con este email");
+                }
+                throw e;
+            }
+            filtroEmails.registrar(usuario.email);
+            contadorUsuarios.registrarAltas(1).await().indefinitely();
+            return usuario;
+        });
+        LOG.infof("Usuario creado exitosamente: %s", creado.id);
+        return creado;
+    }
+
+    public Usuario actualizar(String id, @Valid Usuario usuarioActualizado) {
+        LOG.debugf("Actualizando usuario con ID: %s", id);
+
+        Usuario actualizado = ejecutar("actualizar", "Error al actualizar usuario con ID: " + id, () -> {
+            if (!ObjectId.isValid(id)) {
+                throw new IllegalArgumentException("ID de usuario inválido");
+            }
+            ObjectId objectId = new ObjectId(id);
+            usuarioActualizado.indexarNombre();
+
+            Usuario usuario;
+            try {
+                usuario = usuarioRepository.actualizarActivo(objectId, usuarioActualizado);
+            } catch (MongoException e) {
+                if (UsuarioRepository.esClaveDuplicada(e)) {
+                    throw new EmailDuplicadoException("Ya existe otro usuario con este email");
+                }
+                throw e;
+            }
+            if (usuario == null) {
+                throw new UsuarioNoEncontradoException();
+            }
+            filtroEmails.registrar(usuario.email);
+            cacheUsuarios.invalidar(objectId).await().indefinitely();
+            return usuario;
+        });
+        LOG.infof("Usuario actualizado exitosamente: %s", actualizado.id);
+        return actualizado;
+    }
+
+    public void eliminar(String id) {
+        LOG.debugf("Eliminando usuario con ID: %s", id);
+
+        ejecutar("eliminar", "Error al eliminar usuario con ID: " + id, () -> {
+            if (!ObjectId.isValid(id)) {
+                throw new IllegalArgumentException("ID de usuario inválido");
+            }
+            ObjectId objectId = new ObjectId(id);
+
+            if (usuarioRepository.desactivar(objectId) == null) {
+                throw new UsuarioNoEncontradoException();
+            }
+            // Se invalida tras la escritura para no volver a servir un usuario desactivado
+            cacheUsuarios.invalidar(objectId).await().indefinitely();
+            contadorUsuarios.registrarBaja().await().indefinitely();
+            return true;
+        });
+        LOG.infof("Usuario eliminado exitosamente: %s", id);
+    }
+
+    public List<Usuario> buscarPorNombre(String nombre, ModoBusqueda modo, Integer limit) {
+        LOG.debugf("Buscando usuarios por nombre: %s (modo: %s)", nombre, modo);
+
+        return ejecutar("buscar_por_nombre", "Error al buscar usuarios por nombre: " + nombre, () -> {
+            int limite = Math.min(limit != null ? limit : limiteBusquedaPorDefecto, limiteBusquedaMaximo);
+            String consulta = NormalizadorTexto.normalizar(nombre);
+            List<String> ngramas = NormalizadorTexto.ngramas(consulta);
+
+            // Un texto más corto que un n-grama sólo puede resolverse por prefijo
+            if (modo == ModoBusqueda.PREFIJO || ngramas.isEmpty()) {
+                return usuarioRepository.findByPrefijoNombre(consulta, limite);
+            }
+            List<Usuario> candidatos = UsuarioService.unirCandidatos(
+                    usuarioRepository.findByPrefijoNombre(consulta, limite),
+                    usuarioRepository.findByNgramasNombre(ngramas, maxCandidatosBusqueda),
+                    usuario -> usuario.id, maxCandidatosBusqueda, metricas);
+            return UsuarioService.ordenarPorRelevancia(candidatos, consulta, limite);
+        });
+    }
+
+    // El contador incremental es el mismo que usa la versión reactiva
+    public ConteoUsuarios contarUsuarios(boolean exacto) {
+        LOG.debugf("Contando usuarios activos (exacto: %s)", exacto);
+        return ejecutar(exacto ? "contar_exacto" : "contar", "Error al contar usuarios", () ->
+                (exacto ? contadorUsuarios.contarExacto() : contadorUsuarios.obtener()).await().indefinitely());
+    }
+
+    private <T> T ejecutar(String operacion, String mensajeError, Supplier<T> accion) {
+        try {
+            return metricas.medir(operacion, accion);
+        } catch (RuntimeException e) {
+            LOG.error(mensajeError, e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.service;
+
+import java.time.LocalDateTime;
+
+// La versión enviada en If-Match ya no es la actual: otra escritura se adelantó
+public class VersionNoCoincideException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public final LocalDateTime versionActual;
+
+    public VersionNoCoincideException(LocalDateTime versionActual) {
+        super("El usuario ha sido modificado por otra petición");
+        this.versionActual = versionActual;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.util;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresión gzip incremental de un flujo de bloques. Cada bloque se comprime y se vacía con
+ * SYNC_FLUSH, así que el cliente puede descomprimir lo recibido sin esperar al final y la memoria
+ * no depende del tamaño total. No es thread-safe: una instancia por respuesta, y hay que llamar a
+ * {@link #cerrar()} al terminar o al cancelar para liberar la memoria nativa del Deflater.
+ */
+public final class CompresorGzip {
+
+    // Cabecera gzip mínima: deflate, sin nombre ni fecha, sistema operativo desconocido
+    private static final byte[] CABECERA = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+    private final CRC32 crc = new CRC32();
+
+    private final byte[] salida = new byte[16 * 1024];
+
+    private boolean cabeceraEscrita;
+
+    public Buffer comprimir(Buffer bloque) {
+        byte[] bytes = bloque.getBytes();
+        crc.update(bytes);
+        deflater.setInput(bytes);
+
+        Buffer destino = Buffer.buffer(bytes.length / 4 + CABECERA.length);
+        cabecera(destino);
+        int comprimidos;
+        do {
+            // Con SYNC_FLUSH, si llena la salida puede quedar más por vaciar
+            comprimidos = deflater.deflate(salida, 0, salida.length, Deflater.SYNC_FLUSH);
+            destino.appendBytes(salida, 0, comprimidos);
+        } while (comprimidos == salida.length);
+        return destino;
+    }
+
+    // Último bloque deflate y cola gzip (CRC32 y tamaño original módulo 2^32)
+    public Buffer terminar() {
+        Buffer destino = Buffer.buffer(64);
+        cabecera(destino);
+        deflater.finish();
+        while (!deflater.finished()) {
+            destino.appendBytes(salida, 0, deflater.deflate(salida));
+        }
+        return destino.appendIntLE((int) crc.getValue())
+                .appendIntLE((int) deflater.getBytesRead());
+    }
+
+    public void cerrar() {
+        deflater.end();
+    }
+
+    private void cabecera(Buffer destino) {
+        if (!cabeceraEscrita) {
+            destino.appendBytes(CABECERA);
+            cabeceraEscrita = true;
+        }
+    }
+}
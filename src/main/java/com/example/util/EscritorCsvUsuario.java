@@ -0,0 +1,60 @@
+package com.example.util;
+
+import io.vertx.core.buffer.Buffer;
+import org.bson.RawBsonDocument;
+
+import java.util.List;
+
+/**
+ * Escribe usuarios en CSV (RFC 4180) desde los documentos BSON sin decodificar. Las columnas son
+ * los campos del JSON de Usuario, en el mismo orden y formato; los textos y las fechas van siempre
+ * entre comillas y un campo ausente o nulo queda vacío.
+ */
+public final class EscritorCsvUsuario {
+
+    public static final String CABECERA = "id,nombre,email,telefono,activo,fechaCreacion,fechaActualizacion\r\n";
+
+    private EscritorCsvUsuario() {
+    }
+
+    public static Buffer escribir(List<RawBsonDocument> documentos) {
+        Buffer destino = Buffer.buffer(documentos.size() * 160);
+        for (RawBsonDocument documento : documentos) {
+            escribir(documento, destino);
+        }
+        return destino;
+    }
+
+    public static void escribir(RawBsonDocument documento, Buffer destino) {
+        destino.appendString(documento.getObjectId("_id").getValue().toHexString()).appendByte((byte) ',');
+        texto(documento, "nombre", destino);
+        destino.appendByte((byte) ',');
+        texto(documento, "email", destino);
+        destino.appendByte((byte) ',');
+        texto(documento, "telefono", destino);
+        destino.appendByte((byte) ',');
+        if (documento.isBoolean("activo")) {
+            destino.appendString(Boolean.toString(documento.getBoolean("activo").getValue()));
+        }
+        destino.appendByte((byte) ',');
+        fecha(documento, "fechaCreacion", destino);
+        destino.appendByte((byte) ',');
+        fecha(documento, "fechaActualizacion", destino);
+        destino.appendString("\r\n");
+    }
+
+    // Entre comillas, duplicando las que contenga: admite comas y saltos de línea
+    private static void texto(RawBsonDocument documento, String campo, Buffer destino) {
+        if (documento.isString(campo)) {
+            destino.appendByte((byte) '"')
+                    .appendString(documento.getString(campo).getValue().replace("\"", "\"\""))
+                    .appendByte((byte) '"');
+        }
+    }
+
+    private static void fecha(RawBsonDocument documento, String campo, Buffer destino) {
+        if (documento.isDateTime(campo)) {
+            EscritorJsonUsuario.escribirFecha(documento.getDateTime(campo).getValue(), destino);
+        }
+    }
+}
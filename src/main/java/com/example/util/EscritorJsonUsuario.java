@@ -0,0 +1,277 @@
+package com.example.util;
+
+import io.vertx.core.buffer.Buffer;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Escribe usuarios en JSON directamente desde los bytes BSON que devuelve MongoDB, sin pasar por
+ * el POJO Usuario ni por Jackson. El resultado es idéntico al JSON de Usuario: mismos campos y en
+ * el mismo orden, telefono null incluido, _id como "id" en hexadecimal y las fechas en formato
+ * ISO local en UTC (así las guarda el codec de java.time). Los textos se
+ * copian como UTF-8 sin decodificarlos; sólo se escapan las comillas, la barra invertida y los
+ * caracteres de control, igual que Jackson.
+ */
+public final class EscritorJsonUsuario {
+
+    // Nombres en BSON, en el orden en que Jackson escribe Usuario
+    private static final byte[][] CAMPOS_BSON = bytes(
+            "nombre", "email", "telefono", "activo", "fechaCreacion", "fechaActualizacion", "_id");
+
+    private static final int ACTIVO = 3;
+
+    private static final byte[][] CLAVES_JSON = bytes(
+            "{\"nombre\":", ",\"email\":", ",\"telefono\":", ",\"activo\":",
+            ",\"fechaCreacion\":", ",\"fechaActualizacion\":", ",\"id\":");
+
+    private static final byte[] NULL = bytes("null")[0];
+    private static final byte[] TRUE = bytes("true")[0];
+    private static final byte[] FALSE = bytes("false")[0];
+    private static final byte[] HEX = bytes("0123456789abcdef")[0];
+    private static final byte[] HEX_ESCAPE = bytes("0123456789ABCDEF")[0];
+
+    private static final long MILIS_POR_DIA = 86_400_000L;
+
+    private static final int[] POTENCIAS_DE_DIEZ = {1, 10, 100, 1000};
+
+    private EscritorJsonUsuario() {
+    }
+
+    public static Buffer escribir(List<RawBsonDocument> documentos) {
+        Buffer destino = Buffer.buffer(documentos.size() * 256 + 2);
+        destino.appendByte((byte) '[');
+        for (int i = 0; i < documentos.size(); i++) {
+            if (i > 0) {
+                destino.appendByte((byte) ',');
+            }
+            escribir(documentos.get(i), destino);
+        }
+        return destino.appendByte((byte) ']');
+    }
+
+    // NDJSON: un documento por línea
+    public static Buffer escribirLineas(List<RawBsonDocument> documentos) {
+        Buffer destino = Buffer.buffer(documentos.size() * 256);
+        for (RawBsonDocument documento : documentos) {
+            escribir(documento, destino);
+            destino.appendByte((byte) '\n');
+        }
+        return destino;
+    }
+
+    public static Buffer escribir(RawBsonDocument documento) {
+        Buffer destino = Buffer.buffer(256);
+        escribir(documento, destino);
+        return destino;
+    }
+
+    public static void escribir(RawBsonDocument documento, Buffer destino) {
+        ByteBuffer bson = documento.getByteBuffer().asNIO();
+        byte[] bytes = bson.array();
+        int base = bson.arrayOffset() + bson.position();
+
+        // Posición del valor y tipo de cada campo conocido; el resto de campos sólo se saltan
+        int[] posiciones = new int[CAMPOS_BSON.length];
+        byte[] tipos = new byte[CAMPOS_BSON.length];
+
+        int pos = base + 4;
+        int fin = base + leerInt(bytes, base) - 1;
+        while (pos < fin) {
+            byte tipo = bytes[pos++];
+            int inicioNombre = pos;
+            while (bytes[pos] != 0) {
+                pos++;
+            }
+            int campo = campo(bytes, inicioNombre, pos);
+            pos++;
+            if (campo >= 0) {
+                posiciones[campo] = pos;
+                tipos[campo] = tipo;
+            }
+            pos += longitudValor(bytes, pos, tipo);
+        }
+
+        for (int campo = 0; campo < CAMPOS_BSON.length; campo++) {
+            destino.appendBytes(CLAVES_JSON[campo]);
+            escribirValor(bytes, posiciones[campo], tipos[campo], campo, destino);
+        }
+        destino.appendByte((byte) '}');
+    }
+
+    private static void escribirValor(byte[] bytes, int pos, byte tipo, int campo, Buffer destino) {
+        if (tipo == BsonType.STRING.getValue()) {
+            escribirTexto(bytes, pos + 4, leerInt(bytes, pos) - 1, destino);
+        } else if (tipo == BsonType.BOOLEAN.getValue()) {
+            destino.appendBytes(bytes[pos] != 0 ? TRUE : FALSE);
+        } else if (tipo == BsonType.DATE_TIME.getValue()) {
+            escribirFecha(leerLong(bytes, pos), destino);
+        } else if (tipo == BsonType.OBJECT_ID.getValue()) {
+            destino.appendByte((byte) '"');
+            for (int i = pos; i < pos + 12; i++) {
+                destino.appendByte(HEX[(bytes[i] >> 4) & 0xf]).appendByte(HEX[bytes[i] & 0xf]);
+            }
+            destino.appendByte((byte) '"');
+        } else if (tipo == 0 && campo == ACTIVO) {
+            // Sin el campo, el POJO conserva el valor inicial de Usuario.activo
+            destino.appendBytes(TRUE);
+        } else {
+            destino.appendBytes(NULL);
+        }
+    }
+
+    private static void escribirTexto(byte[] bytes, int inicio, int longitud, Buffer destino) {
+        destino.appendByte((byte) '"');
+        int tramo = inicio;
+        int fin = inicio + longitud;
+        for (int i = inicio; i < fin; i++) {
+            int b = bytes[i] & 0xff;
+            if (b >= 0x20 && b != '"' && b != '\\') {
+                continue;
+            }
+            destino.appendBytes(bytes, tramo, i - tramo);
+            tramo = i + 1;
+            destino.appendByte((byte) '\\');
+            switch (b) {
+                case '"', '\\' -> destino.appendByte((byte) b);
+                case '\b' -> destino.appendByte((byte) 'b');
+                case '\t' -> destino.appendByte((byte) 't');
+                case '\n' -> destino.appendByte((byte) 'n');
+                case '\f' -> destino.appendByte((byte) 'f');
+                case '\r' -> destino.appendByte((byte) 'r');
+                default -> destino.appendByte((byte) 'u').appendByte((byte) '0').appendByte((byte) '0')
+                        .appendByte(HEX_ESCAPE[b >> 4]).appendByte(HEX_ESCAPE[b & 0xf]);
+            }
+        }
+        destino.appendBytes(bytes, tramo, fin - tramo);
+        destino.appendByte((byte) '"');
+    }
+
+    // Mismo formato que DateTimeFormatter.ISO_LOCAL_DATE_TIME, el que usa Jackson para LocalDateTime
+    static void escribirFecha(long milis, Buffer destino) {
+        long dias = Math.floorDiv(milis, MILIS_POR_DIA);
+        long milisDia = Math.floorMod(milis, MILIS_POR_DIA);
+
+        // Fecha civil a partir de los días desde 1970-01-01 (algoritmo de H. Hinnant)
+        long z = dias + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long diaEra = z - era * 146_097;
+        long anoEra = (diaEra - diaEra / 1460 + diaEra / 36_524 - diaEra / 146_096) / 365;
+        long diaAno = diaEra - (365 * anoEra + anoEra / 4 - anoEra / 100);
+        long mp = (5 * diaAno + 2) / 153;
+        int dia = (int) (diaAno - (153 * mp + 2) / 5 + 1);
+        int mes = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long ano = anoEra + era * 400 + (mes <= 2 ? 1 : 0);
+
+        if (ano < 0 || ano > 9999) {
+            // Fuera del rango de cuatro cifras el formato añade signo: se delega en java.time
+            LocalDateTime fecha = LocalDateTime.ofInstant(Instant.ofEpochMilli(milis), ZoneOffset.UTC);
+            destino.appendByte((byte) '"')
+                    .appendString(fecha.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .appendByte((byte) '"');
+            return;
+        }
+
+        int segundosDia = (int) (milisDia / 1000);
+        int milisegundos = (int) (milisDia % 1000);
+        int segundos = segundosDia % 60;
+
+        destino.appendByte((byte) '"');
+        digitos(destino, (int) ano, 4);
+        destino.appendByte((byte) '-');
+        digitos(destino, mes, 2);
+        destino.appendByte((byte) '-');
+        digitos(destino, dia, 2);
+        destino.appendByte((byte) 'T');
+        digitos(destino, segundosDia / 3600, 2);
+        destino.appendByte((byte) ':');
+        digitos(destino, (segundosDia / 60) % 60, 2);
+        destino.appendByte((byte) ':');
+        digitos(destino, segundos, 2);
+        if (milisegundos > 0) {
+            // La fracción sin ceros finales: .398, .39, .3
+            int cifras = milisegundos % 100 == 0 ? 1 : milisegundos % 10 == 0 ? 2 : 3;
+            destino.appendByte((byte) '.');
+            digitos(destino, milisegundos / POTENCIAS_DE_DIEZ[3 - cifras], cifras);
+        }
+        destino.appendByte((byte) '"');
+    }
+
+    private static void digitos(Buffer destino, int valor, int cifras) {
+        for (int divisor = POTENCIAS_DE_DIEZ[cifras - 1]; divisor > 0; divisor /= 10) {
+            destino.appendByte((byte) ('0' + (valor / divisor) % 10));
+        }
+    }
+
+    private static int campo(byte[] bytes, int inicio, int fin) {
+        for (int campo = 0; campo < CAMPOS_BSON.length; campo++) {
+            byte[] nombre = CAMPOS_BSON[campo];
+            if (nombre.length == fin - inicio && igual(bytes, inicio, nombre)) {
+                return campo;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean igual(byte[] bytes, int inicio, byte[] nombre) {
+        for (int i = 0; i < nombre.length; i++) {
+            if (bytes[inicio + i] != nombre[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Tamaño del valor según la especificación BSON, para saltar los campos que no se escriben
+    private static int longitudValor(byte[] bytes, int pos, byte tipo) {
+        return switch (BsonType.findByValue(tipo)) {
+            case DOUBLE, DATE_TIME, TIMESTAMP, INT64 -> 8;
+            case STRING, JAVASCRIPT, SYMBOL -> 4 + leerInt(bytes, pos);
+            case DOCUMENT, ARRAY, JAVASCRIPT_WITH_SCOPE -> leerInt(bytes, pos);
+            case BINARY -> 5 + leerInt(bytes, pos);
+            case OBJECT_ID -> 12;
+            case BOOLEAN -> 1;
+            case INT32 -> 4;
+            case DECIMAL128 -> 16;
+            case DB_POINTER -> 4 + leerInt(bytes, pos) + 12;
+            case REGULAR_EXPRESSION -> {
+                int fin = pos;
+                while (bytes[fin] != 0) {
+                    fin++;
+                }
+                fin++;
+                while (bytes[fin] != 0) {
+                    fin++;
+                }
+                yield fin + 1 - pos;
+            }
+            default -> 0;
+        };
+    }
+
+    private static int leerInt(byte[] bytes, int pos) {
+        return (bytes[pos] & 0xff)
+                | (bytes[pos + 1] & 0xff) << 8
+                | (bytes[pos + 2] & 0xff) << 16
+                | (bytes[pos + 3] & 0xff) << 24;
+    }
+
+    private static long leerLong(byte[] bytes, int pos) {
+        return (leerInt(bytes, pos) & 0xffffffffL) | ((long) leerInt(bytes, pos + 4) << 32);
+    }
+
+    private static byte[][] bytes(String... textos) {
+        byte[][] resultado = new byte[textos.length][];
+        for (int i = 0; i < textos.length; i++) {
+            resultado[i] = textos[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return resultado;
+    }
+}
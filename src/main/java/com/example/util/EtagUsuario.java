@@ -0,0 +1,70 @@
+package com.example.util;
+
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ETag fuerte de un usuario a partir de su id y su fechaActualizacion, que cambia con cada
+ * escritura. La fecha va en milisegundos (base 36), la precisión con que la guarda MongoDB, así que
+ * la versión de la ETag puede volver a usarse como filtro: "65a1b2c3d4e5f6a7b8c9d0e1-lrx5k3a8".
+ */
+public final class EtagUsuario {
+
+    private EtagUsuario() {
+    }
+
+    public static String de(ObjectId id, LocalDateTime fechaActualizacion) {
+        long milis = fechaActualizacion.toInstant(ZoneOffset.UTC).toEpochMilli();
+        return "\"" + id.toHexString() + "-" + Long.toString(milis, 36) + "\"";
+    }
+
+    // If-None-Match: comparación débil, "*" coincide con cualquier versión
+    public static boolean coincideAlguna(String cabecera, String etag) {
+        if (cabecera == null) {
+            return false;
+        }
+        for (String candidata : cabecera.split(",")) {
+            String valor = candidata.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals("*") || valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Versiones (fechaActualizacion) de este usuario nombradas en una cabecera If-Match. Sólo cuentan
+     * las ETags fuertes: una débil o de otro usuario nunca coincide.
+     *
+     * @return null si no hay condición (sin cabecera o "*"); si no, la lista, vacía si ninguna ETag
+     *         puede coincidir
+     */
+    public static List<LocalDateTime> versiones(String ifMatch, ObjectId id) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefijo = "\"" + id.toHexString() + "-";
+        List<LocalDateTime> versiones = new ArrayList<>();
+        for (String candidata : ifMatch.split(",")) {
+            String valor = candidata.trim();
+            if (!valor.startsWith(prefijo) || !valor.endsWith("\"") || valor.length() == prefijo.length() + 1) {
+                continue;
+            }
+            try {
+                long milis = Long.parseLong(valor.substring(prefijo.length(), valor.length() - 1), 36);
+                versiones.add(LocalDateTime.ofInstant(Instant.ofEpochMilli(milis), ZoneOffset.UTC));
+            } catch (NumberFormatException e) {
+                // ETag mal formada: no coincide con ninguna versión
+            }
+        }
+        return versiones;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de cadenas: puedeContener nunca da un falso negativo y da falsos positivos con
+ * una probabilidad que crece a medida que se llena. Se dimensiona para un número de elementos y
+ * una tasa de falsos positivos; por encima de esa cantidad la tasa real supera la configurada.
+ * Admite inserciones y consultas concurrentes sin bloqueos.
+ */
+public final class FiltroBloom {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray palabras;
+    private final long bits;
+    private final int funciones;
+    private final AtomicLong bitsActivos = new AtomicLong();
+    private final AtomicLong elementos = new AtomicLong();
+
+    public FiltroBloom(long elementosEsperados, double tasaFalsosPositivos) {
+        if (elementosEsperados < 1) {
+            throw new IllegalArgumentException("El número de elementos esperados debe ser mayor que cero");
+        }
+        if (tasaFalsosPositivos <= 0 || tasaFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("La tasa de falsos positivos debe estar entre 0 y 1");
+        }
+        // m = -n ln p / (ln 2)^2 bits y k = (m / n) ln 2 funciones hash
+        long bitsNecesarios = (long) Math.ceil(-elementosEsperados * Math.log(tasaFalsosPositivos) / (LN2 * LN2));
+        this.palabras = new AtomicLongArray(Math.toIntExact((bitsNecesarios + 63) / 64));
+        this.bits = palabras.length() * 64L;
+        this.funciones = Math.max(1, (int) Math.round((double) bits / elementosEsperados * LN2));
+    }
+
+    public void agregar(String valor) {
+        long h1 = mezclar(fnv1a(valor));
+        long h2 = mezclar(h1);
+        boolean nuevo = false;
+        for (int i = 0; i < funciones; i++) {
+            nuevo |= activar(Math.floorMod(h1 + i * h2, bits));
+        }
+        // Si no cambió ningún bit el valor ya estaba (o es indistinguible de uno que estaba)
+        if (nuevo) {
+            elementos.incrementAndGet();
+        }
+    }
+
+    public boolean puedeContener(String valor) {
+        long h1 = mezclar(fnv1a(valor));
+        long h2 = mezclar(h1);
+        for (int i = 0; i < funciones; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((palabras.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Probabilidad de que un valor ausente dé positivo con la ocupación actual: (bits activos / m)^k
+    public double tasaFalsosPositivosEstimada() {
+        return Math.pow((double) bitsActivos.get() / bits, funciones);
+    }
+
+    public long elementos() {
+        return elementos.get();
+    }
+
+    public long bits() {
+        return bits;
+    }
+
+    public int funciones() {
+        return funciones;
+    }
+
+    private boolean activar(long bit) {
+        int indice = (int) (bit >>> 6);
+        long mascara = 1L << bit;
+        long palabra;
+        do {
+            palabra = palabras.get(indice);
+            if ((palabra & mascara) != 0) {
+                return false;
+            }
+        } while (!palabras.compareAndSet(indice, palabra, palabra | mascara));
+        bitsActivos.incrementAndGet();
+        return true;
+    }
+
+    private static long fnv1a(String valor) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < valor.length(); i++) {
+            hash ^= valor.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Finalizador de SplitMix64: reparte los bits de FNV, que por sí solo agrupa cadenas parecidas
+    private static long mezclar(long valor) {
+        long z = valor + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.util;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normalización de nombres para la búsqueda: minúsculas, sin acentos y con los espacios
+ * colapsados, de modo que "Pérez" y "perez" produzcan la misma clave y los mismos n-gramas.
+ */
+public final class NormalizadorTexto {
+
+    public static final int TAMANO_NGRAMA = 3;
+
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    private NormalizadorTexto() {
+    }
+
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinAcentos = DIACRITICOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACIOS.matcher(sinAcentos.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    // N-gramas distintos del texto ya normalizado, en orden de aparición
+    public static List<String> ngramas(String normalizado) {
+        if (normalizado.length() < TAMANO_NGRAMA) {
+            return List.of();
+        }
+        Set<String> ngramas = new LinkedHashSet<>();
+        for (int i = 0; i + TAMANO_NGRAMA <= normalizado.length(); i++) {
+            ngramas.add(normalizado.substring(i, i + TAMANO_NGRAMA));
+        }
+        return List.copyOf(ngramas);
+    }
+}
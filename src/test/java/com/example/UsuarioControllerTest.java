@@ -4,9 +4,14 @@ import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 @QuarkusTest
 public class UsuarioControllerTest {
@@ -20,6 +25,50 @@ public class UsuarioControllerTest {
              .contentType(ContentType.JSON);
     }
 
+    @Test
+    public void testObtenerUsuariosConCursorInvalido() {
+        given()
+          .queryParam("after", "no-es-un-id")
+          .when().get("/api/usuarios")
+          .then()
+             .statusCode(400)
+             .body("error", notNullValue());
+    }
+
+    @Test
+    public void testObtenerUsuariosConLimite() {
+        given()
+          .queryParam("limit", 1)
+          .when().get("/api/usuarios")
+          .then()
+             .statusCode(200)
+             .contentType(ContentType.JSON)
+             .body("size()", lessThanOrEqualTo(1));
+    }
+
+    @Test
+    public void testObtenerUsuariosConCampos() {
+        given()
+          .queryParam("fields", "nombre,email")
+          .queryParam("limit", 1)
+          .when().get("/api/usuarios")
+          .then()
+             .statusCode(200)
+             .contentType(ContentType.JSON)
+             .body("size()", lessThanOrEqualTo(1))
+             .body("telefono", everyItem(nullValue()));
+    }
+
+    @Test
+    public void testObtenerUsuariosConCampoNoPermitido() {
+        given()
+          .queryParam("fields", "nombre,password")
+          .when().get("/api/usuarios")
+          .then()
+             .statusCode(400)
+             .body("error", notNullValue());
+    }
+
     @Test
     public void testCrearUsuario() {
         String usuarioJson = """
@@ -42,6 +91,79 @@ public class UsuarioControllerTest {
             .body("email", is("juan.perez@example.com"));
     }
 
+    @Test
+    public void testImportarUsuariosEnLote() {
+        String usuariosJson = """
+            [
+                {
+                    "nombre": "Ana Torres",
+                    "email": "ana.torres.lote@example.com",
+                    "telefono": "1234567890"
+                },
+                {
+                    "nombre": "A",
+                    "email": "no-es-un-email"
+                }
+            ]
+            """;
+
+        given()
+            .contentType(ContentType.JSON)
+            .body(usuariosJson)
+          .when()
+            .post("/api/usuarios/batch")
+          .then()
+            .statusCode(200)
+            .body("size()", is(2))
+            .body("[0].indice", is(0))
+            .body("[1].indice", is(1))
+            .body("[1].estado", is("INVALIDO"));
+    }
+
+    @Test
+    public void testImportarConElementoIlegibleSigueConLosDemas() {
+        long sufijo = System.nanoTime();
+        String usuariosNdjson = """
+            {"nombre": "Luis Vera", "email": "luis.vera.%1$d@example.com"}
+            {"nombre": ["no", "es", "texto"], "email": "ilegible.%1$d@example.com"}
+            {"nombre": "Sara Gil", "email": "sara.gil.%1$d@example.com"}
+            """.formatted(sufijo);
+
+        given()
+            .contentType("application/x-ndjson")
+            .body(usuariosNdjson.getBytes(StandardCharsets.UTF_8))
+          .when()
+            .post("/api/usuarios/batch")
+          .then()
+            .statusCode(200)
+            .body("size()", is(3))
+            .body("[0].estado", is("CREADO"))
+            .body("[1].indice", is(1))
+            .body("[1].estado", is("INVALIDO"))
+            .body("[2].indice", is(2))
+            .body("[2].estado", is("CREADO"));
+    }
+
+    @Test
+    public void testImportarConJsonMalFormadoTerminaEnEseElemento() {
+        String usuariosNdjson = """
+            {"nombre": "Raúl Peña", "email": "raul.pena.%d@example.com"}
+            {"nombre": "Sin cerrar", "email":
+            """.formatted(System.nanoTime());
+
+        given()
+            .contentType("application/x-ndjson")
+            .body(usuariosNdjson.getBytes(StandardCharsets.UTF_8))
+          .when()
+            .post("/api/usuarios/batch")
+          .then()
+            .statusCode(200)
+            .body("size()", is(2))
+            .body("[0].estado", is("CREADO"))
+            .body("[1].indice", is(1))
+            .body("[1].estado", is("INVALIDO"));
+    }
+
     @Test
     public void testContarUsuarios() {
         given()
@@ -51,4 +173,82 @@ public class UsuarioControllerTest {
              .body("count", notNullValue())
              .body("timestamp", notNullValue());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testObtenerYActualizarConEtag() {
+        // Email distinto en cada ejecución: la base de datos de test no se vacía entre ejecuciones
+        String email = "elena.ruiz.etag." + System.nanoTime() + "@example.com";
+        String id = given()
+            .contentType(ContentType.JSON)
+            .body("""
+                {
+                    "nombre": "Elena Ruiz",
+                    "email": "%s"
+                }
+                """.formatted(email))
+          .when()
+            .post("/api/usuarios")
+          .then()
+            .statusCode(201)
+            .header("ETag", notNullValue())
+            .extract().path("id");
+
+        String etag = given()
+          .when().get("/api/usuarios/" + id)
+          .then()
+             .statusCode(200)
+             .extract().header("ETag");
+
+        given()
+            .header("If-None-Match", etag)
+          .when().get("/api/usuarios/" + id)
+          .then()
+             .statusCode(304)
+             .header("ETag", is(etag));
+
+        String cambios = """
+            {
+                "nombre": "Elena Ruiz Gil",
+                "email": "%s"
+            }
+            """.formatted(email);
+
+        given()
+            .contentType(ContentType.JSON)
+            .header("If-Match", "\"" + id + "-0\"")
+            .body(cambios)
+          .when()
+            .put("/api/usuarios/" + id)
+          .then()
+            .statusCode(412)
+            .header("ETag", is(etag));
+
+        String nuevaEtag = given()
+            .contentType(ContentType.JSON)
+            .header("If-Match", etag)
+            .body(cambios)
+          .when()
+            .put("/api/usuarios/" + id)
+          .then()
+            .statusCode(200)
+            .body("nombre", is("Elena Ruiz Gil"))
+            .extract().header("ETag");
+
+        given()
+            .header("If-None-Match", etag)
+          .when().get("/api/usuarios/" + id)
+          .then()
+             .statusCode(200)
+             .header("ETag", is(nuevaEtag));
+
+        given()
+          .when().delete("/api/usuarios/" + id)
+          .then()
+             .statusCode(200);
+
+        given()
+          .when().get("/api/usuarios/" + id)
+          .then()
+             .statusCode(404);
+    }
+}
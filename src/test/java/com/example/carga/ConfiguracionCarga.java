@@ -0,0 +1,42 @@
+package com.example.carga;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Parámetros de las pruebas de carga: carga.properties del classpath de test, sobrescribible con
+ * propiedades de sistema (-Dcarga.duracion=60).
+ */
+final class ConfiguracionCarga {
+
+    private final Properties propiedades = new Properties();
+
+    ConfiguracionCarga() {
+        try (InputStream entrada = ConfiguracionCarga.class.getResourceAsStream("/carga.properties")) {
+            if (entrada != null) {
+                propiedades.load(entrada);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer carga.properties", e);
+        }
+    }
+
+    String texto(String clave, String porDefecto) {
+        return System.getProperty(clave, propiedades.getProperty(clave, porDefecto));
+    }
+
+    int entero(String clave, int porDefecto) {
+        return Integer.parseInt(texto(clave, String.valueOf(porDefecto)).trim());
+    }
+
+    double decimal(String clave, double porDefecto) {
+        return Double.parseDouble(texto(clave, String.valueOf(porDefecto)).trim());
+    }
+
+    Duration segundos(String clave, int porDefecto) {
+        return Duration.ofSeconds(entero(clave, porDefecto));
+    }
+}
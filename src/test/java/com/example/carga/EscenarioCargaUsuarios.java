@@ -0,0 +1,303 @@
+package com.example.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.quarkus.test.common.http.TestHTTPResource;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tráfico mixto contra /api/usuarios a tasas fijas: listar, obtener, crear, actualizar, eliminar,
+ * buscar y contar. Tras un calentamiento se mide cada endpoint con HdrHistogram y la memoria de la
+ * JVM, se escriben los resultados en target/carga/{backend} (resultados.json y un .hgrm por
+ * operación) y la prueba falla si algún endpoint supera su presupuesto de p99, de throughput o de
+ * errores. Si hay una ejecución de referencia, los resultados se comparan con los suyos.
+ */
+abstract class EscenarioCargaUsuarios {
+
+    private static final Logger LOG = Logger.getLogger(EscenarioCargaUsuarios.class);
+
+    private static final String[] NOMBRES = {"María", "José", "Lucía", "Álvaro", "Sofía", "Andrés", "Núria", "Iñigo"};
+    private static final String[] APELLIDOS = {"García", "Fernández", "López", "Martínez", "Sánchez", "Pérez", "Gómez", "Muñoz"};
+    private static final String[] BUSQUEDAS = {"mar", "garc", "lucia", "nandez", "pe", "muñoz", "sofia lo"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConfiguracionCarga configuracion = new ConfiguracionCarga();
+
+    // Prefijo único por ejecución: permite repetir la prueba contra la misma base de datos
+    private final String ejecucion = Long.toString(System.currentTimeMillis(), 36);
+
+    @TestHTTPResource("/api/usuarios")
+    URL api;
+
+    private HttpClient cliente;
+    private Duration timeout;
+    private String base;
+
+    protected abstract String backend();
+
+    // Ruta de los endpoints medidos; los usuarios iniciales se crean siempre con /api/usuarios/batch
+    protected String ruta() {
+        return "/api/usuarios";
+    }
+
+    // Backend cuya última ejecución (target/carga/{referencia}) se compara con esta, o null
+    protected String referencia() {
+        return null;
+    }
+
+    @Test
+    public void cargaMixta() throws Exception {
+        timeout = Duration.ofMillis(configuracion.entero("carga.timeout-ms", 10000));
+        cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        base = api.toURI().resolve(ruta()).toString();
+
+        List<UsuarioSembrado> usuarios = sembrar("consulta", configuracion.entero("carga.usuarios-iniciales", 2000));
+        List<UsuarioSembrado> eliminables = sembrar("baja", configuracion.entero("carga.usuarios-eliminables", 1000));
+        List<OperacionCarga> operaciones = operaciones(usuarios, eliminables);
+
+        GeneradorCarga generador = new GeneradorCarga(cliente, timeout);
+        LOG.infof("Calentamiento de %s", configuracion.segundos("carga.calentamiento", 10));
+        generador.ejecutar(operaciones, configuracion.segundos("carga.calentamiento", 10));
+
+        Duration duracion = configuracion.segundos("carga.duracion", 30);
+        LOG.infof("Midiendo durante %s", duracion);
+        MedidorMemoria medidor = new MedidorMemoria();
+        medidor.iniciar();
+        List<ResultadoOperacion> resultados = generador.ejecutar(operaciones, duracion);
+        MedidorMemoria.ResultadoMemoria memoria =
+                medidor.detener(resultados.stream().mapToLong(resultado -> resultado.enviadas).sum());
+
+        List<String> incumplimientos = evaluar(resultados);
+        LOG.infof("memoria    %.1f MB asignados (%.1f KB/petición)  heap máximo %.1f MB  GC %d (%d ms)  hilos %d",
+                memoria.mbAsignados, memoria.kbPorPeticion, memoria.mbHeapMaximo, memoria.colecciones,
+                memoria.pausasGcMs, memoria.hilosMaximos);
+        escribir(resultados, memoria, duracion);
+        if (referencia() != null) {
+            comparar(referencia(), resultados, memoria);
+        }
+        assertTrue(incumplimientos.isEmpty(), "Presupuestos de carga superados:\n" + String.join("\n", incumplimientos));
+    }
+
+    private List<OperacionCarga> operaciones(List<UsuarioSembrado> usuarios, List<UsuarioSembrado> eliminables) {
+        List<OperacionCarga> operaciones = new ArrayList<>();
+
+        agregar(operaciones, "listar", i -> get("?limit=50&after=" + aleatorio(usuarios).id));
+        agregar(operaciones, "obtener", i -> get("/" + aleatorio(usuarios).id));
+        agregar(operaciones, "crear", i -> enviar("POST", "", usuario("alta-" + i)));
+        agregar(operaciones, "actualizar", i -> {
+            UsuarioSembrado usuario = aleatorio(usuarios);
+            return enviar("PUT", "/" + usuario.id, usuario(usuario.email, (int) i));
+        });
+        // Cada usuario reservado se elimina una sola vez; al agotarse se repiten (y responden 404)
+        agregar(operaciones, "eliminar", i -> HttpRequest.newBuilder(uri("/" + eliminables.get((int) (i % eliminables.size())).id))
+                .timeout(timeout)
+                .DELETE()
+                .build());
+        agregar(operaciones, "buscar", i -> get("/buscar?nombre="
+                + URLEncoder.encode(BUSQUEDAS[(int) (i % BUSQUEDAS.length)], StandardCharsets.UTF_8)
+                + (i % 2 == 0 ? "&modo=prefijo" : "")));
+        agregar(operaciones, "contar", i -> get("/count"));
+
+        return operaciones;
+    }
+
+    private void agregar(List<OperacionCarga> operaciones, String nombre, LongFunction<HttpRequest> peticion) {
+        double tasa = configuracion.decimal("carga." + nombre + ".tasa", 0) * configuracion.decimal("carga.escala", 1.0);
+        if (tasa > 0) {
+            operaciones.add(new OperacionCarga(nombre, tasa,
+                    configuracion.decimal("carga." + nombre + ".p99-ms", Double.MAX_VALUE), peticion));
+        }
+    }
+
+    private List<String> evaluar(List<ResultadoOperacion> resultados) {
+        double throughputMinimo = configuracion.decimal("carga.throughput-minimo", 0.95);
+        double erroresMaximos = configuracion.decimal("carga.errores-maximos", 0.01);
+
+        List<String> incumplimientos = new ArrayList<>();
+        for (ResultadoOperacion resultado : resultados) {
+            List<String> motivos = new ArrayList<>();
+            if (resultado.p99Ms > resultado.presupuestoP99Ms) {
+                motivos.add(String.format("p99 %.2f ms > %.2f ms", resultado.p99Ms, resultado.presupuestoP99Ms));
+            }
+            if (resultado.tasaLograda < resultado.tasaObjetivo * throughputMinimo) {
+                motivos.add(String.format("throughput %.1f/s < %.1f/s", resultado.tasaLograda,
+                        resultado.tasaObjetivo * throughputMinimo));
+            }
+            if (resultado.errores > resultado.enviadas * erroresMaximos) {
+                motivos.add(String.format("%d errores de %d peticiones", resultado.errores, resultado.enviadas));
+            }
+            resultado.cumplePresupuesto = motivos.isEmpty();
+            if (!motivos.isEmpty()) {
+                incumplimientos.add(resultado.operacion + ": " + String.join(", ", motivos));
+            }
+            LOG.infof("%-10s %7.1f/s  p50 %7.2f ms  p99 %7.2f ms  max %8.2f ms  errores %d",
+                    resultado.operacion, resultado.tasaLograda, resultado.p50Ms, resultado.p99Ms,
+                    resultado.maxMs, resultado.errores);
+        }
+        return incumplimientos;
+    }
+
+    private void escribir(List<ResultadoOperacion> resultados, MedidorMemoria.ResultadoMemoria memoria,
+                          Duration duracion) throws Exception {
+        Path directorio = Path.of("target", "carga", backend());
+        Files.createDirectories(directorio);
+
+        Map<String, Object> informe = new LinkedHashMap<>();
+        informe.put("backend", backend());
+        informe.put("ruta", ruta());
+        informe.put("jdk", Runtime.version().toString());
+        informe.put("duracionSegundos", duracion.toSeconds());
+        informe.put("operaciones", resultados);
+        informe.put("memoria", memoria);
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(directorio.resolve("resultados.json").toFile(), informe);
+
+        // Distribución completa en el formato de HdrHistogram, en milisegundos
+        for (ResultadoOperacion resultado : resultados) {
+            try (PrintStream salida = new PrintStream(directorio.resolve(resultado.operacion + ".hgrm").toFile())) {
+                resultado.histograma.outputPercentileDistribution(salida, 1_000_000.0);
+            }
+        }
+        LOG.infof("Resultados de carga escritos en %s", directorio.toAbsolutePath());
+    }
+
+    // Tabla referencia -> esta ejecución por operación, en el log y en target/carga/{backend}/comparacion.txt
+    private void comparar(String referencia, List<ResultadoOperacion> resultados,
+                          MedidorMemoria.ResultadoMemoria memoria) throws Exception {
+        Path archivo = Path.of("target", "carga", referencia, "resultados.json");
+        if (!Files.exists(archivo)) {
+            LOG.warnf("No hay resultados de %s en %s: ejecútela antes para comparar", referencia, archivo);
+            return;
+        }
+        JsonNode informe = objectMapper.readTree(archivo.toFile());
+        Map<String, JsonNode> previos = new LinkedHashMap<>();
+        for (JsonNode operacion : informe.path("operaciones")) {
+            previos.put(operacion.path("operacion").asText(), operacion);
+        }
+
+        List<String> lineas = new ArrayList<>();
+        lineas.add(String.format("%s (%s) -> %s (%s)", referencia, informe.path("jdk").asText("?"),
+                backend(), Runtime.version()));
+        for (ResultadoOperacion resultado : resultados) {
+            JsonNode previo = previos.get(resultado.operacion);
+            if (previo == null) {
+                continue;
+            }
+            lineas.add(String.format("%-10s %7.1f -> %7.1f/s  p50 %7.2f -> %7.2f ms  p99 %7.2f -> %7.2f ms  errores %d -> %d",
+                    resultado.operacion,
+                    previo.path("tasaLograda").asDouble(), resultado.tasaLograda,
+                    previo.path("p50Ms").asDouble(), resultado.p50Ms,
+                    previo.path("p99Ms").asDouble(), resultado.p99Ms,
+                    previo.path("errores").asLong(), resultado.errores));
+        }
+        JsonNode memoriaPrevia = informe.path("memoria");
+        lineas.add(String.format("memoria    %.1f -> %.1f KB/petición  heap máximo %.1f -> %.1f MB  GC %d -> %d ms  hilos %d -> %d",
+                memoriaPrevia.path("kbPorPeticion").asDouble(), memoria.kbPorPeticion,
+                memoriaPrevia.path("mbHeapMaximo").asDouble(), memoria.mbHeapMaximo,
+                memoriaPrevia.path("pausasGcMs").asLong(), memoria.pausasGcMs,
+                memoriaPrevia.path("hilosMaximos").asInt(), memoria.hilosMaximos));
+
+        lineas.forEach(LOG::info);
+        Files.write(Path.of("target", "carga", backend(), "comparacion.txt"), lineas);
+    }
+
+    // Crea los usuarios con el endpoint de importación y se queda con sus ids
+    private List<UsuarioSembrado> sembrar(String grupo, int cantidad) throws Exception {
+        ArrayNode cuerpo = objectMapper.createArrayNode();
+        for (int i = 0; i < cantidad; i++) {
+            cuerpo.add(usuario(grupo + "-" + i));
+        }
+        HttpResponse<String> respuesta = cliente.send(
+                enviar("POST", URI.create(api + "/batch"), cuerpo), HttpResponse.BodyHandlers.ofString());
+        assertTrue(respuesta.statusCode() == 200, "No se pudieron crear los usuarios iniciales: " + respuesta.body());
+
+        List<UsuarioSembrado> usuarios = new ArrayList<>(cantidad);
+        for (JsonNode resultado : objectMapper.readTree(respuesta.body())) {
+            if ("CREADO".equals(resultado.path("estado").asText())) {
+                usuarios.add(new UsuarioSembrado(resultado.path("id").asText(), resultado.path("email").asText()));
+            }
+        }
+        assertTrue(usuarios.size() == cantidad, "Sólo se crearon " + usuarios.size() + " de " + cantidad + " usuarios");
+        return usuarios;
+    }
+
+    private ObjectNode usuario(String clave) {
+        return usuario("carga-" + ejecucion + "-" + clave + "@example.com", Math.abs(clave.hashCode()));
+    }
+
+    private ObjectNode usuario(String email, int semilla) {
+        return objectMapper.createObjectNode()
+                .put("nombre", NOMBRES[semilla % NOMBRES.length] + " " + APELLIDOS[(semilla / NOMBRES.length) % APELLIDOS.length])
+                .put("email", email)
+                .put("telefono", String.format("6%09d", semilla % 1_000_000_000));
+    }
+
+    private HttpRequest get(String ruta) {
+        return HttpRequest.newBuilder(uri(ruta))
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+
+    private HttpRequest enviar(String metodo, String ruta, JsonNode cuerpo) {
+        return enviar(metodo, uri(ruta), cuerpo);
+    }
+
+    private HttpRequest enviar(String metodo, URI uri, JsonNode cuerpo) {
+        try {
+            return HttpRequest.newBuilder(uri)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .method(metodo, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(cuerpo)))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private URI uri(String ruta) {
+        return URI.create(base + ruta);
+    }
+
+    private static UsuarioSembrado aleatorio(List<UsuarioSembrado> usuarios) {
+        return usuarios.get(ThreadLocalRandom.current().nextInt(usuarios.size()));
+    }
+
+    private static class UsuarioSembrado {
+        final String id;
+        final String email;
+
+        UsuarioSembrado(String id, String email) {
+            this.id = id;
+            this.email = email;
+        }
+    }
+}
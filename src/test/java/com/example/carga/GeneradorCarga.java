@@ -0,0 +1,96 @@
+package com.example.carga;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.jboss.logging.Logger;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga en lazo abierto: cada operación tiene su propio hilo que programa las
+ * llegadas a intervalos fijos y envía las peticiones de forma asíncrona, sin esperar a que
+ * terminen las anteriores. Así la tasa no baja cuando el servidor se degrada.
+ */
+final class GeneradorCarga {
+
+    private static final Logger LOG = Logger.getLogger(GeneradorCarga.class);
+
+    private final HttpClient cliente;
+    private final Duration espera;
+
+    GeneradorCarga(HttpClient cliente, Duration espera) {
+        this.cliente = cliente;
+        this.espera = espera;
+    }
+
+    List<ResultadoOperacion> ejecutar(List<OperacionCarga> operaciones, Duration duracion) throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(operaciones.size());
+        try {
+            List<Future<ResultadoOperacion>> pendientes = new ArrayList<>();
+            for (OperacionCarga operacion : operaciones) {
+                pendientes.add(hilos.submit(() -> ejecutar(operacion, duracion)));
+            }
+            List<ResultadoOperacion> resultados = new ArrayList<>();
+            for (Future<ResultadoOperacion> pendiente : pendientes) {
+                resultados.add(pendiente.get());
+            }
+            return resultados;
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    private ResultadoOperacion ejecutar(OperacionCarga operacion, Duration duracion) throws InterruptedException {
+        Histogram histograma = new ConcurrentHistogram(3);
+        AtomicLong exitosas = new AtomicLong();
+        AtomicLong errores = new AtomicLong();
+        AtomicLong enCurso = new AtomicLong();
+
+        long intervalo = (long) (TimeUnit.SECONDS.toNanos(1) / operacion.tasa);
+        long llegadas = duracion.toNanos() / intervalo;
+        long inicio = System.nanoTime();
+
+        for (long i = 0; i < llegadas; i++) {
+            long programada = inicio + i * intervalo;
+            long hastaLlegada = programada - System.nanoTime();
+            if (hastaLlegada > 0) {
+                LockSupport.parkNanos(hastaLlegada);
+            }
+
+            enCurso.incrementAndGet();
+            cliente.sendAsync(operacion.siguientePeticion(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((respuesta, error) -> {
+                        histograma.recordValue(System.nanoTime() - programada);
+                        if (error == null && respuesta.statusCode() < 400) {
+                            exitosas.incrementAndGet();
+                        } else {
+                            errores.incrementAndGet();
+                            if (error != null) {
+                                LOG.debugf(error, "Error en %s", operacion.nombre);
+                            }
+                        }
+                        enCurso.decrementAndGet();
+                    });
+        }
+
+        // Las peticiones que siguen sin respuesta tras el timeout cuentan como errores
+        long limite = System.nanoTime() + espera.toNanos();
+        while (enCurso.get() > 0 && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+
+        double segundos = duracion.toNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+        return ResultadoOperacion.de(operacion, histograma, llegadas, exitosas.get(),
+                errores.get() + enCurso.get(), segundos);
+    }
+}
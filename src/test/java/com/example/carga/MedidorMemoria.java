@@ -0,0 +1,107 @@
+package com.example.carga;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Memoria de la JVM durante la medición, a partir de las notificaciones de cada recolección: lo
+ * liberado por el GC más lo que sigue ocupado al terminar es lo asignado en el intervalo. Incluye
+ * los hilos virtuales (ThreadMXBean sólo cuenta los de plataforma) y también al propio generador
+ * de carga, que es idéntico en todas las ejecuciones y no altera la comparación.
+ */
+final class MedidorMemoria implements NotificationListener {
+
+    private final Set<String> poolsHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .map(MemoryPoolMXBean::getName)
+            .collect(Collectors.toSet());
+
+    private final AtomicLong liberados = new AtomicLong();
+    private final AtomicLong colecciones = new AtomicLong();
+    private final AtomicLong pausasMs = new AtomicLong();
+    private final AtomicLong heapMaximo = new AtomicLong();
+
+    private long heapInicial;
+
+    void iniciar() {
+        for (GarbageCollectorMXBean colector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) colector).addNotificationListener(this, null, null);
+        }
+        heapInicial = heapUsado();
+        heapMaximo.set(heapInicial);
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+    }
+
+    ResultadoMemoria detener(long peticiones) throws ListenerNotFoundException {
+        for (GarbageCollectorMXBean colector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) colector).removeNotificationListener(this);
+        }
+        long heapFinal = heapUsado();
+        long asignados = liberados.get() + heapFinal - heapInicial;
+
+        ResultadoMemoria resultado = new ResultadoMemoria();
+        resultado.mbAsignados = asignados / (1024.0 * 1024.0);
+        resultado.kbPorPeticion = peticiones > 0 ? asignados / 1024.0 / peticiones : 0;
+        resultado.mbHeapMaximo = Math.max(heapMaximo.get(), heapFinal) / (1024.0 * 1024.0);
+        resultado.colecciones = colecciones.get();
+        resultado.pausasGcMs = pausasMs.get();
+        resultado.hilosMaximos = ManagementFactory.getThreadMXBean().getPeakThreadCount();
+        return resultado;
+    }
+
+    @Override
+    public void handleNotification(Notification notificacion, Object contexto) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notificacion.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notificacion.getUserData());
+        long antes = sumaHeap(info.getGcInfo().getMemoryUsageBeforeGc());
+        long despues = sumaHeap(info.getGcInfo().getMemoryUsageAfterGc());
+        liberados.addAndGet(antes - despues);
+        colecciones.incrementAndGet();
+        pausasMs.addAndGet(info.getGcInfo().getDuration());
+        heapMaximo.accumulateAndGet(antes, Math::max);
+    }
+
+    private long sumaHeap(Map<String, MemoryUsage> usoPorPool) {
+        return usoPorPool.entrySet().stream()
+                .filter(uso -> poolsHeap.contains(uso.getKey()))
+                .mapToLong(uso -> uso.getValue().getUsed())
+                .sum();
+    }
+
+    private long heapUsado() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getUsage().getUsed())
+                .sum();
+    }
+
+    /**
+     * Resultado de memoria de una ejecución, tal como se escribe en resultados.json.
+     */
+    public static class ResultadoMemoria {
+
+        public double mbAsignados;
+        public double kbPorPeticion;
+        public double mbHeapMaximo;
+        public long colecciones;
+        public long pausasGcMs;
+        public int hilosMaximos;
+    }
+}
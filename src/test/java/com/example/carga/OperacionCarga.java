@@ -0,0 +1,31 @@
+package com.example.carga;
+
+import java.net.http.HttpRequest;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Un endpoint dentro de la mezcla de tráfico: tasa de llegada fija, presupuesto de p99 y la
+ * petición a enviar en cada llegada (recibe el número de secuencia de la llegada, que sigue
+ * creciendo entre el calentamiento y la medición para no repetir altas ni bajas).
+ */
+final class OperacionCarga {
+
+    final String nombre;
+    final double tasa;
+    final double presupuestoP99Ms;
+    final LongFunction<HttpRequest> peticion;
+
+    private final AtomicLong secuencia = new AtomicLong();
+
+    OperacionCarga(String nombre, double tasa, double presupuestoP99Ms, LongFunction<HttpRequest> peticion) {
+        this.nombre = nombre;
+        this.tasa = tasa;
+        this.presupuestoP99Ms = presupuestoP99Ms;
+        this.peticion = peticion;
+    }
+
+    HttpRequest siguientePeticion() {
+        return peticion.apply(secuencia.getAndIncrement());
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.carga;
+
+import com.example.repository.UsuarioRepositoryEnMemoria;
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * La aplicación completa (HTTP, validación, caché, servicio) con UsuarioRepositoryEnMemoria en
+ * lugar de MongoDB: mide el coste propio de la aplicación con resultados reproducibles.
+ */
+public class PerfilCargaEnMemoria implements QuarkusTestProfile {
+
+    @Override
+    public Set<Class<?>> getEnabledAlternatives() {
+        return Set.of(UsuarioRepositoryEnMemoria.class);
+    }
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        return PerfilCargaMongo.configuracionComun();
+    }
+}
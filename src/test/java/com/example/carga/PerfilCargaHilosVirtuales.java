@@ -0,0 +1,20 @@
+package com.example.carga;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Como PerfilCargaMongo, pero construyendo la aplicación con la variante imperativa en hilos
+ * virtuales (/api/hilos-virtuales/usuarios) sobre la misma base de datos.
+ */
+public class PerfilCargaHilosVirtuales implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        Map<String, String> configuracion = new HashMap<>(new PerfilCargaMongo().getConfigOverrides());
+        configuracion.put("usuarios.hilos-virtuales.habilitado", "true");
+        return configuracion;
+    }
+}
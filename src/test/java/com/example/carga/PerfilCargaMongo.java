@@ -0,0 +1,29 @@
+package com.example.carga;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * La aplicación contra un mongod local (quarkus.mongodb.connection-string) en una base de datos
+ * propia para no mezclar los usuarios de carga con los de otras pruebas.
+ */
+public class PerfilCargaMongo implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        Map<String, String> configuracion = new HashMap<>(configuracionComun());
+        configuracion.put("quarkus.mongodb.database", "reactive_api_db_carga");
+        return configuracion;
+    }
+
+    // Sin tareas de arranque ni escrituras en el contador compartido, y sin logs por petición
+    static Map<String, String> configuracionComun() {
+        return Map.of(
+                "usuarios.busqueda.indexar-al-iniciar", "false",
+                "usuarios.contador.compartido", "false",
+                "quarkus.log.category.\"com.example\".level", "WARN",
+                "quarkus.log.category.\"com.example.carga\".level", "INFO");
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.carga;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Resultado medido de una operación, tal como se escribe en target/carga/<backend>/resultados.json.
+ * Las latencias se miden desde el instante en que la petición debía enviarse, no desde que se
+ * envió, para que un servidor lento no reduzca la carga que recibe (omisión coordinada).
+ */
+public class ResultadoOperacion {
+
+    private static final double NANOS_POR_MS = 1_000_000.0;
+
+    public String operacion;
+    public double tasaObjetivo;
+    public double tasaLograda;
+    public long enviadas;
+    public long exitosas;
+    public long errores;
+    public double p50Ms;
+    public double p90Ms;
+    public double p99Ms;
+    public double p999Ms;
+    public double maxMs;
+    public double presupuestoP99Ms;
+    public boolean cumplePresupuesto;
+
+    @JsonIgnore
+    Histogram histograma;
+
+    static ResultadoOperacion de(OperacionCarga operacion, Histogram histograma, long enviadas, long exitosas,
+                                 long errores, double segundos) {
+        ResultadoOperacion resultado = new ResultadoOperacion();
+        resultado.operacion = operacion.nombre;
+        resultado.tasaObjetivo = operacion.tasa;
+        resultado.tasaLograda = exitosas / segundos;
+        resultado.enviadas = enviadas;
+        resultado.exitosas = exitosas;
+        resultado.errores = errores;
+        resultado.p50Ms = histograma.getValueAtPercentile(50) / NANOS_POR_MS;
+        resultado.p90Ms = histograma.getValueAtPercentile(90) / NANOS_POR_MS;
+        resultado.p99Ms = histograma.getValueAtPercentile(99) / NANOS_POR_MS;
+        resultado.p999Ms = histograma.getValueAtPercentile(99.9) / NANOS_POR_MS;
+        resultado.maxMs = histograma.getMaxValue() / NANOS_POR_MS;
+        resultado.presupuestoP99Ms = operacion.presupuestoP99Ms;
+        resultado.histograma = histograma;
+        return resultado;
+    }
+}
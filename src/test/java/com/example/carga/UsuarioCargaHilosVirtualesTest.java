@@ -0,0 +1,37 @@
+package com.example.carga;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+
+/**
+ * La misma carga que UsuarioCargaMongoTest contra la variante en hilos virtuales (sólo con JDK 21 o
+ * posterior: con uno anterior Quarkus no construye la aplicación). Ejecutada después
+ * de UsuarioCargaMongoTest con los mismos parámetros, escribe la comparación de ambas en
+ * target/carga/mongo-hilos-virtuales/comparacion.txt:
+ * mvn test -Dcarga=mongo -Dtest=UsuarioCargaMongoTest -Dcarga.escala=5
+ * mvn test -Philos-virtuales -Dcarga=mongo -Dtest=UsuarioCargaHilosVirtualesTest -Dcarga.escala=5
+ */
+@QuarkusTest
+@TestProfile(PerfilCargaHilosVirtuales.class)
+@EnabledIfSystemProperty(named = "carga", matches = "mongo")
+@EnabledForJreRange(min = JRE.JAVA_21)
+public class UsuarioCargaHilosVirtualesTest extends EscenarioCargaUsuarios {
+
+    @Override
+    protected String backend() {
+        return "mongo-hilos-virtuales";
+    }
+
+    @Override
+    protected String ruta() {
+        return "/api/hilos-virtuales/usuarios";
+    }
+
+    @Override
+    protected String referencia() {
+        return "mongo";
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.carga;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Prueba de carga contra un mongod local:
+ * mvn test -Dcarga=mongo -Dtest=UsuarioCargaMongoTest [-Dquarkus.mongodb.connection-string=...]
+ */
+@QuarkusTest
+@TestProfile(PerfilCargaMongo.class)
+@EnabledIfSystemProperty(named = "carga", matches = "mongo")
+public class UsuarioCargaMongoTest extends EscenarioCargaUsuarios {
+
+    @Override
+    protected String backend() {
+        return "mongo";
+    }
+}
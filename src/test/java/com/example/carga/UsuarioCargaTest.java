@@ -0,0 +1,19 @@
+package com.example.carga;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Prueba de carga con el repositorio en memoria: mvn test -Dcarga=true -Dtest=UsuarioCargaTest
+ */
+@QuarkusTest
+@TestProfile(PerfilCargaEnMemoria.class)
+@EnabledIfSystemProperty(named = "carga", matches = "true|memoria")
+public class UsuarioCargaTest extends EscenarioCargaUsuarios {
+
+    @Override
+    protected String backend() {
+        return "memoria";
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.concurrencia;
+
+import io.vertx.core.http.HttpMethod;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LimitadorConcurrenciaTest {
+
+    private static final long RTT_BASE = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Test
+    public void testRechazaAlAlcanzarElLimite() {
+        LimitadorConcurrencia limitador = new LimitadorConcurrencia(2, 1, 10, 1.5);
+
+        assertEquals(1, limitador.adquirir());
+        assertEquals(2, limitador.adquirir());
+        assertEquals(-1, limitador.adquirir());
+
+        limitador.liberarSinMuestra();
+        assertEquals(2, limitador.adquirir());
+    }
+
+    @Test
+    public void testSubeConLatenciaEstableYBajaCuandoCrece() {
+        LimitadorConcurrencia limitador = new LimitadorConcurrencia(20, 4, 200, 1.5);
+
+        for (int i = 0; i < 200; i++) {
+            ciclo(limitador, RTT_BASE);
+        }
+        int limiteSaturado = limitador.limite();
+        assertTrue(limiteSaturado > 20, "límite tras latencia estable: " + limiteSaturado);
+
+        // Las peticiones empiezan a hacer cola: la latencia se triplica
+        ciclo(limitador, RTT_BASE * 3);
+        assertTrue(limitador.limite() < limiteSaturado / 2, "límite tras subir la latencia: " + limitador.limite());
+    }
+
+    @Test
+    public void testNoSubeSinDemanda() {
+        LimitadorConcurrencia limitador = new LimitadorConcurrencia(20, 4, 200, 1.5);
+
+        for (int i = 0; i < 200; i++) {
+            int enCurso = limitador.adquirir();
+            limitador.liberar(RTT_BASE, enCurso, false);
+        }
+
+        assertEquals(20, limitador.limite());
+    }
+
+    @Test
+    public void testErroresReducenHastaElMinimo() {
+        LimitadorConcurrencia limitador = new LimitadorConcurrencia(20, 4, 200, 1.5);
+
+        for (int i = 0; i < 100; i++) {
+            int enCurso = limitador.adquirir();
+            limitador.liberar(RTT_BASE, enCurso, true);
+        }
+
+        assertEquals(4, limitador.limite());
+        assertEquals(0, limitador.enCurso());
+    }
+
+    @Test
+    public void testClasificacion() {
+        assertEquals(FiltroConcurrencia.ClaseOperacion.LECTURA,
+                     FiltroConcurrencia.clasificar(HttpMethod.GET, "/api/usuarios"));
+        assertEquals(FiltroConcurrencia.ClaseOperacion.LECTURA,
+                     FiltroConcurrencia.clasificar(HttpMethod.GET, "/api/usuarios/count"));
+        assertEquals(FiltroConcurrencia.ClaseOperacion.BUSQUEDA,
+                     FiltroConcurrencia.clasificar(HttpMethod.GET, "/api/usuarios/buscar"));
+        assertEquals(FiltroConcurrencia.ClaseOperacion.ESCRITURA,
+                     FiltroConcurrencia.clasificar(HttpMethod.PUT, "/api/usuarios/65a1b2c3d4e5f6a7b8c9d0e1"));
+        assertNull(FiltroConcurrencia.clasificar(HttpMethod.GET, "/api/usuarios/stream"));
+        assertNull(FiltroConcurrencia.clasificar(HttpMethod.GET, "/api/usuarios/changes"));
+        assertNull(FiltroConcurrencia.clasificar(HttpMethod.POST, "/api/usuarios/batch"));
+        assertNull(FiltroConcurrencia.clasificar(HttpMethod.GET, "/api/usuarios/export"));
+        assertEquals(FiltroConcurrencia.ClaseOperacion.BUSQUEDA,
+                     FiltroConcurrencia.clasificar(HttpMethod.GET, "/api/hilos-virtuales/usuarios/buscar"));
+        assertEquals(FiltroConcurrencia.ClaseOperacion.ESCRITURA,
+                     FiltroConcurrencia.clasificar(HttpMethod.DELETE, "/api/hilos-virtuales/usuarios/65a1b2c3d4e5f6a7b8c9d0e1"));
+    }
+
+    // Llena el límite y libera todas las peticiones con la misma latencia
+    private static void ciclo(LimitadorConcurrencia limitador, long rttNanos) {
+        int limite = limitador.limite();
+        int[] enCurso = new int[limite];
+        for (int i = 0; i < limite; i++) {
+            enCurso[i] = limitador.adquirir();
+        }
+        for (int i = 0; i < limite; i++) {
+            limitador.liberar(rttNanos, enCurso[i], false);
+        }
+    }
+}
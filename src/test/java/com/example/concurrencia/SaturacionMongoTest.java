@@ -0,0 +1,83 @@
+package com.example.concurrencia;
+
+import com.example.model.Usuario;
+import com.example.repository.UsuarioRepositoryEnMemoria;
+import com.mongodb.MongoTimeoutException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.mutiny.Uni;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import jakarta.inject.Inject;
+import java.util.Map;
+import java.util.Set;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Una lectura que agota la espera de MongoDB llega al cliente como 503 con Retry-After, no como
+ * 404, y el limitador la cuenta como error: el límite de lecturas baja.
+ */
+@QuarkusTest
+@TestProfile(SaturacionMongoTest.PerfilSaturado.class)
+public class SaturacionMongoTest {
+
+    @Inject
+    MeterRegistry registry;
+
+    private double limiteLecturas() {
+        return registry.get("usuarios.concurrencia.limite").tag("clase", "lectura").gauge().value();
+    }
+
+    @Test
+    public void testLecturaConTimeoutDeMongoEsUn503YReduceElLimite() throws InterruptedException {
+        double inicial = limiteLecturas();
+
+        for (int i = 0; i < 3; i++) {
+            given()
+              .when().get("/api/usuarios/" + new ObjectId().toHexString())
+              .then()
+                 .statusCode(503)
+                 .header("Retry-After", "1");
+        }
+
+        // El limitador recibe la muestra cuando termina la respuesta, no antes de que llegue al cliente
+        for (int i = 0; i < 50 && limiteLecturas() >= inicial; i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(limiteLecturas() < inicial, "límite de lecturas: " + limiteLecturas() + ", inicial: " + inicial);
+    }
+
+    public static class PerfilSaturado implements QuarkusTestProfile {
+
+        @Override
+        public Set<Class<?>> getEnabledAlternatives() {
+            return Set.of(RepositorioSaturado.class);
+        }
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "usuarios.busqueda.indexar-al-iniciar", "false",
+                    "usuarios.contador.compartido", "false");
+        }
+    }
+
+    // Las lecturas por id esperan una conexión del pool hasta agotar el timeout
+    @Alternative
+    @ApplicationScoped
+    public static class RepositorioSaturado extends UsuarioRepositoryEnMemoria {
+
+        @Override
+        public Uni<Usuario> findByIdAndActivo(ObjectId id) {
+            return Uni.createFrom().failure(new MongoTimeoutException(
+                    "Timed out after 120 ms while waiting for a connection to server localhost:27017"));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.health;
+
+import com.example.metricas.MetricasMongo;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.mongodb.reactive.ReactiveMongoClient;
+import io.quarkus.mongodb.reactive.ReactiveMongoDatabase;
+import io.smallrye.mutiny.Uni;
+import org.bson.Document;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoHealthCheckTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MongoHealthCheck salud = new MongoHealthCheck();
+    private final AtomicInteger pings = new AtomicInteger();
+    private Supplier<Uni<Document>> ping = () -> Uni.createFrom().item(new Document("ok", 1));
+
+    @BeforeEach
+    public void preparar() {
+        salud.mongoClient = cliente();
+        salud.registry = registry;
+        salud.intervalo = Duration.ofSeconds(5);
+        salud.timeout = Duration.ofSeconds(2);
+        salud.latenciaMaxima = Duration.ofMillis(500);
+        salud.esperaPoolMaxima = Duration.ofMillis(200);
+    }
+
+    // Sólo runCommand: es lo único que usa el health check
+    private ReactiveMongoClient cliente() {
+        ReactiveMongoDatabase admin = (ReactiveMongoDatabase) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {ReactiveMongoDatabase.class}, (proxy, metodo, argumentos) -> {
+                    if (!metodo.getName().equals("runCommand")) {
+                        throw new UnsupportedOperationException(metodo.getName());
+                    }
+                    pings.incrementAndGet();
+                    return ping.get();
+                });
+        return (ReactiveMongoClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {ReactiveMongoClient.class}, (proxy, metodo, argumentos) -> {
+                    if (!metodo.getName().equals("getDatabase")) {
+                        throw new UnsupportedOperationException(metodo.getName());
+                    }
+                    return admin;
+                });
+    }
+
+    private HealthCheckResponse respuesta() {
+        return salud.call().await().indefinitely();
+    }
+
+    private static String motivo(HealthCheckResponse respuesta) {
+        return (String) respuesta.getData().map(datos -> datos.get("motivo")).orElse(null);
+    }
+
+    private void checkouts(String resultado, int cantidad, long milis) {
+        Timer timer = registry.timer(MetricasMongo.TIMER_CHECKOUT, "outcome", resultado);
+        for (int i = 0; i < cantidad; i++) {
+            timer.record(milis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static long milis(long milis) {
+        return TimeUnit.MILLISECONDS.toNanos(milis);
+    }
+
+    @Test
+    public void testLatenciaDelPingPorEncimaDelUmbral() {
+        salud.registrar(new MongoHealthCheck.Sondeo(milis(400), 0, null));
+        assertEquals(HealthCheckResponse.Status.UP, respuesta().getStatus());
+
+        salud.registrar(new MongoHealthCheck.Sondeo(milis(600), 0, null));
+        HealthCheckResponse caida = respuesta();
+        assertEquals(HealthCheckResponse.Status.DOWN, caida.getStatus());
+        assertEquals("latencia del ping de 600 ms", motivo(caida));
+
+        salud.registrar(new MongoHealthCheck.Sondeo(milis(20), 0, null));
+        assertEquals(HealthCheckResponse.Status.UP, respuesta().getStatus());
+        assertNull(motivo(respuesta()));
+    }
+
+    @Test
+    public void testEsperaMediaDelPoolDeCadaIntervalo() {
+        checkouts("ok", 10, 10);
+        salud.sondeoPeriodico().await().indefinitely();
+        HealthCheckResponse lista = respuesta();
+        assertEquals(HealthCheckResponse.Status.UP, lista.getStatus());
+        assertEquals(10L, lista.getData().map(datos -> datos.get("espera_pool_ms")).orElseThrow());
+
+        // Sólo cuentan los checkouts del intervalo, también los fallidos: (250 + 3 * 400) / 4
+        checkouts("ok", 1, 250);
+        checkouts("failed", 3, 400);
+        salud.sondeoPeriodico().await().indefinitely();
+        HealthCheckResponse caida = respuesta();
+        assertEquals(HealthCheckResponse.Status.DOWN, caida.getStatus());
+        assertEquals("espera media del pool de 362 ms", motivo(caida));
+
+        // Un intervalo sin checkouts no arrastra la espera del anterior
+        salud.sondeoPeriodico().await().indefinitely();
+        assertEquals(HealthCheckResponse.Status.UP, respuesta().getStatus());
+    }
+
+    @Test
+    public void testPingFallidoOSinRespuesta() {
+        ping = () -> Uni.createFrom().failure(new IllegalStateException("conexión rechazada"));
+        salud.sondeoPeriodico().await().indefinitely();
+        assertEquals("ping fallido (conexión rechazada)", motivo(respuesta()));
+
+        salud.timeout = Duration.ofMillis(50);
+        ping = () -> Uni.createFrom().nothing();
+        salud.sondeoPeriodico().await().indefinitely();
+        HealthCheckResponse caida = respuesta();
+        assertEquals(HealthCheckResponse.Status.DOWN, caida.getStatus());
+        assertEquals("ping fallido (sin respuesta en 50 ms)", motivo(caida));
+    }
+
+    @Test
+    public void testResultadoAntiguoDejaDeServir() {
+        // El corte es tres intervalos más el timeout: 17s
+        long ahora = System.nanoTime();
+        salud.registrar(new MongoHealthCheck.Sondeo(milis(20), 0, null, ahora - TimeUnit.SECONDS.toNanos(16)));
+        assertEquals(HealthCheckResponse.Status.UP, respuesta().getStatus());
+
+        salud.registrar(new MongoHealthCheck.Sondeo(milis(20), 0, null, ahora - TimeUnit.SECONDS.toNanos(18)));
+        HealthCheckResponse caida = respuesta();
+        assertEquals(HealthCheckResponse.Status.DOWN, caida.getStatus());
+        assertTrue(motivo(caida).startsWith("sin sondeos desde hace "), motivo(caida));
+    }
+
+    @Test
+    public void testLasSondasUsanElUltimoSondeoSinHacerPing() {
+        // Antes del primer sondeo programado la sonda hace ping
+        assertEquals(HealthCheckResponse.Status.UP, respuesta().getStatus());
+        assertEquals(1, pings.get());
+
+        salud.sondeoPeriodico().await().indefinitely();
+        assertEquals(2, pings.get());
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(HealthCheckResponse.Status.UP, respuesta().getStatus());
+        }
+        assertEquals(2, pings.get());
+
+        // Ni siquiera cuando el último sondeo dejó la instancia fuera
+        ping = () -> Uni.createFrom().failure(new IllegalStateException("conexión rechazada"));
+        salud.sondeoPeriodico().await().indefinitely();
+        ping = () -> Uni.createFrom().item(new Document("ok", 1));
+        assertEquals(HealthCheckResponse.Status.DOWN, respuesta().getStatus());
+        assertEquals(3, pings.get());
+    }
+
+    @Test
+    public void testDatosDeLaRespuesta() {
+        salud.registrar(new MongoHealthCheck.Sondeo(milis(30), milis(5), null));
+
+        Map<String, Object> datos = respuesta().getData().orElseThrow();
+        assertEquals(30L, datos.get("latencia_ms"));
+        assertEquals(5L, datos.get("espera_pool_ms"));
+        assertTrue(datos.containsKey("antiguedad_ms"));
+    }
+}
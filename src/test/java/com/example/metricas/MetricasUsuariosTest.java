@@ -0,0 +1,85 @@
+package com.example.metricas;
+
+import com.example.service.EmailDuplicadoException;
+import com.example.service.ExportacionRechazadaException;
+import com.example.service.UsuarioNoEncontradoException;
+import com.example.service.VersionNoCoincideException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import org.junit.jupiter.api.Test;
+
+import jakarta.validation.ConstraintViolationException;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MetricasUsuariosTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MetricasUsuarios metricas = new MetricasUsuarios(registry);
+
+    private long medidas(String operacion, String resultado) {
+        Timer timer = registry.find(MetricasUsuarios.TIMER_OPERACIONES)
+                .tags("operacion", operacion, "outcome", resultado)
+                .timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    @Test
+    public void testResultadoSegunLaExcepcion() {
+        assertEquals("ok", MetricasUsuarios.resultado(null));
+        assertEquals("not_found", MetricasUsuarios.resultado(new UsuarioNoEncontradoException()));
+        // Es una IllegalArgumentException, pero cuenta como conflicto
+        assertEquals("conflict", MetricasUsuarios.resultado(new EmailDuplicadoException("duplicado")));
+        assertEquals("rejected", MetricasUsuarios.resultado(new ExportacionRechazadaException()));
+        assertEquals("precondition_failed",
+                MetricasUsuarios.resultado(new VersionNoCoincideException(LocalDateTime.now())));
+        assertEquals("invalid", MetricasUsuarios.resultado(new IllegalArgumentException("ID de usuario inválido")));
+        assertEquals("invalid", MetricasUsuarios.resultado(new ConstraintViolationException(Set.of())));
+        assertEquals("error", MetricasUsuarios.resultado(new IllegalStateException("MongoDB no responde")));
+    }
+
+    @Test
+    public void testUniEtiquetadoConSuResultado() {
+        metricas.medir("obtener_por_id", Uni.createFrom().item("ok")).await().indefinitely();
+        metricas.medir("obtener_por_id", Uni.createFrom().item("ok")).await().indefinitely();
+        assertThrows(UsuarioNoEncontradoException.class, () -> metricas.medir("obtener_por_id",
+                Uni.createFrom().failure(new UsuarioNoEncontradoException())).await().indefinitely());
+        metricas.medir("obtener_por_id", Uni.createFrom().nothing())
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .cancel();
+
+        assertEquals(2, medidas("obtener_por_id", "ok"));
+        assertEquals(1, medidas("obtener_por_id", "not_found"));
+        assertEquals(1, medidas("obtener_por_id", "cancelled"));
+        assertEquals(0, medidas("obtener_por_id", "error"));
+    }
+
+    @Test
+    public void testMultiSeMideHastaElUltimoElemento() {
+        metricas.medir("buscar_por_nombre", Multi.createFrom().items(1, 2, 3)).collect().asList().await().indefinitely();
+        assertThrows(EmailDuplicadoException.class, () -> metricas.medir("importar",
+                Multi.createFrom().failure(new EmailDuplicadoException("duplicado"))).collect().asList()
+                .await().indefinitely());
+
+        assertEquals(1, medidas("buscar_por_nombre", "ok"));
+        assertEquals(1, medidas("importar", "conflict"));
+    }
+
+    @Test
+    public void testVarianteSincrona() {
+        assertNull(metricas.medir("eliminar", () -> null));
+        assertThrows(VersionNoCoincideException.class, () -> metricas.medir("actualizar", () -> {
+            throw new VersionNoCoincideException(LocalDateTime.now());
+        }));
+
+        assertEquals(1, medidas("eliminar", "ok"));
+        assertEquals(1, medidas("actualizar", "precondition_failed"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.model;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.BsonTimestamp;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EventoUsuarioTest {
+
+    private static final ObjectId ID = new ObjectId();
+
+    private static ChangeStreamDocument<Usuario> cambio(OperationType operacion, Usuario usuario,
+                                                        UpdateDescription descripcion) {
+        return new ChangeStreamDocument<>(operacion, EventoUsuario.resumeToken("8263A1"),
+                BsonDocument.parse("{db: 'usuarios_db', coll: 'usuarios'}"), null, usuario,
+                new BsonDocument("_id", new BsonObjectId(ID)), new BsonTimestamp(1700000000, 1), descripcion,
+                null, null);
+    }
+
+    private static UpdateDescription actualizados(String campos) {
+        return new UpdateDescription(List.of(), BsonDocument.parse(campos));
+    }
+
+    private static Usuario usuario(boolean activo) {
+        Usuario usuario = new Usuario("Carmen Vidal", "carmen.vidal@example.com", null);
+        usuario.activo = activo;
+        return usuario;
+    }
+
+    @Test
+    public void testAltaYDatosDelEvento() {
+        EventoUsuario evento = EventoUsuario.de(cambio(OperationType.INSERT, usuario(true), null));
+
+        assertEquals(EventoUsuario.Tipo.CREADO, evento.tipo);
+        assertEquals(ID.toHexString(), evento.id);
+        assertEquals("8263A1", evento.token);
+        assertEquals(1700000000000L, evento.timestamp);
+    }
+
+    @Test
+    public void testActualizacionQueDesactivaEsUnaDesactivacion() {
+        assertEquals(EventoUsuario.Tipo.DESACTIVADO, EventoUsuario.de(cambio(OperationType.UPDATE, usuario(false),
+                actualizados("{activo: false, fechaActualizacion: {$date: '2024-01-31T10:15:30Z'}}"))).tipo);
+        assertEquals(EventoUsuario.Tipo.ACTUALIZADO, EventoUsuario.de(cambio(OperationType.UPDATE, usuario(true),
+                actualizados("{nombre: 'Carmen Vidal Roca'}"))).tipo);
+        assertEquals(EventoUsuario.Tipo.ACTUALIZADO, EventoUsuario.de(cambio(OperationType.UPDATE, usuario(true),
+                actualizados("{activo: true}"))).tipo);
+    }
+
+    @Test
+    public void testReemplazoSegunElDocumentoCompleto() {
+        assertEquals(EventoUsuario.Tipo.DESACTIVADO,
+                EventoUsuario.de(cambio(OperationType.REPLACE, usuario(false), null)).tipo);
+        assertEquals(EventoUsuario.Tipo.ACTUALIZADO,
+                EventoUsuario.de(cambio(OperationType.REPLACE, usuario(true), null)).tipo);
+        // Sin documento completo no se puede saber si se desactivó
+        assertEquals(EventoUsuario.Tipo.ACTUALIZADO,
+                EventoUsuario.de(cambio(OperationType.REPLACE, null, null)).tipo);
+    }
+}
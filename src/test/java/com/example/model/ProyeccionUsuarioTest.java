@@ -0,0 +1,47 @@
+package com.example.model;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProyeccionUsuarioTest {
+
+    @Test
+    public void testSinCamposDevuelveElUsuarioCompleto() {
+        assertNull(ProyeccionUsuario.de(null));
+        assertNull(ProyeccionUsuario.de(" "));
+    }
+
+    @Test
+    public void testResumenIncluyeSiempreElId() {
+        assertTrue(ProyeccionUsuario.de("nombre,email").esResumen());
+        assertTrue(ProyeccionUsuario.de(" email , nombre, id ").esResumen());
+        assertFalse(ProyeccionUsuario.de("nombre").esResumen());
+    }
+
+    @Test
+    public void testCampoNoPermitido() {
+        assertThrows(IllegalArgumentException.class, () -> ProyeccionUsuario.de("nombre,nombreNormalizado"));
+    }
+
+    @Test
+    public void testAplicarSoloIncluyeLosCamposPedidos() {
+        Usuario usuario = new Usuario("Ana Torres", "ana@example.com", "1234567890");
+        usuario.id = new ObjectId();
+
+        Map<String, Object> vista = ProyeccionUsuario.de("telefono,nombre").aplicar(usuario);
+
+        assertEquals(List.of("nombre", "telefono", "id"), List.copyOf(vista.keySet()));
+        assertEquals(usuario.id, vista.get("id"));
+        assertInstanceOf(UsuarioResumen.class, ProyeccionUsuario.de("nombre,email").vista(usuario));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.repository;
+
+import org.bson.BsonBinary;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonTimestamp;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConsistenciaCausalTest {
+
+    @Test
+    public void testTokenConservaOperationTimeYClusterTime() {
+        BsonTimestamp operationTime = new BsonTimestamp(1_700_000_000, 3);
+        BsonDocument clusterTime = new BsonDocument("clusterTime", operationTime)
+                .append("signature", new BsonDocument("hash", new BsonBinary(new byte[20]))
+                        .append("keyId", new BsonInt64(7)));
+
+        String token = ConsistenciaCausal.token(operationTime, clusterTime);
+        BsonDocument datos = ConsistenciaCausal.decodificar(token);
+
+        assertFalse(token.contains("=") || token.contains("+") || token.contains("/"), token);
+        assertEquals(operationTime, datos.getTimestamp("operationTime"));
+        assertEquals(clusterTime, datos.getDocument("clusterTime"));
+    }
+
+    @Test
+    public void testRechazaTokensInvalidos() {
+        String sinOperationTime = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(new RawBsonDocument(new BsonDocument("otro", new BsonInt64(1)), new BsonDocumentCodec())
+                                        .getByteBuffer().array());
+
+        assertThrows(IllegalArgumentException.class, () -> ConsistenciaCausal.decodificar("no es base64"));
+        assertThrows(IllegalArgumentException.class, () -> ConsistenciaCausal.decodificar("AAAA"));
+        assertThrows(IllegalArgumentException.class, () -> ConsistenciaCausal.decodificar(sinOperationTime));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.repository;
+
+import com.example.model.Contador;
+import io.smallrye.mutiny.Uni;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sustituto en memoria de ContadorRepository con la misma semántica de versiones que la colección
+ * "contadores". antesDeFijar permite simular el incremento de otra réplica justo antes de la
+ * escritura condicional.
+ */
+@Alternative
+@ApplicationScoped
+public class ContadorRepositoryEnMemoria extends ContadorRepository {
+
+    private final ConcurrentHashMap<String, Contador> contadores = new ConcurrentHashMap<>();
+
+    public volatile Runnable antesDeFijar;
+
+    @Override
+    public Uni<Contador> findById(String id) {
+        return Uni.createFrom().item(() -> copiar(contadores.get(id)));
+    }
+
+    @Override
+    public Uni<Void> incrementar(String id, long delta) {
+        return Uni.createFrom().item(() -> {
+            contadores.compute(id, (clave, contador) -> {
+                Contador nuevo = contador != null ? copiar(contador) : nuevo(clave);
+                nuevo.valor += delta;
+                nuevo.version++;
+                nuevo.fechaActualizacion = LocalDateTime.now();
+                return nuevo;
+            });
+            return null;
+        });
+    }
+
+    @Override
+    public Uni<Boolean> fijarSiVersion(String id, long version, long valor) {
+        return Uni.createFrom().item(() -> {
+            Runnable accion = antesDeFijar;
+            if (accion != null) {
+                antesDeFijar = null;
+                accion.run();
+            }
+            boolean[] fijado = new boolean[1];
+            contadores.compute(id, (clave, contador) -> {
+                if ((contador != null ? contador.version : 0) != version) {
+                    return contador;
+                }
+                Contador nuevo = contador != null ? copiar(contador) : nuevo(clave);
+                nuevo.valor = valor;
+                nuevo.version++;
+                nuevo.fechaActualizacion = LocalDateTime.now();
+                fijado[0] = true;
+                return nuevo;
+            });
+            return fijado[0];
+        });
+    }
+
+    private static Contador nuevo(String id) {
+        Contador contador = new Contador();
+        contador.id = id;
+        return contador;
+    }
+
+    private static Contador copiar(Contador contador) {
+        if (contador == null) {
+            return null;
+        }
+        Contador copia = nuevo(contador.id);
+        copia.valor = contador.valor;
+        copia.version = contador.version;
+        copia.fechaActualizacion = contador.fechaActualizacion;
+        return copia;
+    }
+}
@@ -0,0 +1,437 @@
+package com.example.repository;
+
+import com.example.model.Usuario;
+import com.example.model.UsuarioResumen;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteError;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.internal.bulk.WriteRequest;
+import com.mongodb.reactivestreams.client.ClientSession;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Sustituto en memoria de UsuarioRepository para benchmarks y pruebas de carga: reproduce la
+ * semántica de las consultas (filtro de activos, orden por _id, índice único de email) sin
+ * MongoDB. Devuelve copias, igual que el driver, para que nadie comparta instancias almacenadas.
+ * Las proyecciones y las sesiones se ignoran: los usuarios se devuelven completos y el servicio elige
+ * los campos, y no hay réplicas que puedan ir por detrás.
+ * Como bean alternativo sólo se activa en los perfiles de prueba que lo habilitan.
+ */
+@Alternative
+@ApplicationScoped
+public class UsuarioRepositoryEnMemoria extends UsuarioRepository {
+
+    private static final int CLAVE_DUPLICADA = 11000;
+
+    private static final CodecRegistry CODECS = CodecRegistries.fromRegistries(
+            MongoClientSettings.getDefaultCodecRegistry(),
+            CodecRegistries.fromProviders(PojoCodecProvider.builder().automatic(true).build()));
+
+    private static final Codec<Usuario> CODEC = CODECS.get(Usuario.class);
+
+    private final ConcurrentSkipListMap<ObjectId, Usuario> usuarios = new ConcurrentSkipListMap<>();
+
+    // Equivalente al índice único de email, parcial sobre los activos
+    private final ConcurrentHashMap<String, ObjectId> idsPorEmail = new ConcurrentHashMap<>();
+
+    public UsuarioRepositoryEnMemoria() {
+    }
+
+    public UsuarioRepositoryEnMemoria(Collection<Usuario> iniciales) {
+        iniciales.forEach(this::guardar);
+    }
+
+    @Override
+    public Uni<Usuario> findByEmail(String email) {
+        return Uni.createFrom().item(() -> {
+            ObjectId id = idsPorEmail.get(email);
+            Usuario usuario = id != null ? usuarios.get(id) : null;
+            return usuario != null && Boolean.TRUE.equals(usuario.activo) ? copiar(usuario) : null;
+        });
+    }
+
+    @Override
+    public Multi<Usuario> findByPrefijoNombre(ClientSession sesion, String prefijoNormalizado, int limite,
+                                              Bson proyeccion) {
+        return Multi.createFrom().items(() -> activos()
+                .filter(usuario -> usuario.nombreNormalizado != null
+                        && usuario.nombreNormalizado.startsWith(prefijoNormalizado))
+                .sorted(Comparator.comparing(usuario -> usuario.nombreNormalizado))
+                .limit(limite)
+                .map(UsuarioRepositoryEnMemoria::copiar));
+    }
+
+    @Override
+    public Multi<Usuario> findByNgramasNombre(ClientSession sesion, List<String> ngramas, int maxCandidatos,
+                                              Bson proyeccion) {
+        return Multi.createFrom().items(() -> activos()
+                .filter(usuario -> usuario.nombreNgramas != null && usuario.nombreNgramas.containsAll(ngramas))
+                .limit(maxCandidatos)
+                .map(UsuarioRepositoryEnMemoria::copiar));
+    }
+
+    @Override
+    public Multi<RawBsonDocument> findByPrefijoNombreSinDecodificar(ClientSession sesion, String prefijoNormalizado,
+                                                                    int limite) {
+        return findByPrefijoNombre(sesion, prefijoNormalizado, limite, null).map(UsuarioRepositoryEnMemoria::codificar);
+    }
+
+    @Override
+    public Multi<RawBsonDocument> findByNgramasNombreSinDecodificar(ClientSession sesion, List<String> ngramas,
+                                                                    int maxCandidatos) {
+        return findByNgramasNombre(sesion, ngramas, maxCandidatos, null).map(UsuarioRepositoryEnMemoria::codificar);
+    }
+
+    @Override
+    public Multi<Usuario> findSinNombreIndexado(int batchSize) {
+        return Multi.createFrom().items(() -> usuarios.values().stream()
+                .filter(usuario -> usuario.nombreNormalizado == null)
+                .map(UsuarioRepositoryEnMemoria::copiar));
+    }
+
+    @Override
+    public Uni<Void> guardarIndiceNombre(Usuario usuario) {
+        return Uni.createFrom().item(() -> {
+            usuarios.computeIfPresent(usuario.id, (id, almacenado) -> {
+                Usuario actualizado = copiar(almacenado);
+                actualizado.nombreNormalizado = usuario.nombreNormalizado;
+                actualizado.nombreNgramas = usuario.nombreNgramas;
+                return actualizado;
+            });
+            return null;
+        });
+    }
+
+    @Override
+    public Uni<List<Usuario>> findActivosDespuesDe(ClientSession sesion, ObjectId after, int limit, Bson proyeccion) {
+        return Uni.createFrom().item(() -> activosDespuesDe(after)
+                .limit(limit)
+                .map(UsuarioRepositoryEnMemoria::copiar)
+                .toList());
+    }
+
+    @Override
+    public Uni<List<UsuarioResumen>> findResumenesActivosDespuesDe(ClientSession sesion, ObjectId after, int limit) {
+        return Uni.createFrom().item(() -> activosDespuesDe(after)
+                .limit(limit)
+                .map(UsuarioResumen::de)
+                .toList());
+    }
+
+    @Override
+    public Uni<List<RawBsonDocument>> findActivosDespuesDeSinDecodificar(ClientSession sesion, ObjectId after,
+                                                                        int limit) {
+        return Uni.createFrom().item(() -> activosDespuesDe(after)
+                .limit(limit)
+                .map(UsuarioRepositoryEnMemoria::codificar)
+                .toList());
+    }
+
+    @Override
+    public Multi<Usuario> streamActivosDespuesDe(ObjectId after, int batchSize) {
+        return Multi.createFrom().items(() -> activosDespuesDe(after)
+                .map(UsuarioRepositoryEnMemoria::copiar));
+    }
+
+    @Override
+    public Multi<String> streamEmailsActivos(int batchSize) {
+        return Multi.createFrom().items(() -> List.copyOf(idsPorEmail.keySet()).stream());
+    }
+
+    @Override
+    public Multi<RawBsonDocument> exportarDesde(LocalDateTime desde, ObjectId despuesDe, int batchSize) {
+        Comparator<Usuario> orden = Comparator.comparing((Usuario usuario) -> usuario.fechaActualizacion,
+                                                         Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(usuario -> usuario.id);
+        return Multi.createFrom().items(() -> usuarios.values().stream()
+                .filter(usuario -> desde == null || usuario.fechaActualizacion != null
+                        && (usuario.fechaActualizacion.isAfter(desde) || usuario.fechaActualizacion.isEqual(desde)
+                            && (despuesDe == null || usuario.id.compareTo(despuesDe) > 0)))
+                .sorted(orden)
+                .map(UsuarioRepositoryEnMemoria::codificar));
+    }
+
+    @Override
+    public Uni<Long> countActivos(ClientSession sesion) {
+        return Uni.createFrom().item(() -> activos().count());
+    }
+
+    @Override
+    public Uni<Long> countActivosEnPrimario() {
+        return countActivos(null);
+    }
+
+    @Override
+    public Uni<Usuario> findByIdAndActivo(ObjectId id) {
+        return Uni.createFrom().item(() -> {
+            Usuario usuario = usuarios.get(id);
+            return usuario != null && Boolean.TRUE.equals(usuario.activo) ? copiar(usuario) : null;
+        });
+    }
+
+    @Override
+    public Uni<Boolean> existsByEmail(String email) {
+        return Uni.createFrom().item(() -> idsPorEmail.containsKey(email));
+    }
+
+    @Override
+    public Uni<Usuario> persist(Usuario usuario) {
+        return Uni.createFrom().item(() -> {
+            if (usuario.id == null) {
+                usuario.id = new ObjectId();
+            }
+            guardar(usuario);
+            return usuario;
+        });
+    }
+
+    @Override
+    public Uni<Usuario> insertar(ClientSession sesion, Usuario usuario) {
+        return persist(usuario);
+    }
+
+    @Override
+    public Uni<LocalDateTime> findVersionActivo(ObjectId id) {
+        return Uni.createFrom().item(() -> {
+            Usuario usuario = usuarios.get(id);
+            return usuario != null && Boolean.TRUE.equals(usuario.activo)
+                    ? usuario.fechaActualizacion.truncatedTo(ChronoUnit.MILLIS)
+                    : null;
+        });
+    }
+
+    @Override
+    public Uni<Usuario> actualizarActivo(ClientSession sesion, ObjectId id, List<LocalDateTime> versiones,
+                                         Usuario datos) {
+        return Uni.createFrom().item(() -> {
+            synchronized (this) {
+                Usuario almacenado = usuarios.get(id);
+                if (almacenado == null || !Boolean.TRUE.equals(almacenado.activo)) {
+                    return null;
+                }
+                // MongoDB guarda las fechas en milisegundos
+                if (versiones != null
+                        && !versiones.contains(almacenado.fechaActualizacion.truncatedTo(ChronoUnit.MILLIS))) {
+                    return null;
+                }
+                comprobarEmailUnico(datos.email, id);
+                idsPorEmail.remove(almacenado.email);
+                idsPorEmail.put(datos.email, id);
+                Usuario actualizado = copiar(almacenado);
+                actualizado.nombre = datos.nombre;
+                actualizado.nombreNormalizado = datos.nombreNormalizado;
+                actualizado.nombreNgramas = datos.nombreNgramas;
+                actualizado.email = datos.email;
+                actualizado.telefono = datos.telefono;
+                actualizado.fechaActualizacion = LocalDateTime.now();
+                usuarios.put(id, actualizado);
+                return copiar(actualizado);
+            }
+        });
+    }
+
+    @Override
+    public Uni<Usuario> desactivar(ClientSession sesion, ObjectId id) {
+        return Uni.createFrom().item(() -> {
+            synchronized (this) {
+                Usuario almacenado = usuarios.get(id);
+                if (almacenado == null || !Boolean.TRUE.equals(almacenado.activo)) {
+                    return null;
+                }
+                idsPorEmail.remove(almacenado.email, id);
+                Usuario desactivado = copiar(almacenado);
+                desactivado.activo = false;
+                desactivado.fechaActualizacion = LocalDateTime.now();
+                usuarios.put(id, desactivado);
+                return copiar(desactivado);
+            }
+        });
+    }
+
+    @Override
+    public Uni<Set<String>> findEmailsExistentes(Collection<String> emails) {
+        return Uni.createFrom().item(() -> emails.stream()
+                .filter(idsPorEmail::containsKey)
+                .collect(Collectors.toSet()));
+    }
+
+    @Override
+    public Uni<InsertManyResult> insertarLote(List<Usuario> lote) {
+        return Uni.createFrom().item(() -> {
+            Map<Integer, BsonValue> insertados = new HashMap<>();
+            List<BulkWriteError> errores = new ArrayList<>();
+            for (int i = 0; i < lote.size(); i++) {
+                try {
+                    guardar(lote.get(i));
+                    insertados.put(i, new BsonObjectId(lote.get(i).id));
+                } catch (MongoWriteException e) {
+                    errores.add(new BulkWriteError(e.getCode(), e.getMessage(), new BsonDocument(), i));
+                }
+            }
+            if (!errores.isEmpty()) {
+                throw new MongoBulkWriteException(
+                        BulkWriteResult.acknowledged(WriteRequest.Type.INSERT, insertados.size(), List.of()),
+                        errores, null, new ServerAddress());
+            }
+            return InsertManyResult.acknowledged(insertados);
+        });
+    }
+
+    // Los índices ya son los requeridos: no hay nada que crear ni reemplazar
+    @Override
+    public Multi<BsonDocument> listarIndices() {
+        return Multi.createFrom().iterable(INDICES).map(indice -> {
+            BsonDocument descripcion = new BsonDocument("name", new BsonString(indice.getOptions().getName()))
+                    .append("key", indice.getKeys().toBsonDocument(BsonDocument.class, CODECS));
+            if (Boolean.TRUE.equals(indice.getOptions().isUnique())) {
+                descripcion.append("unique", BsonBoolean.TRUE);
+            }
+            if (indice.getOptions().getPartialFilterExpression() != null) {
+                descripcion.append("partialFilterExpression", indice.getOptions().getPartialFilterExpression()
+                        .toBsonDocument(BsonDocument.class, CODECS));
+            }
+            return descripcion;
+        });
+    }
+
+    @Override
+    public Uni<Void> crearIndice(IndexModel indice) {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> eliminarIndice(String nombre) {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<List<BsonDocument>> findInactivosAntesDe(LocalDateTime corte, int limite) {
+        return Uni.createFrom().item(() -> usuarios.values().stream()
+                .filter(usuario -> !Boolean.TRUE.equals(usuario.activo)
+                        && usuario.fechaActualizacion != null && usuario.fechaActualizacion.isBefore(corte))
+                .limit(limite)
+                .<BsonDocument>map(UsuarioRepositoryEnMemoria::codificar)
+                .toList());
+    }
+
+    // Los archivados sólo se borran: no hay colección de archivo en memoria
+    @Override
+    public Uni<Long> archivar(List<BsonDocument> documentos) {
+        return Uni.createFrom().item(() -> {
+            long borrados = 0;
+            for (BsonDocument documento : documentos) {
+                ObjectId id = documento.getObjectId("_id").getValue();
+                Usuario usuario = usuarios.get(id);
+                if (usuario != null && !Boolean.TRUE.equals(usuario.activo) && usuarios.remove(id, usuario)) {
+                    borrados++;
+                }
+            }
+            return borrados;
+        });
+    }
+
+    @Override
+    public Multi<ChangeStreamDocument<Usuario>> observarCambios(BsonDocument resumeToken) {
+        return Multi.createFrom().nothing();
+    }
+
+    public int size() {
+        return usuarios.size();
+    }
+
+    // Borrado físico, sin equivalente en la API: permite a los benchmarks de alta no crecer sin límite
+    public synchronized void borrar(ObjectId id) {
+        Usuario usuario = usuarios.remove(id);
+        if (usuario != null) {
+            idsPorEmail.remove(usuario.email, id);
+        }
+    }
+
+    public synchronized void vaciar() {
+        usuarios.clear();
+        idsPorEmail.clear();
+    }
+
+    // Inserción con la misma restricción que el índice único de email
+    private synchronized void guardar(Usuario usuario) {
+        if (Boolean.TRUE.equals(usuario.activo)) {
+            comprobarEmailUnico(usuario.email, usuario.id);
+            idsPorEmail.put(usuario.email, usuario.id);
+        }
+        usuarios.put(usuario.id, copiar(usuario));
+    }
+
+    private void comprobarEmailUnico(String email, ObjectId id) {
+        ObjectId existente = idsPorEmail.get(email);
+        if (existente != null && !existente.equals(id)) {
+            throw new MongoWriteException(
+                    new WriteError(CLAVE_DUPLICADA, "E11000 duplicate key error: email", new BsonDocument()),
+                    new ServerAddress());
+        }
+    }
+
+    private Stream<Usuario> activos() {
+        return usuarios.values().stream()
+                .filter(usuario -> Boolean.TRUE.equals(usuario.activo));
+    }
+
+    private Stream<Usuario> activosDespuesDe(ObjectId after) {
+        return (after != null ? usuarios.tailMap(after, false) : usuarios).values().stream()
+                .filter(usuario -> Boolean.TRUE.equals(usuario.activo));
+    }
+
+    // Los mismos bytes que devolvería MongoDB para el documento almacenado
+    private static RawBsonDocument codificar(Usuario usuario) {
+        return new RawBsonDocument(usuario, CODEC);
+    }
+
+    private static Usuario copiar(Usuario origen) {
+        Usuario copia = new Usuario();
+        copia.id = origen.id;
+        copia.nombre = origen.nombre;
+        copia.email = origen.email;
+        copia.telefono = origen.telefono;
+        copia.activo = origen.activo;
+        copia.fechaCreacion = origen.fechaCreacion;
+        copia.fechaActualizacion = origen.fechaActualizacion;
+        copia.nombreNormalizado = origen.nombreNormalizado;
+        copia.nombreNgramas = origen.nombreNgramas;
+        return copia;
+    }
+}
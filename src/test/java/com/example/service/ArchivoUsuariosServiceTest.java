@@ -0,0 +1,80 @@
+package com.example.service;
+
+import com.example.model.Usuario;
+import com.example.repository.UsuarioRepositoryEnMemoria;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ArchivoUsuariosServiceTest {
+
+    private final UsuarioRepositoryEnMemoria usuarios = new UsuarioRepositoryEnMemoria();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private ArchivoUsuariosService archivo(int tamanoLote, int maxLotes) {
+        ArchivoUsuariosService archivo = new ArchivoUsuariosService();
+        archivo.usuarioRepository = usuarios;
+        archivo.registry = registry;
+        archivo.habilitado = true;
+        archivo.antiguedad = Duration.ofDays(30);
+        archivo.tamanoLote = tamanoLote;
+        archivo.maxLotes = maxLotes;
+        archivo.pausa = Duration.ofMillis(1);
+        return archivo;
+    }
+
+    private void usuario(int i, boolean activo, LocalDateTime fechaActualizacion) {
+        Usuario usuario = new Usuario("Usuario " + i, "usuario" + i + "@example.com", null);
+        usuario.activo = activo;
+        usuario.fechaActualizacion = fechaActualizacion;
+        usuarios.persist(usuario).await().indefinitely();
+    }
+
+    private double archivados() {
+        return registry.counter(ArchivoUsuariosService.CONTADOR_ARCHIVADOS).count();
+    }
+
+    @Test
+    public void testArchivaSoloInactivosAnterioresAlCorte() {
+        LocalDateTime corte = LocalDateTime.now().minusDays(30);
+        usuario(1, false, corte.minusDays(1));
+        usuario(2, false, corte.minusDays(10));
+        usuario(3, false, corte.plusDays(1));
+        usuario(4, true, corte.minusDays(5));
+
+        assertEquals(2, archivo(500, 100).archivar(corte).await().indefinitely());
+        assertEquals(2, usuarios.size());
+        assertEquals(2, archivados());
+    }
+
+    @Test
+    public void testArchivaPorLotesHastaAgotarlos() {
+        LocalDateTime corte = LocalDateTime.now().minusDays(30);
+        for (int i = 0; i < 7; i++) {
+            usuario(i, false, corte.minusDays(1));
+        }
+
+        assertEquals(7, archivo(3, 100).archivar(corte).await().indefinitely());
+        assertEquals(0, usuarios.size());
+        assertEquals(7, archivados());
+    }
+
+    @Test
+    public void testMaximoDeLotesDejaElRestoParaLaSiguienteEjecucion() {
+        LocalDateTime corte = LocalDateTime.now().minusDays(30);
+        for (int i = 0; i < 7; i++) {
+            usuario(i, false, corte.minusDays(1));
+        }
+        ArchivoUsuariosService servicio = archivo(3, 1);
+
+        assertEquals(3, servicio.archivar(corte).await().indefinitely());
+        assertEquals(4, usuarios.size());
+        assertEquals(3, servicio.archivar(corte).await().indefinitely());
+        assertEquals(1, servicio.archivar(corte).await().indefinitely());
+        assertEquals(0, usuarios.size());
+    }
+}
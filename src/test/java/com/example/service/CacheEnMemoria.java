@@ -0,0 +1,88 @@
+package com.example.service;
+
+import io.quarkus.cache.Cache;
+import io.smallrye.mutiny.Uni;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cache sin límite ni expiración para usar UsuarioService fuera de Quarkus. Como la caché real,
+ * guarda la carga en curso desde que empieza, la descarta si se invalida antes de terminar y no
+ * guarda los fallos de carga.
+ */
+public class CacheEnMemoria implements Cache {
+
+    private final String nombre;
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> valores = new ConcurrentHashMap<>();
+
+    public CacheEnMemoria(String nombre) {
+        this.nombre = nombre;
+    }
+
+    @Override
+    public String getName() {
+        return nombre;
+    }
+
+    @Override
+    public Object getDefaultKey() {
+        return "default-key";
+    }
+
+    @Override
+    public <K, V> Uni<V> get(K key, Function<K, V> valueLoader) {
+        return getAsync(key, clave -> Uni.createFrom().item(() -> valueLoader.apply(clave)));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Uni<V> getAsync(K key, Function<K, Uni<V>> valueLoader) {
+        return Uni.createFrom().completionStage(() -> {
+            CompletableFuture<Object> nuevo = new CompletableFuture<>();
+            CompletableFuture<Object> actual = valores.putIfAbsent(key, nuevo);
+            if (actual != null) {
+                return (CompletableFuture<V>) actual;
+            }
+            valueLoader.apply(key).subscribe().with(nuevo::complete, fallo -> {
+                valores.remove(key, nuevo);
+                nuevo.completeExceptionally(fallo);
+            });
+            return (CompletableFuture<V>) nuevo;
+        });
+    }
+
+    @Override
+    public Uni<Void> invalidate(Object key) {
+        return Uni.createFrom().item(() -> {
+            valores.remove(key);
+            return null;
+        });
+    }
+
+    @Override
+    public Uni<Void> invalidateAll() {
+        return Uni.createFrom().item(() -> {
+            valores.clear();
+            return null;
+        });
+    }
+
+    @Override
+    public Uni<Void> invalidateIf(Predicate<Object> predicate) {
+        return Uni.createFrom().item(() -> {
+            valores.keySet().removeIf(predicate);
+            return null;
+        });
+    }
+
+    @Override
+    public <T extends Cache> T as(Class<T> type) {
+        if (type.isInstance(this)) {
+            return type.cast(this);
+        }
+        throw new IllegalStateException("Esta caché no es de tipo " + type.getName());
+    }
+}
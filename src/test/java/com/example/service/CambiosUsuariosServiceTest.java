@@ -0,0 +1,128 @@
+package com.example.service;
+
+import com.example.model.EventoUsuario;
+import com.example.model.Usuario;
+import com.example.repository.UsuarioRepositoryEnMemoria;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import io.smallrye.mutiny.operators.multi.processors.BroadcastProcessor;
+import io.smallrye.mutiny.subscription.BackPressureFailure;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CambiosUsuariosServiceTest {
+
+    private final RepositorioConCambios repositorio = new RepositorioConCambios();
+
+    private CambiosUsuariosService cambios(CambiosUsuariosService.Politica politica, int maxReanudaciones) {
+        CambiosUsuariosService cambios = new CambiosUsuariosService();
+        cambios.usuarioRepository = repositorio;
+        cambios.capacidadBuffer = 2;
+        cambios.politica = politica;
+        cambios.tamanoHistorial = 3;
+        cambios.maxReanudaciones = maxReanudaciones;
+        cambios.reintentoMinimo = Duration.ofSeconds(1);
+        cambios.reintentoMaximo = Duration.ofSeconds(30);
+        cambios.iniciar();
+        return cambios;
+    }
+
+    private static AssertSubscriber<EventoUsuario> suscribir(Multi<EventoUsuario> eventos, long solicitados) {
+        return eventos.subscribe().withSubscriber(AssertSubscriber.create(solicitados));
+    }
+
+    private static List<String> tokens(AssertSubscriber<EventoUsuario> suscriptor) {
+        return suscriptor.getItems().stream().map(evento -> evento.token).toList();
+    }
+
+    @Test
+    public void testConsumidorLentoConDescartarPierdeLosEventosQueNoCaben() {
+        CambiosUsuariosService servicio = cambios(CambiosUsuariosService.Politica.DESCARTAR, 1);
+        AssertSubscriber<EventoUsuario> lento = suscribir(servicio.observar(null), 0);
+
+        repositorio.emitir("t1", "t2", "t3", "t4");
+        lento.request(10);
+
+        assertEquals(List.of("t1", "t2"), tokens(lento));
+        lento.assertNotTerminated();
+        repositorio.emitir("t5");
+        assertEquals(List.of("t1", "t2", "t5"), tokens(lento));
+    }
+
+    @Test
+    public void testConsumidorLentoConDesconectarSeCierra() {
+        CambiosUsuariosService servicio = cambios(CambiosUsuariosService.Politica.DESCONECTAR, 1);
+        AssertSubscriber<EventoUsuario> lento = suscribir(servicio.observar(null), 0);
+        AssertSubscriber<EventoUsuario> rapido = suscribir(servicio.observar(null), Long.MAX_VALUE);
+
+        repositorio.emitir("t1", "t2", "t3");
+        assertEquals(List.of("t1", "t2", "t3"), tokens(rapido));
+
+        // Recibe lo que cabía en su buffer y después el error que cierra la conexión
+        lento.request(10);
+        assertEquals(List.of("t1", "t2"), tokens(lento));
+        lento.assertFailedWith(BackPressureFailure.class);
+        assertEquals(1, servicio.suscriptoresActivos());
+    }
+
+    @Test
+    public void testReconexionDentroDelHistorialNoAbreOtroChangeStream() {
+        CambiosUsuariosService servicio = cambios(CambiosUsuariosService.Politica.DESCONECTAR, 1);
+        suscribir(servicio.observar(null), Long.MAX_VALUE);
+        repositorio.emitir("t1", "t2", "t3");
+
+        AssertSubscriber<EventoUsuario> reconectado = suscribir(servicio.observar("t1"), Long.MAX_VALUE);
+
+        assertEquals(List.of("t2", "t3"), tokens(reconectado));
+        assertEquals(0, repositorio.dedicados.get());
+    }
+
+    @Test
+    public void testTokensAnterioresAlHistorialTienenUnMaximoDeChangeStreams() {
+        CambiosUsuariosService servicio = cambios(CambiosUsuariosService.Politica.DESCONECTAR, 1);
+        suscribir(servicio.observar(null), Long.MAX_VALUE);
+        repositorio.emitir("t1", "t2", "t3", "t4");
+
+        AssertSubscriber<EventoUsuario> primero = suscribir(servicio.observar("t1"), Long.MAX_VALUE);
+        suscribir(servicio.observar("t0"), Long.MAX_VALUE).assertFailedWith(ReanudacionRechazadaException.class);
+        assertEquals(1, repositorio.dedicados.get());
+
+        primero.cancel();
+        suscribir(servicio.observar("t1"), Long.MAX_VALUE).assertNotTerminated();
+        assertEquals(2, repositorio.dedicados.get());
+    }
+
+    // El change stream compartido se abre sin token; con token es un change stream dedicado que no emite nada
+    private static class RepositorioConCambios extends UsuarioRepositoryEnMemoria {
+
+        final BroadcastProcessor<ChangeStreamDocument<Usuario>> compartido = BroadcastProcessor.create();
+        final AtomicInteger dedicados = new AtomicInteger();
+
+        @Override
+        public Multi<ChangeStreamDocument<Usuario>> observarCambios(BsonDocument resumeToken) {
+            if (resumeToken == null) {
+                return compartido;
+            }
+            dedicados.incrementAndGet();
+            return Multi.createFrom().nothing();
+        }
+
+        void emitir(String... tokens) {
+            for (String token : tokens) {
+                compartido.onNext(new ChangeStreamDocument<>(OperationType.INSERT, EventoUsuario.resumeToken(token),
+                        null, null, null, new BsonDocument("_id", new BsonObjectId(new ObjectId())), null, null,
+                        null, null));
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class CoalescedorConsultasTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CoalescedorConsultas coalescedor = new CoalescedorConsultas(registry);
+
+    // Consulta que no termina hasta que el test lo decide
+    private final List<UniEmitter<? super String>> consultas = new ArrayList<>();
+    private final AtomicInteger canceladas = new AtomicInteger();
+
+    private Uni<String> consulta(String clave) {
+        return coalescedor.ejecutar("prueba", clave, () -> Uni.createFrom().<String>emitter(consultas::add)
+                .onCancellation().invoke(canceladas::incrementAndGet));
+    }
+
+    @Test
+    public void testLlamadasConcurrentesCompartenLaConsulta() {
+        UniAssertSubscriber<String> primera = consulta("a").subscribe().withSubscriber(UniAssertSubscriber.create());
+        UniAssertSubscriber<String> segunda = consulta("a").subscribe().withSubscriber(UniAssertSubscriber.create());
+        UniAssertSubscriber<String> otraClave = consulta("b").subscribe().withSubscriber(UniAssertSubscriber.create());
+
+        assertEquals(2, consultas.size());
+        consultas.get(0).complete("resultado");
+
+        primera.assertItem("resultado");
+        segunda.assertItem("resultado");
+        otraClave.assertNotTerminated();
+        assertEquals(2.0, contador(CoalescedorConsultas.CONTADOR_LANZADAS));
+        assertEquals(1.0, contador(CoalescedorConsultas.CONTADOR_COALESCIDAS));
+
+        // Terminada la consulta, la siguiente llamada vuelve a MongoDB
+        consulta("a").subscribe().withSubscriber(UniAssertSubscriber.create());
+        assertEquals(3, consultas.size());
+    }
+
+    @Test
+    public void testElFalloLlegaATodasYNoSeGuarda() {
+        UniAssertSubscriber<String> primera = consulta("a").subscribe().withSubscriber(UniAssertSubscriber.create());
+        UniAssertSubscriber<String> segunda = consulta("a").subscribe().withSubscriber(UniAssertSubscriber.create());
+
+        IllegalStateException fallo = new IllegalStateException("sin conexión");
+        consultas.get(0).fail(fallo);
+
+        assertSame(fallo, primera.assertFailedWith(IllegalStateException.class).getFailure());
+        assertSame(fallo, segunda.assertFailedWith(IllegalStateException.class).getFailure());
+
+        UniAssertSubscriber<String> reintento = consulta("a").subscribe().withSubscriber(UniAssertSubscriber.create());
+        consultas.get(1).complete("ok");
+        reintento.assertItem("ok");
+    }
+
+    @Test
+    public void testCancelarUnaLlamadaNoAfectaALasDemas() {
+        UniAssertSubscriber<String> cancelada = consulta("a").subscribe().withSubscriber(UniAssertSubscriber.create());
+        UniAssertSubscriber<String> activa = consulta("a").subscribe().withSubscriber(UniAssertSubscriber.create());
+
+        cancelada.cancel();
+        assertEquals(0, canceladas.get());
+
+        consultas.get(0).complete("resultado");
+        activa.assertItem("resultado");
+        cancelada.assertNotTerminated();
+    }
+
+    @Test
+    public void testSeCancelaLaConsultaCuandoNadieLaEspera() {
+        UniAssertSubscriber<String> primera = consulta("a").subscribe().withSubscriber(UniAssertSubscriber.create());
+        UniAssertSubscriber<String> segunda = consulta("a").subscribe().withSubscriber(UniAssertSubscriber.create());
+
+        primera.cancel();
+        segunda.cancel();
+
+        assertEquals(1, canceladas.get());
+        assertEquals(1.0, contador(CoalescedorConsultas.CONTADOR_CANCELADAS));
+
+        // Una llamada posterior no se une a la consulta cancelada
+        UniAssertSubscriber<String> nueva = consulta("a").subscribe().withSubscriber(UniAssertSubscriber.create());
+        assertEquals(2, consultas.size());
+        consultas.get(1).complete("nuevo");
+        nueva.assertItem("nuevo");
+    }
+
+    private double contador(String nombre) {
+        return registry.find(nombre).tag("consulta", "prueba").counter().count();
+    }
+}
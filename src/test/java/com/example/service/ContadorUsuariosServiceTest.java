@@ -0,0 +1,97 @@
+package com.example.service;
+
+import com.example.model.ConteoUsuarios;
+import com.example.model.Contador;
+import com.example.model.Usuario;
+import com.example.repository.ConsistenciaCausal;
+import com.example.repository.ContadorRepositoryEnMemoria;
+import com.example.repository.UsuarioRepositoryEnMemoria;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ContadorUsuariosServiceTest {
+
+    private final UsuarioRepositoryEnMemoria usuarios = new UsuarioRepositoryEnMemoria();
+    private final ContadorRepositoryEnMemoria contadores = new ContadorRepositoryEnMemoria();
+    private final ContadorUsuariosService contador = new ContadorUsuariosService();
+
+    @BeforeEach
+    public void preparar() {
+        contador.usuarioRepository = usuarios;
+        contador.contadorRepository = contadores;
+        contador.coalescedor = new CoalescedorConsultas(new SimpleMeterRegistry());
+        // Sin cliente de MongoDB la consistencia causal queda deshabilitada
+        contador.consistencia = new ConsistenciaCausal();
+        contador.compartido = true;
+    }
+
+    private void altas(int cantidad) {
+        for (int i = 0; i < cantidad; i++) {
+            usuarios.persist(new Usuario("Usuario " + i, "usuario" + i + "." + usuarios.size() + "@example.com", null))
+                    .await().indefinitely();
+        }
+    }
+
+    private Contador compartido() {
+        return contadores.findById(ContadorUsuariosService.CONTADOR_ACTIVOS).await().indefinitely();
+    }
+
+    @Test
+    public void testAltasYBajasIncrementanElContadorCompartido() {
+        contador.reconciliacionPeriodica().await().indefinitely();
+
+        contador.registrarAltas(3).await().indefinitely();
+        contador.registrarBaja().await().indefinitely();
+
+        ConteoUsuarios conteo = contador.obtener().await().indefinitely();
+        assertEquals(2, conteo.valor);
+        assertFalse(conteo.exacto);
+        assertEquals(2, compartido().valor);
+        assertEquals(3, compartido().version);
+    }
+
+    @Test
+    public void testReconciliarFijaElTotalContado() {
+        altas(5);
+        contadores.incrementar(ContadorUsuariosService.CONTADOR_ACTIVOS, 42).await().indefinitely();
+
+        contador.reconciliacionPeriodica().await().indefinitely();
+
+        assertEquals(5, compartido().valor);
+        assertEquals(5, contador.obtener().await().indefinitely().valor);
+    }
+
+    @Test
+    public void testReconciliarNoPierdeIncrementosDeOtraReplica() {
+        altas(5);
+        // Otra réplica da un alta entre el count y la escritura del total
+        contadores.antesDeFijar = () -> {
+            altas(1);
+            contadores.incrementar(ContadorUsuariosService.CONTADOR_ACTIVOS, 1).await().indefinitely();
+        };
+
+        contador.reconciliacionPeriodica().await().indefinitely();
+
+        assertEquals(6, compartido().valor);
+        assertEquals(6, contador.obtener().await().indefinitely().valor);
+    }
+
+    @Test
+    public void testContarExactoNoModificaElContador() {
+        altas(4);
+        contador.reconciliacionPeriodica().await().indefinitely();
+        contador.registrarAltas(1).await().indefinitely();
+
+        ConteoUsuarios conteo = contador.contarExacto().await().indefinitely();
+
+        assertEquals(4, conteo.valor);
+        assertTrue(conteo.exacto);
+        assertEquals(5, compartido().valor);
+        assertEquals(5, contador.obtener().await().indefinitely().valor);
+    }
+}
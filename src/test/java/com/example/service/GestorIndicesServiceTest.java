@@ -0,0 +1,114 @@
+package com.example.service;
+
+import com.example.repository.UsuarioRepository;
+import com.example.repository.UsuarioRepositoryEnMemoria;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.model.IndexModel;
+import io.smallrye.mutiny.Uni;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GestorIndicesServiceTest {
+
+    private static final IndexModel EMAIL = UsuarioRepository.INDICES.get(0);
+
+    private static final IndexModel ACTIVO_ID = UsuarioRepository.INDICES.get(1);
+
+    @Test
+    public void testIndiceEmailAnteriorNoCoincide() {
+        // El de init-mongo.js antes de limitarlo a los usuarios activos
+        BsonDocument anterior = BsonDocument.parse("{v: 2, key: {email: 1}, name: 'email_1', unique: true}");
+        BsonDocument parcial = BsonDocument.parse(
+                "{v: 2, key: {email: 1}, name: 'email_1', unique: true, partialFilterExpression: {activo: true}}");
+
+        assertFalse(GestorIndicesService.coincide(EMAIL, anterior));
+        assertTrue(GestorIndicesService.coincide(EMAIL, parcial));
+    }
+
+    @Test
+    public void testClavesEnOrdenYConDireccionNumerica() {
+        // mongosh puede guardar la dirección como double
+        assertTrue(GestorIndicesService.coincide(ACTIVO_ID,
+                BsonDocument.parse("{v: 2, key: {activo: 1.0, _id: 1}, name: 'activo_1__id_1'}")));
+        assertFalse(GestorIndicesService.coincide(ACTIVO_ID,
+                BsonDocument.parse("{v: 2, key: {_id: 1, activo: 1}, name: 'activo_1__id_1'}")));
+        assertFalse(GestorIndicesService.coincide(ACTIVO_ID,
+                BsonDocument.parse("{v: 2, key: {activo: -1, _id: 1}, name: 'activo_1__id_1'}")));
+    }
+
+    private static final List<BsonDocument> EMAIL_ANTERIOR = List.of(
+            BsonDocument.parse("{v: 2, key: {email: 1}, name: 'email_1', unique: true}"));
+
+    private static GestorIndicesService gestor(RepositorioConOperaciones repositorio, boolean reemplazar) {
+        GestorIndicesService gestor = new GestorIndicesService();
+        gestor.usuarioRepository = repositorio;
+        gestor.reemplazar = reemplazar;
+        return gestor;
+    }
+
+    @Test
+    public void testSinReemplazarNoTocaElIndiceAnterior() {
+        RepositorioConOperaciones repositorio = new RepositorioConOperaciones();
+
+        assertNull(gestor(repositorio, false).verificar(EMAIL, EMAIL_ANTERIOR).await().indefinitely());
+        assertEquals(List.of(), repositorio.operaciones);
+    }
+
+    @Test
+    public void testReemplazoCreaElNuevoAntesDeBorrarElAnterior() {
+        RepositorioConOperaciones repositorio = new RepositorioConOperaciones();
+
+        assertEquals("email_1", gestor(repositorio, true).verificar(EMAIL, EMAIL_ANTERIOR).await().indefinitely());
+        assertEquals(List.of("crear email_1_v2", "eliminar email_1"), repositorio.operaciones);
+    }
+
+    @Test
+    public void testSiNoSePuedeCrearElNuevoSeMantieneElAnterior() {
+        RepositorioConOperaciones repositorio = new RepositorioConOperaciones();
+        repositorio.rechazarCreacion = true;
+
+        assertNull(gestor(repositorio, true).verificar(EMAIL, EMAIL_ANTERIOR).await().indefinitely());
+        assertEquals(List.of("crear email_1_v2"), repositorio.operaciones);
+    }
+
+    @Test
+    public void testReemplazoYaCreadoSoloBorraElAnterior() {
+        RepositorioConOperaciones repositorio = new RepositorioConOperaciones();
+        List<BsonDocument> existentes = List.of(EMAIL_ANTERIOR.get(0), BsonDocument.parse(
+                "{v: 2, key: {email: 1}, name: 'email_1_v2', unique: true, partialFilterExpression: {activo: true}}"));
+
+        assertEquals("email_1", gestor(repositorio, true).verificar(EMAIL, existentes).await().indefinitely());
+        assertEquals(List.of("eliminar email_1"), repositorio.operaciones);
+    }
+
+    private static class RepositorioConOperaciones extends UsuarioRepositoryEnMemoria {
+
+        final List<String> operaciones = new ArrayList<>();
+        boolean rechazarCreacion;
+
+        @Override
+        public Uni<Void> crearIndice(IndexModel indice) {
+            operaciones.add("crear " + indice.getOptions().getName());
+            return rechazarCreacion
+                    ? Uni.createFrom().failure(new MongoCommandException(
+                            BsonDocument.parse("{ok: 0, code: 85, errmsg: 'Index already exists with different options'}"),
+                            new ServerAddress()))
+                    : Uni.createFrom().voidItem();
+        }
+
+        @Override
+        public Uni<Void> eliminarIndice(String nombre) {
+            operaciones.add("eliminar " + nombre);
+            return Uni.createFrom().voidItem();
+        }
+    }
+}
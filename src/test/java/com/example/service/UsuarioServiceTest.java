@@ -0,0 +1,322 @@
+package com.example.service;
+
+import com.example.metricas.MetricasUsuarios;
+import com.example.model.ModoBusqueda;
+import com.example.model.Usuario;
+import com.example.repository.ConsistenciaCausal;
+import com.example.repository.UsuarioRepository;
+import com.example.repository.UsuarioRepositoryEnMemoria;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteError;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UsuarioServiceTest {
+
+    private final RepositorioConConsultasRetenidas repositorio = new RepositorioConConsultasRetenidas();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UsuarioService servicio = new UsuarioService();
+    private final FiltroEmailsService filtroEmails = new FiltroEmailsService();
+
+    // Sin cliente de MongoDB la consistencia causal queda deshabilitada; el contador y la caché
+    // quedan sin documento compartido ni invalidación distribuida
+    @BeforeEach
+    public void preparar() {
+        ConsistenciaCausal consistencia = new ConsistenciaCausal();
+        CoalescedorConsultas coalescedor = new CoalescedorConsultas(registry);
+
+        ContadorUsuariosService contador = new ContadorUsuariosService();
+        contador.usuarioRepository = repositorio;
+        contador.coalescedor = coalescedor;
+        contador.consistencia = consistencia;
+
+        filtroEmails.usuarioRepository = repositorio;
+        filtroEmails.registry = registry;
+        filtroEmails.habilitado = true;
+        filtroEmails.capacidad = 10_000;
+        filtroEmails.tasaFalsosPositivos = 0.01;
+        filtroEmails.batchSize = 100;
+        filtroEmails.reconstruir().await().indefinitely();
+
+        CacheUsuariosService cacheUsuarios = new CacheUsuariosService();
+        cacheUsuarios.usuarioRepository = repositorio;
+        cacheUsuarios.coalescedor = coalescedor;
+        cacheUsuarios.usuariosPorId = new CacheEnMemoria("usuarios-por-id");
+
+        servicio.usuarioRepository = repositorio;
+        servicio.contadorUsuarios = contador;
+        servicio.filtroEmails = filtroEmails;
+        servicio.metricas = new MetricasUsuarios(registry);
+        servicio.consistencia = consistencia;
+        servicio.cacheUsuarios = cacheUsuarios;
+        servicio.limitePorDefecto = 100;
+        servicio.limiteMaximo = 1000;
+        servicio.limiteBusquedaPorDefecto = 20;
+        servicio.limiteBusquedaMaximo = 100;
+        servicio.maxCandidatosBusqueda = 1000;
+    }
+
+    private Usuario crear(String nombre, String email) {
+        return servicio.crear(new Usuario(nombre, email, null)).await().indefinitely();
+    }
+
+    private Usuario obtener(ObjectId id) {
+        return servicio.obtenerPorId(id.toHexString()).await().indefinitely();
+    }
+
+    private double comprobacionesFiltro(String resultado) {
+        return registry.counter(FiltroEmailsService.CONTADOR_COMPROBACIONES, "outcome", resultado).count();
+    }
+
+    @Test
+    public void testEmailDescartadoPorElFiltroNoConsultaMongo() {
+        crear("Teresa Luna", "teresa.luna@example.com");
+
+        assertEquals(0, repositorio.consultasEmail.get());
+        assertEquals(1, comprobacionesFiltro("negativo"));
+    }
+
+    @Test
+    public void testPositivoDelFiltroSeConfirmaEnMongo() {
+        Usuario creado = crear("Jorge Vidal", "jorge.vidal@example.com");
+
+        assertThrows(EmailDuplicadoException.class, () -> crear("Jorge Vidal", "jorge.vidal@example.com"));
+        assertEquals(1, repositorio.consultasEmail.get());
+        assertEquals(1, comprobacionesFiltro("confirmado"));
+
+        // La baja no saca el email del filtro hasta la siguiente reconstrucción
+        servicio.eliminar(creado.id.toHexString()).await().indefinitely();
+        crear("Jorge Vidal Soto", "jorge.vidal@example.com");
+        assertEquals(2, repositorio.consultasEmail.get());
+        assertEquals(1, comprobacionesFiltro("falso_positivo"));
+    }
+
+    @Test
+    public void testAltaDuranteLaReconstruccionSigueEnElFiltroNuevo() {
+        crear("Alba Ríos", "alba.rios@example.com");
+
+        // El filtro nuevo se llena con los emails leídos antes del alta
+        repositorio.retener = true;
+        UniAssertSubscriber<Long> reconstruccion = filtroEmails.reconstruir()
+                .subscribe().withSubscriber(UniAssertSubscriber.create());
+        repositorio.retener = false;
+        crear("Bruno Gil", "bruno.gil@example.com");
+        repositorio.liberar();
+        assertEquals(1L, reconstruccion.awaitItem().getItem());
+
+        assertFalse(filtroEmails.descarta("bruno.gil@example.com"));
+        assertThrows(EmailDuplicadoException.class, () -> crear("Bruno Gil", "bruno.gil@example.com"));
+        assertEquals(1, comprobacionesFiltro("confirmado"));
+    }
+
+    @Test
+    public void testDuplicadoDeOtraReplicaQueElFiltroNoConoceLoRechazaElIndice() {
+        // Alta hecha en otra réplica después de la última reconstrucción
+        repositorio.persist(new Usuario("Inés Mora", "ines.mora@example.com", null)).await().indefinitely();
+
+        assertThrows(EmailDuplicadoException.class, () -> crear("Inés Mora", "ines.mora@example.com"));
+        assertEquals(0, repositorio.consultasEmail.get());
+        assertEquals(1, comprobacionesFiltro("negativo"));
+    }
+
+    @Test
+    public void testObtenerTrasActualizarDevuelveLaVersionNueva() {
+        Usuario creado = crear("Marta Solís", "marta.solis@example.com");
+        assertEquals("Marta Solís", obtener(creado.id).nombre);
+
+        servicio.actualizar(creado.id.toHexString(), new Usuario("Marta Solís Vega", "marta.solis@example.com", null))
+                .await().indefinitely();
+
+        assertEquals("Marta Solís Vega", obtener(creado.id).nombre);
+    }
+
+    @Test
+    public void testObtenerTrasEliminarNoEncuentraElUsuario() {
+        Usuario creado = crear("Pablo Ortega", "pablo.ortega@example.com");
+        obtener(creado.id);
+
+        servicio.eliminar(creado.id.toHexString()).await().indefinitely();
+
+        assertThrows(UsuarioNoEncontradoException.class, () -> obtener(creado.id));
+    }
+
+    @Test
+    public void testVersionYLecturaCondicionalNoUsanLaCacheDesactualizada() {
+        Usuario creado = crear("Nuria Prieto", "nuria.prieto@example.com");
+        obtener(creado.id);
+
+        // Escritura de otra réplica: esta no invalida su caché
+        Usuario cambios = new Usuario("Nuria Prieto Sanz", "nuria.prieto@example.com", null);
+        cambios.indexarNombre();
+        Usuario actual = repositorio.actualizarActivo(null, creado.id, null, cambios).await().indefinitely();
+        assertEquals("Nuria Prieto", obtener(creado.id).nombre);
+
+        LocalDateTime version = servicio.obtenerVersion(creado.id.toHexString()).await().indefinitely();
+        assertEquals(actual.fechaActualizacion.truncatedTo(ChronoUnit.MILLIS), version);
+        assertEquals("Nuria Prieto Sanz",
+                servicio.obtenerPorId(creado.id.toHexString(), version).await().indefinitely().nombre);
+        assertEquals("Nuria Prieto Sanz", obtener(creado.id).nombre);
+    }
+
+    @Test
+    public void testConsultaAnteriorALaEscrituraNoVuelveALaCache() {
+        Usuario creado = crear("Irene Campos", "irene.campos@example.com");
+
+        // Lectura que consulta MongoDB antes de la actualización y responde después
+        repositorio.retener = true;
+        UniAssertSubscriber<Usuario> anterior = servicio.obtenerPorId(creado.id.toHexString())
+                .subscribe().withSubscriber(UniAssertSubscriber.create());
+        repositorio.retener = false;
+
+        servicio.actualizar(creado.id.toHexString(), new Usuario("Irene Campos Ruiz", "irene.campos@example.com", null))
+                .await().indefinitely();
+
+        // Una lectura posterior a la escritura no se une a la consulta anterior
+        UniAssertSubscriber<Usuario> posterior = servicio.obtenerPorId(creado.id.toHexString())
+                .subscribe().withSubscriber(UniAssertSubscriber.create());
+        assertEquals("Irene Campos Ruiz", posterior.assertCompleted().getItem().nombre);
+
+        repositorio.liberar();
+        assertEquals("Irene Campos", anterior.awaitItem().getItem().nombre);
+        assertEquals("Irene Campos Ruiz", obtener(creado.id).nombre);
+    }
+
+    @Test
+    public void testActualizarOEliminarUnIdInexistenteNoEncuentraElUsuario() {
+        String id = new ObjectId().toHexString();
+
+        assertThrows(UsuarioNoEncontradoException.class, () -> servicio.actualizar(id,
+                new Usuario("Nadie", "nadie@example.com", null)).await().indefinitely());
+        assertThrows(UsuarioNoEncontradoException.class, () -> servicio.eliminar(id).await().indefinitely());
+    }
+
+    @Test
+    public void testUsuarioEliminadoNoSeActualizaNiSeVuelveAEliminar() {
+        Usuario creado = crear("Óscar Lara", "oscar.lara@example.com");
+        servicio.eliminar(creado.id.toHexString()).await().indefinitely();
+
+        assertThrows(UsuarioNoEncontradoException.class, () -> servicio.actualizar(creado.id.toHexString(),
+                new Usuario("Óscar Lara Gil", "oscar.lara@example.com", null)).await().indefinitely());
+        assertThrows(UsuarioNoEncontradoException.class,
+                () -> servicio.eliminar(creado.id.toHexString()).await().indefinitely());
+    }
+
+    @Test
+    public void testActualizarConElEmailDeOtroUsuarioActivoEsUnConflicto() {
+        Usuario eva = crear("Eva Mora", "eva.mora@example.com");
+        Usuario hugo = crear("Hugo Sanz", "hugo.sanz@example.com");
+
+        assertThrows(EmailDuplicadoException.class, () -> servicio.actualizar(hugo.id.toHexString(),
+                new Usuario("Hugo Sanz", "eva.mora@example.com", null)).await().indefinitely());
+        assertEquals("hugo.sanz@example.com", obtener(hugo.id).email);
+        assertEquals("eva.mora@example.com", obtener(eva.id).email);
+
+        // El índice único es parcial: el email de un usuario eliminado se puede reutilizar
+        servicio.eliminar(eva.id.toHexString()).await().indefinitely();
+        assertEquals("eva.mora@example.com", servicio.actualizar(hugo.id.toHexString(),
+                new Usuario("Hugo Sanz", "eva.mora@example.com", null)).await().indefinitely().email);
+    }
+
+    @Test
+    public void testEsClaveDuplicadaSoloConElErrorDeIndiceUnico() {
+        Usuario creado = crear("Rosa Pardo", "rosa.pardo@example.com");
+        Usuario otro = new Usuario("Rosa Pardo", "rosa.pardo@example.com", null);
+
+        Throwable duplicado = assertThrows(MongoWriteException.class,
+                () -> repositorio.persist(otro).await().indefinitely());
+        assertTrue(UsuarioRepository.esClaveDuplicada(duplicado));
+        assertFalse(UsuarioRepository.esClaveDuplicada(new MongoWriteException(
+                new WriteError(121, "Document failed validation", new BsonDocument()), new ServerAddress())));
+        assertFalse(UsuarioRepository.esClaveDuplicada(new IllegalStateException(creado.email)));
+    }
+
+    @Test
+    public void testBusquedaPorSubcadenaIncluyeElNombreExactoAunqueSeLlegueAlMaximo() {
+        for (int i = 0; i < 5; i++) {
+            crear("Mariana " + (char) ('a' + i), "mariana" + i + "@example.com");
+        }
+        crear("Ana Belén", "ana.belen@example.com");
+        crear("Ana", "ana@example.com");
+        servicio.maxCandidatosBusqueda = 3;
+
+        List<String> nombres = servicio.buscarPorNombre("ana", ModoBusqueda.CONTIENE, 3)
+                .map(usuario -> usuario.nombre)
+                .collect().asList().await().indefinitely();
+
+        assertEquals(List.of("Ana", "Ana Belén", "Mariana a"), nombres);
+    }
+
+    @Test
+    public void testUnirCandidatosSinDuplicadosYRegistraElTruncado() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MetricasUsuarios metricas = new MetricasUsuarios(registry);
+        Usuario ana = new Usuario("Ana", "ana@example.com", null);
+        Usuario mariana = new Usuario("Mariana", "mariana@example.com", null);
+        ana.id = new ObjectId();
+        mariana.id = new ObjectId();
+
+        assertEquals(List.of(ana, mariana),
+                UsuarioService.unirCandidatos(List.of(ana), List.of(mariana, ana), usuario -> usuario.id, 3, metricas));
+        assertEquals(0, registry.counter("usuarios.busqueda.candidatos_truncados").count());
+
+        UsuarioService.unirCandidatos(List.of(ana), List.of(mariana, ana), usuario -> usuario.id, 2, metricas);
+        assertEquals(1, registry.counter("usuarios.busqueda.candidatos_truncados").count());
+    }
+
+    // Las consultas por id y de emails hechas con retener activo leen al momento y responden al
+    // liberarlas; cuenta las comprobaciones de email previas al alta
+    private static class RepositorioConConsultasRetenidas extends UsuarioRepositoryEnMemoria {
+
+        volatile boolean retener;
+        final AtomicInteger consultasEmail = new AtomicInteger();
+        private final List<Runnable> retenidas = new ArrayList<>();
+
+        @Override
+        public Uni<Boolean> existsByEmail(String email) {
+            consultasEmail.incrementAndGet();
+            return super.existsByEmail(email);
+        }
+
+        @Override
+        public Multi<String> streamEmailsActivos(int batchSize) {
+            if (!retener) {
+                return super.streamEmailsActivos(batchSize);
+            }
+            List<String> leidos = super.streamEmailsActivos(batchSize).collect().asList().await().indefinitely();
+            return Uni.createFrom().<List<String>>emitter(emisor -> retenidas.add(() -> emisor.complete(leidos)))
+                    .onItem().transformToMulti(emails -> Multi.createFrom().iterable(emails));
+        }
+
+        @Override
+        public Uni<Usuario> findByIdAndActivo(ObjectId id) {
+            if (!retener) {
+                return super.findByIdAndActivo(id);
+            }
+            Usuario leido = super.findByIdAndActivo(id).await().indefinitely();
+            return Uni.createFrom().emitter(emisor -> retenidas.add(() -> emisor.complete(leido)));
+        }
+
+        void liberar() {
+            retenidas.forEach(Runnable::run);
+            retenidas.clear();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.util;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CompresorGzipTest {
+
+    @Test
+    public void testFlujoGzipValido() throws IOException {
+        CompresorGzip compresor = new CompresorGzip();
+        StringBuilder original = new StringBuilder();
+        Buffer comprimido = Buffer.buffer();
+        try {
+            for (int bloque = 0; bloque < 50; bloque++) {
+                StringBuilder lineas = new StringBuilder();
+                for (int i = 0; i < 1000; i++) {
+                    lineas.append("{\"nombre\":\"Usuario ").append(bloque * 1000 + i).append("\"}\n");
+                }
+                original.append(lineas);
+                comprimido.appendBuffer(compresor.comprimir(Buffer.buffer(lineas.toString())));
+            }
+            comprimido.appendBuffer(compresor.terminar());
+        } finally {
+            compresor.cerrar();
+        }
+
+        assertEquals(original.toString(), descomprimir(comprimido.getBytes()));
+    }
+
+    @Test
+    public void testCadaBloqueSeDescomprimeSinEsperarAlFinal() throws IOException {
+        CompresorGzip compresor = new CompresorGzip();
+        try {
+            byte[] primero = compresor.comprimir(Buffer.buffer("primera línea\n")).getBytes();
+
+            // Sin cola gzip el flujo está incompleto, pero lo recibido ya se puede leer
+            try (InputStream entrada = new GZIPInputStream(new ByteArrayInputStream(primero))) {
+                byte[] leido = new byte[64];
+                int n = entrada.read(leido);
+                assertEquals("primera línea\n", new String(leido, 0, n, StandardCharsets.UTF_8));
+            }
+        } finally {
+            compresor.cerrar();
+        }
+    }
+
+    @Test
+    public void testFlujoVacio() throws IOException {
+        CompresorGzip compresor = new CompresorGzip();
+        try {
+            assertEquals("", descomprimir(compresor.terminar().getBytes()));
+        } finally {
+            compresor.cerrar();
+        }
+    }
+
+    private static String descomprimir(byte[] gzip) throws IOException {
+        try (InputStream entrada = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
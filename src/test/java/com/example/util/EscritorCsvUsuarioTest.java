@@ -0,0 +1,37 @@
+package com.example.util;
+
+import com.example.model.Usuario;
+import com.mongodb.MongoClientSettings;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EscritorCsvUsuarioTest {
+
+    private static final Codec<Usuario> CODEC = CodecRegistries.fromRegistries(
+            MongoClientSettings.getDefaultCodecRegistry(),
+            CodecRegistries.fromProviders(PojoCodecProvider.builder().automatic(true).build()))
+            .get(Usuario.class);
+
+    @Test
+    public void testFilaConComillasYCamposNulos() {
+        Usuario usuario = new Usuario("Ana \"la\" Pérez, hija", "ana@example.com", null);
+        usuario.id = new ObjectId("65a1b2c3d4e5f6a7b8c9d0e1");
+        usuario.activo = false;
+        usuario.fechaCreacion = LocalDateTime.of(2024, 2, 29, 10, 15, 30, 120_000_000);
+        usuario.fechaActualizacion = null;
+
+        String csv = EscritorCsvUsuario.escribir(List.of(new RawBsonDocument(usuario, CODEC))).toString();
+
+        assertEquals("65a1b2c3d4e5f6a7b8c9d0e1,\"Ana \"\"la\"\" Pérez, hija\",\"ana@example.com\",,false,"
+                + "\"2024-02-29T10:15:30.12\",\r\n", csv);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.util;
+
+import com.example.model.Usuario;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.mongodb.MongoClientSettings;
+import io.quarkus.mongodb.panache.common.jackson.ObjectIdSerializer;
+import org.bson.BsonArray;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EscritorJsonUsuarioTest {
+
+    private static final Codec<Usuario> CODEC = CodecRegistries.fromRegistries(
+            MongoClientSettings.getDefaultCodecRegistry(),
+            CodecRegistries.fromProviders(PojoCodecProvider.builder().automatic(true).build()))
+            .get(Usuario.class);
+
+    // Misma configuración que el ObjectMapper de Quarkus para estos tipos
+    private static final ObjectMapper JACKSON = new ObjectMapper()
+            .findAndRegisterModules()
+            .registerModule(new SimpleModule().addSerializer(ObjectId.class, new ObjectIdSerializer()))
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    public void testMismoJsonQueJackson() throws Exception {
+        Usuario usuario = usuario("María Núñez", "maria@example.com", "1234567890",
+                                  LocalDateTime.of(2026, 10, 18, 17, 0, 28, 398_000_000));
+
+        assertEquals(JACKSON.writeValueAsString(usuario), json(usuario));
+    }
+
+    @Test
+    public void testTelefonoNuloYCaracteresEscapados() throws Exception {
+        Usuario usuario = usuario("Ana \"la\" \\ Pérez\n\t\u0001 😀", "ana@example.com", null,
+                                  LocalDateTime.of(2024, 2, 29, 0, 0));
+        usuario.activo = false;
+
+        assertEquals(JACKSON.writeValueAsString(usuario), json(usuario));
+    }
+
+    @Test
+    public void testFormatoDeFechas() throws Exception {
+        for (LocalDateTime fecha : List.of(
+                LocalDateTime.of(2026, 1, 1, 10, 0),
+                LocalDateTime.of(2026, 1, 1, 10, 0, 5),
+                LocalDateTime.of(2026, 12, 31, 23, 59, 59, 390_000_000),
+                LocalDateTime.of(2026, 3, 1, 0, 0, 0, 1_000_000),
+                LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_000_000),
+                LocalDateTime.of(1900, 2, 28, 12, 30))) {
+            Usuario usuario = usuario("Luis", "luis@example.com", null, fecha);
+
+            assertEquals(JACKSON.writeValueAsString(usuario), json(usuario), fecha.toString());
+        }
+    }
+
+    @Test
+    public void testIgnoraOrdenYCamposDesconocidos() {
+        ObjectId id = new ObjectId();
+        BsonDocument documento = new BsonDocument()
+                .append("fechaActualizacion", new BsonDateTime(0))
+                .append("extra", new BsonDocument("a", new BsonArray(List.of(new BsonInt32(1), new BsonDouble(2)))))
+                .append("patron", new BsonRegularExpression("^a", "i"))
+                .append("email", new BsonString("e@example.com"))
+                .append("_id", new BsonObjectId(id))
+                .append("nombre", new BsonString("Eva"))
+                .append("activo", BsonBoolean.TRUE)
+                .append("fechaCreacion", new BsonDateTime(0));
+
+        String json = EscritorJsonUsuario.escribir(new RawBsonDocument(documento, MongoClientSettings
+                .getDefaultCodecRegistry().get(BsonDocument.class))).toString();
+
+        assertEquals("{\"nombre\":\"Eva\",\"email\":\"e@example.com\",\"telefono\":null,\"activo\":true,"
+                + "\"fechaCreacion\":\"1970-01-01T00:00:00\",\"fechaActualizacion\":\"1970-01-01T00:00:00\","
+                + "\"id\":\"" + id.toHexString() + "\"}", json);
+    }
+
+    @Test
+    public void testLista() throws Exception {
+        List<Usuario> usuarios = List.of(
+                usuario("Uno", "uno@example.com", null, LocalDateTime.of(2026, 5, 5, 5, 5)),
+                usuario("Dos", "dos@example.com", "1234567890", LocalDateTime.of(2026, 6, 6, 6, 6)));
+
+        String json = EscritorJsonUsuario.escribir(usuarios.stream()
+                .map(usuario -> new RawBsonDocument(usuario, CODEC))
+                .toList()).toString();
+
+        assertEquals(JACKSON.writeValueAsString(usuarios), json);
+        assertEquals("[]", EscritorJsonUsuario.escribir(List.of()).toString());
+    }
+
+    private static Usuario usuario(String nombre, String email, String telefono, LocalDateTime fecha) {
+        Usuario usuario = new Usuario(nombre, email, telefono);
+        usuario.id = new ObjectId();
+        usuario.fechaCreacion = fecha;
+        usuario.fechaActualizacion = fecha.plusSeconds(1);
+        usuario.indexarNombre();
+        return usuario;
+    }
+
+    private static String json(Usuario usuario) {
+        return EscritorJsonUsuario.escribir(new RawBsonDocument(usuario, CODEC)).toString();
+    }
+}
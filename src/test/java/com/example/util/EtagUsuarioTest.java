@@ -0,0 +1,47 @@
+package com.example.util;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EtagUsuarioTest {
+
+    private final ObjectId id = new ObjectId();
+
+    @Test
+    public void testLaVersionDeLaEtagEsLaFechaEnMilisegundos() {
+        LocalDateTime fecha = LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_456_789);
+        String etag = EtagUsuario.de(id, fecha);
+
+        assertEquals(List.of(fecha.truncatedTo(ChronoUnit.MILLIS)),
+                EtagUsuario.versiones("\"otra\", " + etag + ", W/" + etag, id));
+        assertEquals(etag, EtagUsuario.de(id, fecha.truncatedTo(ChronoUnit.MILLIS)));
+    }
+
+    @Test
+    public void testIfMatchSinCondicionOSinEtagsValidas() {
+        assertNull(EtagUsuario.versiones(null, id));
+        assertNull(EtagUsuario.versiones(" * ", id));
+        assertTrue(EtagUsuario.versiones(EtagUsuario.de(new ObjectId(), LocalDateTime.now()), id).isEmpty());
+        assertTrue(EtagUsuario.versiones("\"" + id.toHexString() + "-zz!\"", id).isEmpty());
+    }
+
+    @Test
+    public void testIfNoneMatchUsaComparacionDebil() {
+        String etag = EtagUsuario.de(id, LocalDateTime.now());
+
+        assertTrue(EtagUsuario.coincideAlguna("W/" + etag, etag));
+        assertTrue(EtagUsuario.coincideAlguna("\"a\" , " + etag, etag));
+        assertTrue(EtagUsuario.coincideAlguna("*", etag));
+        assertFalse(EtagUsuario.coincideAlguna("\"a\"", etag));
+        assertFalse(EtagUsuario.coincideAlguna(null, etag));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FiltroBloomTest {
+
+    @Test
+    public void testDimensionadoSegunCapacidadYTasa() {
+        FiltroBloom filtro = new FiltroBloom(1_000_000, 0.01);
+
+        // 9,59 bits y 7 funciones por elemento al 1 %
+        assertEquals(9_585_088, filtro.bits());
+        assertEquals(7, filtro.funciones());
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(1000, 1));
+    }
+
+    @Test
+    public void testSinFalsosNegativosYTasaCercanaALaConfigurada() {
+        FiltroBloom filtro = new FiltroBloom(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filtro.agregar("usuario" + i + "@example.com");
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filtro.puedeContener("usuario" + i + "@example.com"));
+        }
+        int falsosPositivos = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filtro.puedeContener("nuevo" + i + "@example.com")) {
+                falsosPositivos++;
+            }
+        }
+        assertTrue(falsosPositivos < 1_500, "Falsos positivos: " + falsosPositivos);
+        assertEquals(0.01, filtro.tasaFalsosPositivosEstimada(), 0.003);
+    }
+
+    @Test
+    public void testVacioNoContieneNada() {
+        FiltroBloom filtro = new FiltroBloom(1000, 0.01);
+
+        assertFalse(filtro.puedeContener("ana@example.com"));
+        assertEquals(0, filtro.tasaFalsosPositivosEstimada());
+        filtro.agregar("ana@example.com");
+        filtro.agregar("ana@example.com");
+        assertEquals(1, filtro.elementos());
+    }
+}
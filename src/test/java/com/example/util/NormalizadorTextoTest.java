@@ -0,0 +1,36 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NormalizadorTextoTest {
+
+    @Test
+    public void testNormalizarQuitaAcentosYMayusculas() {
+        assertEquals("maria garcia", NormalizadorTexto.normalizar("  María   GARCÍA "));
+        assertEquals("perez nunez", NormalizadorTexto.normalizar("Pérez Núñez"));
+    }
+
+    @Test
+    public void testNormalizarNulo() {
+        assertEquals("", NormalizadorTexto.normalizar(null));
+    }
+
+    @Test
+    public void testNgramas() {
+        assertEquals(List.of("per", "ere", "rez"), NormalizadorTexto.ngramas("perez"));
+        assertTrue(NormalizadorTexto.ngramas("pe").isEmpty());
+    }
+
+    @Test
+    public void testNgramasDeLaConsultaEstanEnLosDelNombre() {
+        List<String> nombre = NormalizadorTexto.ngramas(NormalizadorTexto.normalizar("Juan Pérez"));
+        List<String> consulta = NormalizadorTexto.ngramas(NormalizadorTexto.normalizar("n PEREZ"));
+
+        assertTrue(nombre.containsAll(consulta));
+    }
+}